@@ -5,7 +5,7 @@ import java.awt.*;
 import System.PropertySystem;
 import Objects.Property;
 import Objects.Reservation;
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * GUI dialog for booking management operations.
@@ -95,15 +95,15 @@ public class BookingMenuGUI extends JDialog {
      */
     private void simulateBooking() {
         // Prompt user to select a property for booking
-        int propertyIndex = selectProperty("Simulate Booking");
+        long propertyId = selectProperty("Simulate Booking");
 
         // Only proceed if a valid property was selected
-        if (propertyIndex < 0) {
+        if (propertyId < 0) {
             return;
         }
 
         // Launch the simulation dialog for the chosen property
-        SimulateBookingDialog dialog = new SimulateBookingDialog(this, system, propertyIndex);
+        SimulateBookingDialog dialog = new SimulateBookingDialog(this, system, propertyId);
         dialog.setVisible(true);
     }
 
@@ -114,15 +114,15 @@ public class BookingMenuGUI extends JDialog {
      */
     private void viewReservations() {
         // Prompt user to select a property
-        int propertyIndex = selectProperty("View Reservations");
+        long propertyId = selectProperty("View Reservations");
 
         // Only proceed if a valid property was selected
-        if (propertyIndex < 0) {
+        if (propertyId < 0) {
             return;
         }
 
         // Get all reservations for the selected property
-        ArrayList<Reservation> reservations = system.getReservationsForProperty(propertyIndex);
+        List<Reservation> reservations = system.getReservationsForProperty(propertyId);
 
         if (reservations.isEmpty()) {
             // Show message if no reservations exist
@@ -133,7 +133,7 @@ public class BookingMenuGUI extends JDialog {
         }
 
         // Open the dialog to view reservations of the selected property
-        ViewReservationsDialog dialog = new ViewReservationsDialog(this, system, propertyIndex);
+        ViewReservationsDialog dialog = new ViewReservationsDialog(this, system, propertyId);
         dialog.setVisible(true);
     }
 
@@ -144,15 +144,15 @@ public class BookingMenuGUI extends JDialog {
      */
     private void removeReservation() {
         // Prompt user to select a property
-        int propertyIndex = selectProperty("Remove Reservation");
+        long propertyId = selectProperty("Remove Reservation");
 
         // Only proceed if a valid property was selected
-        if (propertyIndex < 0) {
+        if (propertyId < 0) {
             return;
         }
 
         // Get all reservations for the selected property
-        ArrayList<Reservation> reservations = system.getReservationsForProperty(propertyIndex);
+        List<Reservation> reservations = system.getReservationsForProperty(propertyId);
 
         if (reservations.isEmpty()) {
             // Show message if no reservations exist to remove
@@ -192,7 +192,7 @@ public class BookingMenuGUI extends JDialog {
 
             if (confirm == JOptionPane.YES_OPTION) {
                 // Attempt to remove the reservation
-                boolean ok = system.removeReservation(propertyIndex, resIndex);
+                boolean ok = system.removeReservation(propertyId, reservations.get(resIndex));
 
                 if (ok) {
                     JOptionPane.showMessageDialog(this, "Reservation removed successfully!");
@@ -210,10 +210,11 @@ public class BookingMenuGUI extends JDialog {
      * Shows a dropdown list of all properties with names and types.
      *
      * @param title the title to display on the selection dialog
-     * @return the index of the selected property, or -1 if cancelled or none available
+     * @return the ID of the selected property, or -1 if cancelled or none available
      */
-    private int selectProperty(String title) {
-        int count = system.getPropertyCount();
+    private long selectProperty(String title) {
+        long[] ids = system.getPropertyIds();
+        int count = ids.length;
 
         // If there are no properties, inform the user and abort selection
         if (count == 0) {
@@ -225,7 +226,7 @@ public class BookingMenuGUI extends JDialog {
         // Prepare an array of property options with name and type
         String[] propertyNames = new String[count];
         for (int i = 0; i < count; i++) {
-            Property p = system.getProperty(i);
+            Property p = system.getProperty(ids[i]);
             // Format: "1) Property Name (Property Type)"
             propertyNames[i] = (i + 1) + ") " + p.getName() + " (" + p.getType().getDisplayName() + ")";
         }
@@ -243,8 +244,8 @@ public class BookingMenuGUI extends JDialog {
             return -1;
         }
 
-        // Extract the index number from the selected option string
+        // Extract the index number from the selected option string and map it to its ID
         String indexStr = selected.substring(0, selected.indexOf(")"));
-        return Integer.parseInt(indexStr) - 1;
+        return ids[Integer.parseInt(indexStr) - 1];
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import javax.swing.*;
 import java.awt.*;
 import Objects.Property;
 import Objects.Date;
+import System.PropertySystem;
 
 /**
  * Interactive calendar grid panel that displays property dates.
@@ -12,6 +13,8 @@ import Objects.Date;
  */
 public class CalendarGridPanel extends JPanel {
 
+    private PropertySystem system;
+    private long propertyId;
     private Property property;
     private JButton[][] dayButtons;
     private static final int COLUMNS = 7;
@@ -22,10 +25,13 @@ public class CalendarGridPanel extends JPanel {
      * Creates a 7x5 grid of day buttons with color-coded availability status
      * and a legend explaining the color scheme.
      *
-     * @param property the property whose calendar is displayed
+     * @param system the PropertySystem that applies date changes
+     * @param propertyId the ID of the property whose calendar is displayed
      */
-    public CalendarGridPanel(Property property) {
-        this.property = property;
+    public CalendarGridPanel(PropertySystem system, long propertyId) {
+        this.system = system;
+        this.propertyId = propertyId;
+        this.property = system.getProperty(propertyId);
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
@@ -177,7 +183,7 @@ public class CalendarGridPanel extends JPanel {
 
         // Open the edit dialog
         DateEditDialog dialog = new DateEditDialog((Frame) SwingUtilities.getWindowAncestor(this),
-                property, day, date);
+                system, propertyId, property, day, date);
         dialog.setVisible(true);
 
         // If the user made changes, refresh the button to show updated values
@@ -172,9 +172,9 @@ public class CreatePropertyDialog extends JDialog {
             }
         }
 
-        int index = system.createProperty(name, type, days);
+        long id = system.createProperty(name, type, days);
 
-        if (index >= 0) {
+        if (id >= 0) {
             JOptionPane.showMessageDialog(this, "Property created successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
             dispose();
@@ -4,6 +4,7 @@ import javax.swing.*;
 import java.awt.*;
 import Objects.Property;
 import Objects.Date;
+import System.PropertySystem;
 
 /**
  * Dialog for editing a specific date's price and environmental rate.
@@ -12,6 +13,8 @@ import Objects.Date;
  */
 public class DateEditDialog extends JDialog {
 
+    private PropertySystem system;
+    private long propertyId;
     private Property property;
     private int day;
     private Date date;
@@ -24,12 +27,17 @@ public class DateEditDialog extends JDialog {
      * Constructs a DateEditDialog for editing a specific date.
      *
      * @param parent the parent frame that owns this dialog
+     * @param system the PropertySystem that applies the change
+     * @param propertyId the ID of the property containing this date
      * @param property the property containing this date
      * @param day the day number being edited (1-30)
      * @param date the Date object to edit
      */
-    public DateEditDialog(Frame parent, Property property, int day, Date date) {
+    public DateEditDialog(Frame parent, PropertySystem system, long propertyId,
+                          Property property, int day, Date date) {
         super(parent, "Edit Day " + day, true);
+        this.system = system;
+        this.propertyId = propertyId;
         this.property = property;
         this.day = day;
         this.date = date;
@@ -129,7 +137,7 @@ public class DateEditDialog extends JDialog {
 
     /**
      * Validates and saves the changes made to the date's price and environmental rate.
-     * Performs input validation and updates the Date object if all values are valid.
+     * Performs input validation and asks the system to update the date if all values are valid.
      */
     private void saveChanges() {
         try {
@@ -153,9 +161,13 @@ public class DateEditDialog extends JDialog {
                 return;
             }
 
-            // Apply the changes to the Date object
-            date.setPrice(price);
-            date.setEnvironmentalRate(envRate);
+            // Apply the changes through the system so they are logged
+            if (!system.updateDate(propertyId, day, price, envRate)) {
+                JOptionPane.showMessageDialog(this,
+                        "Date could not be updated. It may have been reserved.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
             // Mark as updated so the calendar can refresh
             updated = true;
@@ -14,7 +14,7 @@ import Objects.Property;
 public class EnvironmentalRatesDialog extends JDialog {
 
     private PropertySystem system;
-    private int propertyIndex;
+    private long propertyId;
     private Property property;
     private CalendarGridPanel calendarPanel;
 
@@ -24,13 +24,13 @@ public class EnvironmentalRatesDialog extends JDialog {
      *
      * @param parent the parent dialog that launched this dialog
      * @param system the PropertySystem containing property data
-     * @param propertyIndex the index of the property to manage
+     * @param propertyId the ID of the property to manage
      */
-    public EnvironmentalRatesDialog(JDialog parent, PropertySystem system, int propertyIndex) {
+    public EnvironmentalRatesDialog(JDialog parent, PropertySystem system, long propertyId) {
         super(parent, "Environmental Rates", true);
         this.system = system;
-        this.propertyIndex = propertyIndex;
-        this.property = system.getProperty(propertyIndex);
+        this.propertyId = propertyId;
+        this.property = system.getProperty(propertyId);
 
         setSize(1100, 700);
         setLocationRelativeTo(parent);
@@ -49,7 +49,7 @@ public class EnvironmentalRatesDialog extends JDialog {
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
 
         // Calendar view on the left side
-        calendarPanel = new CalendarGridPanel(property);
+        calendarPanel = new CalendarGridPanel(system, propertyId);
         JScrollPane calendarScroll = new JScrollPane(calendarPanel);
         calendarScroll.setBorder(BorderFactory.createTitledBorder("Calendar View (Click dates to edit)"));
         splitPane.setLeftComponent(calendarScroll);
@@ -162,7 +162,7 @@ public class EnvironmentalRatesDialog extends JDialog {
                 }
 
                 // Attempt to set the rate for the specified day
-                boolean ok = system.setEnvironmentalRateForDate(propertyIndex, day, rate);
+                boolean ok = system.setEnvironmentalRateForDate(propertyId, day, rate);
 
                 if (ok) {
                     // Refresh calendar to show updated rate
@@ -221,7 +221,7 @@ public class EnvironmentalRatesDialog extends JDialog {
 
                 if (result == JOptionPane.YES_OPTION) {
                     // Apply rate to all dates in the property
-                    boolean ok = system.setEnvironmentalRateForAllDates(propertyIndex, rate);
+                    boolean ok = system.setEnvironmentalRateForAllDates(propertyId, rate);
 
                     if (ok) {
                         // Refresh calendar to show updated rates
@@ -290,7 +290,7 @@ public class EnvironmentalRatesDialog extends JDialog {
                 }
 
                 // Apply rate to the specified range
-                boolean ok = system.setEnvironmentalRateForRange(propertyIndex, start, end, rate);
+                boolean ok = system.setEnvironmentalRateForRange(propertyId, start, end, rate);
 
                 if (ok) {
                     // Refresh calendar to show updated rates
@@ -336,7 +336,7 @@ public class EnvironmentalRatesDialog extends JDialog {
 
             if (result == JOptionPane.YES_OPTION) {
                 // Apply random rates to all dates
-                system.randomizeEnvironmentalRates(propertyIndex);
+                system.randomizeEnvironmentalRates(propertyId);
                 // Refresh calendar to show new rates
                 calendarPanel.refreshAll();
                 JOptionPane.showMessageDialog(this, "All rates randomized!");
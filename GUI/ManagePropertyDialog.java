@@ -13,7 +13,7 @@ import Objects.PropertyType;
 public class ManagePropertyDialog extends JDialog {
 
     private PropertySystem system;
-    private int propertyIndex;
+    private long propertyId;
     private Property property;
     private JLabel headerLabel;
 
@@ -22,13 +22,13 @@ public class ManagePropertyDialog extends JDialog {
      *
      * @param parent        the parent dialog from which this dialog is launched
      * @param system        the PropertySystem managing the properties and business logic
-     * @param propertyIndex the index of the property to be managed
+     * @param propertyId    the ID of the property to be managed
      */
-    public ManagePropertyDialog(JDialog parent, PropertySystem system, int propertyIndex) {
+    public ManagePropertyDialog(JDialog parent, PropertySystem system, long propertyId) {
         super(parent, "Manage Property", true);
         this.system = system;
-        this.propertyIndex = propertyIndex;
-        this.property = system.getProperty(propertyIndex);
+        this.propertyId = propertyId;
+        this.property = system.getProperty(propertyId);
 
         setSize(600, 550);
         setLocationRelativeTo(parent);
@@ -108,11 +108,11 @@ public class ManagePropertyDialog extends JDialog {
 
         // Only proceed if the user entered a non-empty name (and didn't cancel)
         if (newName != null && !newName.trim().isEmpty()) {
-            boolean ok = system.changePropertyName(propertyIndex, newName.trim());
+            boolean ok = system.changePropertyName(propertyId, newName.trim());
 
             if (ok) {
                 // Refresh the property reference and update UI to show the new name
-                property = system.getProperty(propertyIndex);
+                property = system.getProperty(propertyId);
                 // Update the header label text with the new property name
                 headerLabel.setText("Managing: " + property.getName());
                 JOptionPane.showMessageDialog(this, "Name updated successfully!");
@@ -151,7 +151,7 @@ public class ManagePropertyDialog extends JDialog {
 
             if (choice > 0) {
                 PropertyType newType = PropertyType.fromChoice(choice);
-                boolean ok = system.changePropertyType(propertyIndex, newType);
+                boolean ok = system.changePropertyType(propertyId, newType);
 
                 if (ok) {
                     JOptionPane.showMessageDialog(this, "Type updated successfully!");
@@ -170,7 +170,7 @@ public class ManagePropertyDialog extends JDialog {
      */
     private void updateBasePrice() {
         // Prevent price update if the property has active reservations
-        if (system.hasReservations(propertyIndex)) {
+        if (system.hasReservations(propertyId)) {
             JOptionPane.showMessageDialog(this,
                     "Cannot update price with active reservations.",
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -194,7 +194,7 @@ public class ManagePropertyDialog extends JDialog {
                     return;
                 }
 
-                boolean ok = system.updateBasePrice(propertyIndex, price);
+                boolean ok = system.updateBasePrice(propertyId, price);
 
                 if (ok) {
                     JOptionPane.showMessageDialog(this, "Base price updated successfully!");
@@ -215,7 +215,7 @@ public class ManagePropertyDialog extends JDialog {
      * Opens the EnvironmentalRatesDialog to manage the environmental rates for all dates of this property.
      */
     private void manageEnvironmentalRates() {
-        EnvironmentalRatesDialog dialog = new EnvironmentalRatesDialog(this, system, propertyIndex);
+        EnvironmentalRatesDialog dialog = new EnvironmentalRatesDialog(this, system, propertyId);
         dialog.setVisible(true);
     }
 
@@ -225,7 +225,7 @@ public class ManagePropertyDialog extends JDialog {
      */
     private void removeProperty() {
         // Do not allow removal if there are active reservations
-        if (system.hasReservations(propertyIndex)) {
+        if (system.hasReservations(propertyId)) {
             JOptionPane.showMessageDialog(this,
                     "Cannot remove property with active reservations.",
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -240,7 +240,7 @@ public class ManagePropertyDialog extends JDialog {
                 JOptionPane.WARNING_MESSAGE);
 
         if (result == JOptionPane.YES_OPTION) {
-            boolean ok = system.removeProperty(propertyIndex);
+            boolean ok = system.removeProperty(propertyId);
 
             if (ok) {
                 JOptionPane.showMessageDialog(this, "Property removed successfully!");
@@ -102,11 +102,11 @@ public class PropertyMenuGUI extends JDialog {
      */
     private void openViewProperty() {
         // Prompt user to select a property
-        int propertyIndex = selectProperty("View Property");
+        long propertyId = selectProperty("View Property");
 
         // Only proceed if a valid property was selected
-        if (propertyIndex >= 0) {
-            ViewPropertyDialog dialog = new ViewPropertyDialog(this, system, propertyIndex);
+        if (propertyId >= 0) {
+            ViewPropertyDialog dialog = new ViewPropertyDialog(this, system, propertyId);
             dialog.setVisible(true);
         }
     }
@@ -118,11 +118,11 @@ public class PropertyMenuGUI extends JDialog {
      */
     private void openManageProperty() {
         // Prompt user to select a property
-        int propertyIndex = selectProperty("Manage Property");
+        long propertyId = selectProperty("Manage Property");
 
         // Only proceed if a valid property was selected
-        if (propertyIndex >= 0) {
-            ManagePropertyDialog dialog = new ManagePropertyDialog(this, system, propertyIndex);
+        if (propertyId >= 0) {
+            ManagePropertyDialog dialog = new ManagePropertyDialog(this, system, propertyId);
             dialog.setVisible(true);
         }
     }
@@ -132,10 +132,11 @@ public class PropertyMenuGUI extends JDialog {
      * Shows a dropdown list of all properties with their names and types.
      *
      * @param title the title for the selection dialog window
-     * @return the index of the selected property, or -1 if cancelled or no properties exist
+     * @return the ID of the selected property, or -1 if cancelled or no properties exist
      */
-    private int selectProperty(String title) {
-        int count = system.getPropertyCount();
+    private long selectProperty(String title) {
+        long[] ids = system.getPropertyIds();
+        int count = ids.length;
 
         // If there are no properties, inform the user and return -1
         if (count == 0) {
@@ -147,7 +148,7 @@ public class PropertyMenuGUI extends JDialog {
         // Build an array of property descriptions for user selection
         String[] propertyNames = new String[count];
         for (int i = 0; i < count; i++) {
-            Property p = system.getProperty(i);
+            Property p = system.getProperty(ids[i]);
             // Format: "1) Property Name (Property Type)"
             propertyNames[i] = (i + 1) + ") " + p.getName() + " (" + p.getType().getDisplayName() + ")";
         }
@@ -167,7 +168,8 @@ public class PropertyMenuGUI extends JDialog {
         }
 
         // Extract the numeric index from the selected string (e.g., "1) PropertyName ..." -> 1)
+        // and map it to the ID of that property
         String indexStr = selected.substring(0, selected.indexOf(")"));
-        return Integer.parseInt(indexStr) - 1;
+        return ids[Integer.parseInt(indexStr) - 1];
     }
 }
\ No newline at end of file
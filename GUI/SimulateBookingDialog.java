@@ -2,6 +2,7 @@ package GUI;
 
 import javax.swing.*;
 import java.awt.*;
+import System.BookingResult;
 import System.PropertySystem;
 import Objects.Property;
 import Objects.Reservation;
@@ -15,7 +16,7 @@ import java.util.Locale;
 public class SimulateBookingDialog extends JDialog {
 
     private PropertySystem system;
-    private int propertyIndex;
+    private long propertyId;
     private Property property;
     private JTextField guestField;
     private JSpinner checkInSpinner;
@@ -27,13 +28,13 @@ public class SimulateBookingDialog extends JDialog {
      *
      * @param parent the parent dialog that launched this booking dialog
      * @param system the PropertySystem containing property and reservation data
-     * @param propertyIndex the index of the property for which to create a booking
+     * @param propertyId the ID of the property for which to create a booking
      */
-    public SimulateBookingDialog(JDialog parent, PropertySystem system, int propertyIndex) {
+    public SimulateBookingDialog(JDialog parent, PropertySystem system, long propertyId) {
         super(parent, "Simulate Booking", true);
         this.system = system;
-        this.propertyIndex = propertyIndex;
-        this.property = system.getProperty(propertyIndex);
+        this.propertyId = propertyId;
+        this.property = system.getProperty(propertyId);
 
         // Set dialog size larger to accommodate calendar
         setSize(1100, 650);
@@ -161,7 +162,7 @@ public class SimulateBookingDialog extends JDialog {
 
     /**
      * Attempts to create a booking with the provided information.
-     * Validates input, checks date availability, creates the reservation,
+     * Validates input, books the whole date range in one atomic step,
      * and displays a confirmation message with price breakdown.
      */
     private void attemptBooking() {
@@ -187,26 +188,25 @@ public class SimulateBookingDialog extends JDialog {
             return;
         }
 
-        // Check if all dates in the range are available
-        boolean available = system.areDatesAvailable(propertyIndex, checkIn, checkOut);
+        // Check and book the whole range in one step
+        BookingResult result = system.tryBook(propertyId, guestName, checkIn, checkOut);
 
-        if (!available) {
+        if (result.getStatus() == BookingResult.Status.CONFLICT) {
             JOptionPane.showMessageDialog(this,
-                    "Some dates in this range are not available.",
+                    result.getMessage(),
                     "Unavailable", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        // Attempt to create the reservation
-        Reservation res = system.addReservation(propertyIndex, guestName, checkIn, checkOut);
-
-        if (res == null) {
+        if (!result.isBooked()) {
             JOptionPane.showMessageDialog(this,
                     "Unable to create reservation.",
                     "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
 
+        Reservation res = result.getReservation();
+
         // Calculate total price and nightly breakdown
         double total = res.getTotalPrice(property);
         double[] breakdown = res.getBreakdown(property);
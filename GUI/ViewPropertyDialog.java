@@ -3,9 +3,8 @@ package GUI;
 import javax.swing.*;
 import java.awt.*;
 import System.PropertySystem;
-import Objects.Property;
+import Objects.PropertyState;
 import Objects.Reservation;
-import java.util.ArrayList;
 import java.util.Locale;
 
 /**
@@ -16,8 +15,8 @@ import java.util.Locale;
 public class ViewPropertyDialog extends JDialog {
 
     private PropertySystem system;
-    private int propertyIndex;
-    private Property property;
+    private long propertyId;
+    private PropertyState property;
     private CalendarGridPanel calendarPanel;
 
     /**
@@ -26,13 +25,13 @@ public class ViewPropertyDialog extends JDialog {
      *
      * @param parent the parent dialog that launched this view
      * @param system the PropertySystem containing property data
-     * @param propertyIndex the index of the property to display
+     * @param propertyId the ID of the property to display
      */
-    public ViewPropertyDialog(JDialog parent, PropertySystem system, int propertyIndex) {
+    public ViewPropertyDialog(JDialog parent, PropertySystem system, long propertyId) {
         super(parent, "View Property", true);
         this.system = system;
-        this.propertyIndex = propertyIndex;
-        this.property = system.getProperty(propertyIndex);
+        this.propertyId = propertyId;
+        this.property = system.snapshot().getProperty(propertyId);
 
         setSize(1000, 700);
         setLocationRelativeTo(parent);
@@ -53,7 +52,7 @@ public class ViewPropertyDialog extends JDialog {
         JTabbedPane tabbedPane = new JTabbedPane();
 
         // Calendar view tab - interactive grid of all dates
-        calendarPanel = new CalendarGridPanel(property);
+        calendarPanel = new CalendarGridPanel(system, propertyId);
         JScrollPane calendarScroll = new JScrollPane(calendarPanel);
         tabbedPane.addTab("Calendar Grid", calendarScroll);
 
@@ -133,7 +132,7 @@ public class ViewPropertyDialog extends JDialog {
 
         gbc.gridx = 1;
         gbc.weightx = 1.0;
-        JLabel datesValue = new JLabel(String.valueOf(property.getAvailableDates().length));
+        JLabel datesValue = new JLabel(String.valueOf(Long.bitCount(property.getFreeDaysMask())));
         datesValue.setFont(valueFont);
         panel.add(datesValue, gbc);
 
@@ -172,9 +171,9 @@ public class ViewPropertyDialog extends JDialog {
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
         // Get all reservations for this property
-        ArrayList<Reservation> reservations = system.getReservationsForProperty(propertyIndex);
+        Reservation[] reservations = property.getReservations();
 
-        if (reservations.isEmpty()) {
+        if (reservations.length == 0) {
             // Show message when no reservations exist
             JLabel noReservationsLabel = new JLabel("No reservations for this property.",
                     SwingConstants.CENTER);
@@ -186,8 +185,8 @@ public class ViewPropertyDialog extends JDialog {
             listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
 
             // Add each reservation as a separate panel
-            for (int i = 0; i < reservations.size(); i++) {
-                Reservation r = reservations.get(i);
+            for (int i = 0; i < reservations.length; i++) {
+                Reservation r = reservations[i];
                 JPanel resPanel = createReservationPanel(r, i + 1);
                 listPanel.add(resPanel);
                 listPanel.add(Box.createRigidArea(new Dimension(0, 10)));
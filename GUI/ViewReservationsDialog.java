@@ -3,9 +3,8 @@ package GUI;
 import javax.swing.*;
 import java.awt.*;
 import System.PropertySystem;
-import Objects.Property;
+import Objects.PropertyState;
 import Objects.Reservation;
-import java.util.ArrayList;
 import java.util.Locale;
 
 /**
@@ -16,8 +15,8 @@ import java.util.Locale;
 public class ViewReservationsDialog extends JDialog {
 
     private PropertySystem system;
-    private int propertyIndex;
-    private Property property;
+    private long propertyId;
+    private PropertyState property;
 
     /**
      * Constructs a ViewReservationsDialog for displaying all property bookings.
@@ -25,13 +24,13 @@ public class ViewReservationsDialog extends JDialog {
      *
      * @param parent the parent dialog that launched this view
      * @param system the PropertySystem containing reservation data
-     * @param propertyIndex the index of the property whose reservations to display
+     * @param propertyId the ID of the property whose reservations to display
      */
-    public ViewReservationsDialog(JDialog parent, PropertySystem system, int propertyIndex) {
+    public ViewReservationsDialog(JDialog parent, PropertySystem system, long propertyId) {
         super(parent, "View Reservations", true);
         this.system = system;
-        this.propertyIndex = propertyIndex;
-        this.property = system.getProperty(propertyIndex);
+        this.propertyId = propertyId;
+        this.property = system.snapshot().getProperty(propertyId);
 
         setSize(700, 600);
         setLocationRelativeTo(parent);
@@ -47,7 +46,7 @@ public class ViewReservationsDialog extends JDialog {
         mainPanel.add(headerLabel, BorderLayout.NORTH);
 
         // Get all reservations for this property
-        ArrayList<Reservation> reservations = system.getReservationsForProperty(propertyIndex);
+        Reservation[] reservations = property.getReservations();
 
         // Create vertical list panel to hold reservation panels
         JPanel listPanel = new JPanel();
@@ -55,8 +54,8 @@ public class ViewReservationsDialog extends JDialog {
         listPanel.setBackground(Color.WHITE);
 
         // Add each reservation as a separate panel with spacing
-        for (int i = 0; i < reservations.size(); i++) {
-            Reservation r = reservations.get(i);
+        for (int i = 0; i < reservations.length; i++) {
+            Reservation r = reservations[i];
             JPanel resPanel = createReservationPanel(r, i + 1);
             listPanel.add(resPanel);
             listPanel.add(Box.createRigidArea(new Dimension(0, 10)));
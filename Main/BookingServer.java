@@ -0,0 +1,579 @@
+package Main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import Objects.Property;
+import Objects.PropertyState;
+import Objects.PropertyType;
+import Objects.Reservation;
+import System.BookingResult;
+import System.PropertySystem;
+import System.SystemSnapshot;
+
+/**
+ * The BookingServer class puts a PropertySystem on the network as a small
+ * HTTP API that speaks JSON. It uses the HTTP server built into the JDK
+ * and handles every request on its own virtual thread, or on a pooled
+ * platform thread before Java 21, so a request that waits for the
+ * mutation log does not hold up the others.
+ * Listings are read from a SystemSnapshot and single properties from
+ * their published state, so neither waits for bookings. Quotes,
+ * bookings, and cancellations go to the live system.
+ *
+ * GET    /properties?offset=0&amp;limit=100       list properties
+ * GET    /properties/{id}                     one property, its days and reservations
+ * GET    /availability?checkIn=&amp;checkOut=&amp;type=&amp;limit=  properties free for a stay
+ * GET    /quote?property=&amp;checkIn=&amp;checkOut=    price of a stay with nightly breakdown
+ * POST   /reservations                        book: {"property", "guest", "checkIn", "checkOut"}
+ * DELETE /reservations/{id}/{checkIn}         cancel the reservation checking in that day
+ *
+ * Problems are answered with a 4xx status and {"error": "..."}.
+ */
+public class BookingServer {
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BODY = 64 * 1024;
+    private static final int BACKLOG = 1024;
+
+    private PropertySystem system;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructs a BookingServer for a system. Nothing is served until
+     * start is called.
+     *
+     * @param system the system to serve
+     */
+    public BookingServer(PropertySystem system) {
+        this.system = system;
+        this.server = null;
+        this.executor = null;
+    }
+
+    /**
+     * Starts serving on a local address.
+     * Unless told otherwise on the command line, the JDK server is set to
+     * send answers without waiting to fill a packet. Otherwise the body of
+     * each small answer is held back until the client acknowledges the
+     * headers, which adds a delay to every request on a kept-alive
+     * connection.
+     *
+     * @param host the host name or address to listen on
+     * @param port the port to listen on, or 0 to pick a free one
+     * @return true if the server started; false otherwise
+     */
+    public boolean start(String host, int port) {
+        boolean started = false;
+
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+            executor = VirtualThreads.newPerTaskExecutor();
+
+            server.createContext("/properties", this::handleProperties);
+            server.createContext("/availability", this::handleAvailability);
+            server.createContext("/quote", this::handleQuote);
+            server.createContext("/reservations", this::handleReservations);
+            server.setExecutor(executor);
+            server.start();
+            started = true;
+        } catch (IOException e) {
+            System.out.println("Error: Could not listen on " + host + ":" + port + ": " + e.getMessage());
+            server = null;
+        }
+
+        return started;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port, or -1 if the server is not running
+     */
+    public int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server. Requests still running get one second to finish.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    /**
+     * Answers GET /properties with a page of properties, and
+     * GET /properties/{id} with one property.
+     *
+     * @param exchange the request
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleProperties(HttpExchange exchange) throws IOException {
+        String[] path = pathOf(exchange, "/properties");
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, error("Use GET."));
+        } else if (path.length == 0) {
+            Map<String, String> query = queryOf(exchange);
+            int offset = intOf(query.get("offset"), 0);
+            int limit = Math.min(intOf(query.get("limit"), DEFAULT_LIMIT), MAX_LIMIT);
+
+            if (offset < 0 || limit < 0) {
+                reply(exchange, 400, error("offset and limit must be numbers of at least 0."));
+            } else {
+                reply(exchange, 200, listJson(offset, limit));
+            }
+        } else {
+            long id = longOf(path[0], -1);
+            Property p = path.length == 1 && id >= 0 ? system.getProperty(id) : null;
+            PropertyState state = p == null ? null : p.getState();
+
+            if (state == null || state.getName() == null) {
+                reply(exchange, 404, error("There is no property with ID " + path[0] + "."));
+            } else {
+                reply(exchange, 200, propertyJson(id, state));
+            }
+        }
+    }
+
+    /**
+     * Answers GET /availability with the IDs of the properties that are
+     * free for a whole stay, optionally of one type (menu choice 1–4).
+     * All matches are counted, but only the first IDs up to the limit are
+     * listed.
+     *
+     * @param exchange the request
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleAvailability(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryOf(exchange);
+        int checkIn = intOf(query.get("checkIn"), -1);
+        int checkOut = intOf(query.get("checkOut"), -1);
+        int typeChoice = intOf(query.get("type"), 0);
+        int limit = Math.min(intOf(query.get("limit"), MAX_LIMIT), MAX_LIMIT);
+        PropertyType type = typeChoice == 0 ? null : PropertyType.fromChoice(typeChoice);
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, error("Use GET."));
+        } else if (!Property.isValidStay(checkIn, checkOut) || limit < 0 || (typeChoice != 0 && type == null)) {
+            reply(exchange, 400, error("Give checkIn and checkOut days from 1 to " + (Property.MAX_DAY + 1)
+                    + ", and optionally a type from 1 to 4."));
+        } else {
+            long[] ids = system.findAvailableProperties(checkIn, checkOut, type, 0, 0);
+            StringBuilder out = new StringBuilder();
+
+            out.append("{\"checkIn\":").append(checkIn).append(",\"checkOut\":").append(checkOut)
+                    .append(",\"count\":").append(ids.length).append(",\"ids\":");
+            appendArray(out, Arrays.copyOf(ids, Math.min(ids.length, limit)));
+            out.append('}');
+
+            reply(exchange, 200, out.toString());
+        }
+    }
+
+    /**
+     * Answers GET /quote with the total price of a stay and the price of
+     * each night, worked out the same way as for a reservation.
+     *
+     * @param exchange the request
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleQuote(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryOf(exchange);
+        long id = longOf(query.get("property"), -1);
+        int checkIn = intOf(query.get("checkIn"), -1);
+        int checkOut = intOf(query.get("checkOut"), -1);
+        Property p = id < 0 ? null : system.getProperty(id);
+
+        if (!exchange.getRequestMethod().equals("GET")) {
+            reply(exchange, 405, error("Use GET."));
+        } else if (p == null) {
+            reply(exchange, 404, error("There is no property with ID " + query.get("property") + "."));
+        } else if (!Property.isValidStay(checkIn, checkOut)) {
+            reply(exchange, 400, error("Give checkIn and checkOut days from 1 to " + (Property.MAX_DAY + 1) + "."));
+        } else {
+            Reservation stay = new Reservation("quote", checkIn, checkOut);
+            double[] nights = stay.getBreakdown(p);
+            StringBuilder out = new StringBuilder();
+            int i = 0;
+
+            out.append("{\"property\":").append(id).append(",\"checkIn\":").append(checkIn)
+                    .append(",\"checkOut\":").append(checkOut)
+                    .append(",\"available\":").append(p.isRangeAvailable(checkIn, checkOut))
+                    .append(",\"total\":").append(Json.money(stay.getTotalPrice(p)))
+                    .append(",\"nights\":[");
+            while (i < nights.length) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append(Json.money(nights[i]));
+                i = i + 1;
+            }
+            out.append("]}");
+
+            reply(exchange, 200, out.toString());
+        }
+    }
+
+    /**
+     * Answers POST /reservations by booking a stay, and
+     * DELETE /reservations/{id}/{checkIn} by cancelling one.
+     *
+     * @param exchange the request
+     * @throws IOException if the answer cannot be sent
+     */
+    private void handleReservations(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = pathOf(exchange, "/reservations");
+
+        if (method.equals("POST") && path.length == 0) {
+            Set<String> strings = new HashSet<String>();
+            Map<String, String> body = Json.parseObject(bodyOf(exchange), strings);
+
+            if (body == null) {
+                reply(exchange, 400, error("The body must be a JSON object."));
+            } else if (!strings.contains("guest")) {
+                reply(exchange, 400, error("guest must be a JSON string."));
+            } else {
+                book(exchange, longOf(body.get("property"), -1), body.get("guest"),
+                        intOf(body.get("checkIn"), -1), intOf(body.get("checkOut"), -1));
+            }
+        } else if (method.equals("DELETE") && path.length == 2) {
+            cancel(exchange, longOf(path[0], -1), intOf(path[1], -1));
+        } else {
+            reply(exchange, 405, error("Use POST /reservations or DELETE /reservations/{id}/{checkIn}."));
+        }
+    }
+
+    /**
+     * Books a stay and answers with the new reservation, or with the
+     * reason it could not be booked.
+     *
+     * @param exchange the request
+     * @param propertyId the property ID
+     * @param guest the guest name
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @throws IOException if the answer cannot be sent
+     */
+    private void book(HttpExchange exchange, long propertyId, String guest, int checkIn, int checkOut)
+            throws IOException {
+        BookingResult result = system.tryBook(propertyId, guest, checkIn, checkOut);
+
+        if (result.isBooked()) {
+            Property p = system.getProperty(propertyId);
+            double total = p == null ? 0 : result.getReservation().getTotalPrice(p);
+
+            reply(exchange, 201, "{\"property\":" + propertyId + ",\"guest\":" + Json.quote(guest)
+                    + ",\"checkIn\":" + checkIn + ",\"checkOut\":" + checkOut
+                    + ",\"total\":" + Json.money(total) + "}");
+        } else if (result.getStatus() == BookingResult.Status.UNKNOWN_PROPERTY) {
+            reply(exchange, 404, error(result.getMessage()));
+        } else if (result.getStatus() == BookingResult.Status.INVALID_REQUEST) {
+            reply(exchange, 400, error(result.getMessage()));
+        } else if (result.getStatus() == BookingResult.Status.NOT_SAVED) {
+            reply(exchange, 503, error(result.getMessage()));
+        } else {
+            StringBuilder out = new StringBuilder();
+            int[] nights = result.getConflictingNights();
+            long[] days = new long[nights.length];
+            int i = 0;
+
+            while (i < nights.length) {
+                days[i] = nights[i];
+                i = i + 1;
+            }
+
+            out.append("{\"error\":").append(Json.quote(result.getMessage())).append(",\"conflictingNights\":");
+            appendArray(out, days);
+            out.append('}');
+
+            reply(exchange, 409, out.toString());
+        }
+    }
+
+    /**
+     * Cancels the reservation that checks in on a given day.
+     *
+     * @param exchange the request
+     * @param propertyId the property ID
+     * @param checkIn the check-in day of the reservation
+     * @throws IOException if the answer cannot be sent
+     */
+    private void cancel(HttpExchange exchange, long propertyId, int checkIn) throws IOException {
+        Property p = propertyId < 0 ? null : system.getProperty(propertyId);
+        Reservation r = p == null ? null : p.findReservation(checkIn);
+
+        if (r != null && system.removeReservation(propertyId, r)) {
+            reply(exchange, 200, "{\"property\":" + propertyId + ",\"guest\":" + Json.quote(r.getGuestName())
+                    + ",\"checkIn\":" + r.getCheckIn() + ",\"checkOut\":" + r.getCheckOut() + ",\"cancelled\":true}");
+        } else {
+            reply(exchange, 404, error("There is no reservation checking in on that day."));
+        }
+    }
+
+    /**
+     * Writes a page of properties from one snapshot as JSON.
+     *
+     * @param offset the number of properties to skip
+     * @param limit the most properties to include
+     * @return the JSON text
+     */
+    private String listJson(int offset, int limit) {
+        SystemSnapshot view = system.snapshot();
+        long[] ids = view.getPropertyIds(offset, limit);
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+
+        out.append("{\"version\":").append(view.getVersion()).append(",\"total\":").append(view.getPropertyCount())
+                .append(",\"properties\":[");
+        while (i < ids.length) {
+            PropertyState state = view.getProperty(ids[i]);
+
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"id\":").append(ids[i]).append(",\"name\":").append(Json.quote(state.getName()))
+                    .append(",\"type\":").append(Json.quote(state.getType().getDisplayName()))
+                    .append(",\"freeDays\":").append(Long.bitCount(state.getFreeDaysMask()))
+                    .append(",\"earnings\":").append(Json.money(state.getEstimatedEarnings())).append('}');
+            i = i + 1;
+        }
+        out.append("]}");
+
+        return out.toString();
+    }
+
+    /**
+     * Writes one property with its listed days and reservations as JSON.
+     *
+     * @param id the property ID
+     * @param state the property's state
+     * @return the JSON text
+     */
+    private static String propertyJson(long id, PropertyState state) {
+        StringBuilder out = new StringBuilder();
+        Reservation[] reservations = state.getReservations();
+        long listed = state.getListedMask();
+        boolean first = true;
+        int i = 0;
+
+        out.append("{\"id\":").append(id).append(",\"name\":").append(Json.quote(state.getName()))
+                .append(",\"type\":").append(Json.quote(state.getType().getDisplayName()))
+                .append(",\"earnings\":").append(Json.money(state.getEstimatedEarnings()))
+                .append(",\"days\":[");
+        while (listed != 0) {
+            int day = Long.numberOfTrailingZeros(listed) + 1;
+
+            if (!first) {
+                out.append(',');
+            }
+            out.append("{\"day\":").append(day).append(",\"price\":").append(Json.money(state.getFinalPrice(day)))
+                    .append(",\"booked\":").append((state.getBookedMask() & (1L << (day - 1))) != 0).append('}');
+            first = false;
+            listed = listed & (listed - 1);
+        }
+        out.append("],\"reservations\":[");
+        while (i < reservations.length) {
+            Reservation r = reservations[i];
+
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"guest\":").append(Json.quote(r.getGuestName())).append(",\"checkIn\":")
+                    .append(r.getCheckIn()).append(",\"checkOut\":").append(r.getCheckOut())
+                    .append(",\"total\":").append(Json.money(r.getTotalPrice(state))).append('}');
+            i = i + 1;
+        }
+        out.append("]}");
+
+        return out.toString();
+    }
+
+    /**
+     * Sends a JSON answer and ends the exchange.
+     *
+     * @param exchange the request
+     * @param status the HTTP status code
+     * @param json the JSON body
+     * @throws IOException if the answer cannot be sent
+     */
+    private static void reply(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Builds the JSON body of an error answer.
+     *
+     * @param message the error message
+     * @return the JSON text
+     */
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(message) + "}";
+    }
+
+    /**
+     * Reads the request body as text. Bodies longer than the limit are
+     * cut off, which makes them fail to parse.
+     *
+     * @param exchange the request
+     * @return the body text
+     * @throws IOException if the body cannot be read
+     */
+    private static String bodyOf(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        String body = new String(in.readNBytes(MAX_BODY), StandardCharsets.UTF_8);
+
+        in.close();
+
+        return body;
+    }
+
+    /**
+     * Splits the part of the request path after a context into its
+     * segments.
+     *
+     * @param exchange the request
+     * @param context the context the handler was registered for
+     * @return the path segments after the context, possibly none
+     */
+    private static String[] pathOf(HttpExchange exchange, String context) {
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+
+        while (rest.startsWith("/")) {
+            rest = rest.substring(1);
+        }
+        while (rest.endsWith("/")) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+
+        return rest.isEmpty() ? new String[0] : rest.split("/");
+    }
+
+    /**
+     * Reads the query parameters of a request. A parameter given twice
+     * keeps its last value.
+     *
+     * @param exchange the request
+     * @return the parameter values by name
+     */
+    private static Map<String, String> queryOf(HttpExchange exchange) {
+        Map<String, String> values = new HashMap<String, String>();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (query != null) {
+            String[] pairs = query.split("&");
+            int i = 0;
+
+            while (i < pairs.length) {
+                int eq = pairs[i].indexOf('=');
+
+                if (eq > 0) {
+                    values.put(URLDecoder.decode(pairs[i].substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pairs[i].substring(eq + 1), StandardCharsets.UTF_8));
+                }
+                i = i + 1;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Reads a whole number, falling back to a default if it is missing or
+     * not a number.
+     *
+     * @param text the text to read, or null
+     * @param fallback the value to use if the text is not a number
+     * @return the number
+     */
+    private static int intOf(String text, int fallback) {
+        int value = fallback;
+
+        if (text != null) {
+            try {
+                value = Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                value = fallback;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Reads a property ID, falling back to a default if it is missing or
+     * not a number.
+     *
+     * @param text the text to read, or null
+     * @param fallback the value to use if the text is not a number
+     * @return the number
+     */
+    private static long longOf(String text, long fallback) {
+        long value = fallback;
+
+        if (text != null) {
+            try {
+                value = Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                value = fallback;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Appends an array of numbers as JSON.
+     *
+     * @param out the text to append to
+     * @param values the numbers
+     */
+    private static void appendArray(StringBuilder out, long[] values) {
+        int i = 0;
+
+        out.append('[');
+        while (i < values.length) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(values[i]);
+            i = i + 1;
+        }
+        out.append(']');
+    }
+}
@@ -0,0 +1,712 @@
+package Main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import Objects.Property;
+import Objects.PropertyState;
+import Objects.PropertyType;
+import Objects.Reservation;
+import System.BookingResult;
+import System.MutationLog;
+import System.PropertySystem;
+import System.SystemSnapshot;
+
+/**
+ * The HeadlessLauncher class runs the property system without any window,
+ * for use on servers. It never touches the GUI classes, so no AWT or Swing
+ * class is loaded.
+ * The system can be started from a snapshot file, a mutation log, both,
+ * or a set of generated properties. Once started, it is driven either
+ * from code through execute, or from the command line, where one command
+ * can be given after the options or many can be typed, one per line.
+ * With --http the system is also served as a JSON API by a BookingServer
+ * on localhost, and keeps being served after standard input ends.
+ *
+ * Usage: java Main.HeadlessLauncher [--snapshot FILE] [--log FILE]
+ *        [--synthetic COUNT] [--seed SEED] [--http PORT] [COMMAND...]
+ */
+public class HeadlessLauncher {
+
+    private static final int DEFAULT_LIST_LIMIT = 20;
+    private static final String HTTP_HOST = "127.0.0.1";
+
+    private String snapshotFile;
+    private String logFile;
+    private int syntheticProperties;
+    private long seed;
+    private PropertySystem system;
+    private MutationLog log;
+    private long startupMillis;
+    private int httpPort;
+    private BookingServer server;
+
+    /**
+     * Constructs a HeadlessLauncher. Nothing is loaded until start is
+     * called. If no source is given at all, the system starts with the
+     * sample properties, the same as the GUI.
+     *
+     * @param snapshotFile the snapshot file to load, or null to use none
+     * @param logFile the mutation log to replay and keep, or null to keep
+     *                no log
+     * @param syntheticProperties the number of generated properties to add
+     *                            after loading, or 0 for none
+     * @param seed the seed for the generated properties
+     */
+    public HeadlessLauncher(String snapshotFile, String logFile, int syntheticProperties, long seed) {
+        this.snapshotFile = snapshotFile;
+        this.logFile = logFile;
+        this.syntheticProperties = syntheticProperties;
+        this.seed = seed;
+        this.system = null;
+        this.log = null;
+        this.startupMillis = 0;
+        this.httpPort = -1;
+        this.server = null;
+    }
+
+    /**
+     * Asks for the system to be served over HTTP once it has started.
+     * Must be called before start.
+     *
+     * @param port the port to listen on, 0 to pick a free one, or -1 to
+     *             serve nothing
+     */
+    public void setHttpPort(int port) {
+        this.httpPort = port;
+    }
+
+    /**
+     * Builds the property system from the configured sources. The
+     * snapshot and the log are loaded first, and the generated
+     * properties are added afterwards. How long this took is kept as the
+     * startup time.
+     *
+     * @return the started system, or null if the log could not be opened
+     */
+    public PropertySystem start() {
+        long started = System.nanoTime();
+        boolean ready = true;
+
+        if (logFile != null) {
+            log = MutationLog.open(logFile);
+            if (log == null) {
+                System.out.println("Error: Could not open the log " + logFile + ".");
+                ready = false;
+            }
+        }
+
+        if (ready) {
+            system = new PropertySystem(snapshotFile, log, syntheticProperties == 0);
+
+            if (syntheticProperties > 0) {
+                populate(system, syntheticProperties, seed);
+            }
+        }
+
+        startupMillis = (System.nanoTime() - started) / 1000000;
+
+        if (system != null && httpPort >= 0) {
+            server = new BookingServer(system);
+            if (!server.start(HTTP_HOST, httpPort)) {
+                server = null;
+            }
+        }
+
+        return system;
+    }
+
+    /**
+     * Returns the started system.
+     *
+     * @return the system, or null if it has not been started
+     */
+    public PropertySystem getSystem() {
+        return system;
+    }
+
+    /**
+     * Returns how long start took.
+     *
+     * @return the startup time in milliseconds
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Runs one command against the started system and returns what it
+     * printed. Type "help" for the list of commands. Problems with the
+     * command are reported in the returned text, starting with "Error:".
+     *
+     * @param commandLine the command and its arguments, separated by spaces
+     * @return the command's output
+     */
+    public String execute(String commandLine) {
+        String[] words = commandLine.trim().split("\\s+");
+        String output;
+
+        if (system == null) {
+            output = "Error: The system has not been started.";
+        } else if (words.length - 1 < argumentCount(words[0])) {
+            output = "Error: Missing arguments for " + words[0] + ". Type help for usage.";
+        } else {
+            try {
+                switch (words[0].toLowerCase(Locale.ROOT)) {
+                    case "":
+                        output = "";
+                        break;
+                    case "help":
+                        output = commandHelp();
+                        break;
+                    case "stats":
+                        output = stats();
+                        break;
+                    case "list":
+                        output = list(words.length > 1 ? Integer.parseInt(words[1]) : DEFAULT_LIST_LIMIT);
+                        break;
+                    case "show":
+                        output = show(Long.parseLong(words[1]));
+                        break;
+                    case "find":
+                        output = find(Integer.parseInt(words[1]), Integer.parseInt(words[2]));
+                        break;
+                    case "book":
+                        output = book(Long.parseLong(words[1]), words[2],
+                                Integer.parseInt(words[3]), Integer.parseInt(words[4]));
+                        break;
+                    case "cancel":
+                        output = cancel(Long.parseLong(words[1]), Integer.parseInt(words[2]));
+                        break;
+                    case "save":
+                        output = save();
+                        break;
+                    case "simulate":
+                        output = simulate(Integer.parseInt(words[1]), Integer.parseInt(words[2]),
+                                words.length > 3 ? words[3] : "uniform",
+                                words.length > 4 && words[4].equalsIgnoreCase("virtual"));
+                        break;
+                    default:
+                        output = "Error: Unknown command \"" + words[0] + "\". Type help for the list of commands.";
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                output = "Error: Expected a number but got " + e.getMessage() + ".";
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the HTTP server.
+     *
+     * @return the server, or null if the system is not served over HTTP
+     */
+    public BookingServer getServer() {
+        return server;
+    }
+
+    /**
+     * Stops the HTTP server, waits for every logged change to be on disk,
+     * and closes the log. The system must not be changed afterwards.
+     */
+    public void close() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    /**
+     * Adds generated properties to a system. Each property gets a random
+     * type, a random set of listed days, a base price, a range of
+     * environmental rates, and a few bookings. Property i is generated
+     * from the seed and i alone, so the same seed always gives the same
+     * properties. The properties are created one at a time in order, so
+     * a system that starts out the same always gives them the same IDs;
+     * only their prices, rates, and bookings are then filled in parallel.
+     *
+     * @param system the system to fill
+     * @param count the number of properties to add
+     * @param seed the seed for the random content
+     */
+    public static void populate(PropertySystem system, int count, long seed) {
+        SplittableRandom[] randoms = new SplittableRandom[count];
+        long[] ids = new long[count];
+        int i = 0;
+
+        while (i < count) {
+            SplittableRandom random = new SplittableRandom(seed * 31 + i);
+            int[] days = new int[Property.MAX_DAY];
+            int listed = 0;
+            int day = 1;
+
+            while (day <= Property.MAX_DAY) {
+                if (random.nextInt(10) < 8 || (day == Property.MAX_DAY && listed == 0)) {
+                    days[listed] = day;
+                    listed = listed + 1;
+                }
+                day = day + 1;
+            }
+
+            int[] chosen = new int[listed];
+            System.arraycopy(days, 0, chosen, 0, listed);
+
+            randoms[i] = random;
+            ids[i] = system.createProperty("Synthetic " + seed + "-" + i,
+                    PropertyType.fromChoice(1 + random.nextInt(4)), chosen);
+            i = i + 1;
+        }
+
+        IntStream.range(0, count).parallel().forEach(n -> {
+            SplittableRandom random = randoms[n];
+            long id = ids[n];
+
+            if (id >= 0) {
+                int start = 1 + random.nextInt(Property.MAX_DAY);
+                int bookings = random.nextInt(4);
+
+                system.updateBasePrice(id, 100 + random.nextInt(49) * 100);
+                system.setEnvironmentalRateForRange(id, start, start + random.nextInt(Property.MAX_DAY - start + 1),
+                        random.nextInt(80, 121) / 100.0);
+
+                while (bookings > 0) {
+                    int checkIn = 1 + random.nextInt(Property.MAX_DAY);
+                    int checkOut = Math.min(Property.MAX_DAY + 1, checkIn + 1 + random.nextInt(4));
+                    system.tryBook(id, "Guest " + n + "-" + bookings, checkIn, checkOut);
+                    bookings = bookings - 1;
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the system from the command-line options and runs either the
+     * command given after the options or the commands typed on standard
+     * input, until "quit" or the end of the input.
+     *
+     * @param args the options, optionally followed by one command
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        StringBuilder command = new StringBuilder();
+        HeadlessLauncher launcher = fromArguments(args, command);
+
+        if (launcher == null) {
+            System.out.println(usage());
+        } else if (launcher.start() != null) {
+            System.out.println(launcher.startupLine());
+
+            if (command.length() > 0) {
+                System.out.println(launcher.execute(command.toString()));
+            } else {
+                launcher.runShell();
+            }
+
+            launcher.close();
+        }
+    }
+
+    /**
+     * Reads commands from standard input, one per line, and prints their
+     * output, until "quit" or "exit" is typed or the input ends. If the
+     * input ends while the system is served over HTTP, it goes on being
+     * served until the process is stopped.
+     */
+    private void runShell() {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        boolean running = true;
+
+        System.out.println("Type help for the list of commands.");
+
+        try {
+            while (running) {
+                System.out.print("> ");
+                System.out.flush();
+                String line = in.readLine();
+
+                if (line == null && server != null) {
+                    System.out.println("Input ended; serving until the process is stopped.");
+                    Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+                    Thread.sleep(Long.MAX_VALUE);
+                } else if (line == null || line.trim().equalsIgnoreCase("quit") || line.trim().equalsIgnoreCase("exit")) {
+                    running = false;
+                } else {
+                    String output = execute(line);
+                    if (!output.isEmpty()) {
+                        System.out.println(output);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Could not read the next command: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Builds a launcher from the command-line options. Words after the
+     * options are joined into the command to run.
+     *
+     * @param args the command-line arguments
+     * @param command filled with the command to run, if any
+     * @return the launcher, or null if an option is not valid
+     */
+    private static HeadlessLauncher fromArguments(String[] args, StringBuilder command) {
+        String snapshot = null;
+        String logName = null;
+        int synthetic = 0;
+        long seed = 1;
+        int port = -1;
+        boolean valid = true;
+        int i = 0;
+
+        try {
+            while (valid && i < args.length) {
+                String option = args[i];
+                boolean hasValue = i + 1 < args.length;
+
+                if (command.length() == 0 && option.equals("--snapshot") && hasValue) {
+                    snapshot = args[i + 1];
+                    i = i + 1;
+                } else if (command.length() == 0 && option.equals("--log") && hasValue) {
+                    logName = args[i + 1];
+                    i = i + 1;
+                } else if (command.length() == 0 && option.equals("--synthetic") && hasValue) {
+                    synthetic = Integer.parseInt(args[i + 1]);
+                    valid = synthetic >= 0;
+                    i = i + 1;
+                } else if (command.length() == 0 && option.equals("--seed") && hasValue) {
+                    seed = Long.parseLong(args[i + 1]);
+                    i = i + 1;
+                } else if (command.length() == 0 && option.equals("--http") && hasValue) {
+                    port = Integer.parseInt(args[i + 1]);
+                    valid = port >= 0;
+                    i = i + 1;
+                } else if (command.length() == 0 && option.startsWith("--")) {
+                    System.out.println("Error: Unknown or incomplete option " + option + ".");
+                    valid = false;
+                } else {
+                    if (command.length() > 0) {
+                        command.append(' ');
+                    }
+                    command.append(option);
+                }
+                i = i + 1;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Expected a number but got " + e.getMessage() + ".");
+            valid = false;
+        }
+
+        HeadlessLauncher launcher = null;
+
+        if (valid) {
+            launcher = new HeadlessLauncher(snapshot, logName, synthetic, seed);
+            launcher.setHttpPort(port);
+        }
+
+        return launcher;
+    }
+
+    /**
+     * Returns how to call the launcher from the command line.
+     *
+     * @return the usage text
+     */
+    private static String usage() {
+        return "Usage: java Main.HeadlessLauncher [--snapshot FILE] [--log FILE] "
+                + "[--synthetic COUNT] [--seed SEED] [--http PORT] [COMMAND...]\n" + commandHelp();
+    }
+
+    /**
+     * Returns the list of commands understood by execute.
+     *
+     * @return the command help text
+     */
+    private static String commandHelp() {
+        return "Commands:\n"
+                + "  stats                            counts, earnings, startup time, and memory\n"
+                + "  list [LIMIT]                     the first properties\n"
+                + "  show ID                          one property and its reservations\n"
+                + "  find CHECKIN CHECKOUT            properties free for a stay\n"
+                + "  book ID GUEST CHECKIN CHECKOUT   book a stay\n"
+                + "  cancel ID CHECKIN                cancel the reservation checking in that day\n"
+                + "  save                             write the snapshot file\n"
+                + "  simulate SECONDS WORKERS [uniform|zipf|bursty] [virtual]\n"
+                + "                                   put booking load on the system and report it\n"
+                + "  quit                             stop";
+    }
+
+    /**
+     * Returns the line printed once the system has started.
+     *
+     * @return the startup summary
+     */
+    private String startupLine() {
+        String line = String.format(Locale.US, "Started headless in %d ms with %d properties. %s",
+                startupMillis, system.getPropertyCount(), system.getRecoveryStats());
+
+        if (server != null) {
+            line = line + "\nServing the booking API on http://" + HTTP_HOST + ":" + server.getPort() + "/";
+        }
+
+        return line;
+    }
+
+    /**
+     * Returns how many arguments a command needs at least.
+     *
+     * @param command the command name
+     * @return the number of required arguments
+     */
+    private static int argumentCount(String command) {
+        int count = 0;
+
+        switch (command.toLowerCase(Locale.ROOT)) {
+            case "show":
+                count = 1;
+                break;
+            case "find":
+            case "cancel":
+            case "simulate":
+                count = 2;
+                break;
+            case "book":
+                count = 4;
+                break;
+            default:
+                count = 0;
+                break;
+        }
+
+        return count;
+    }
+
+    /**
+     * Describes the whole system: its size, earnings, startup time, and
+     * memory use.
+     *
+     * @return the statistics
+     */
+    private String stats() {
+        Runtime runtime = Runtime.getRuntime();
+        long usedBytes = runtime.totalMemory() - runtime.freeMemory();
+
+        return String.format(Locale.US, "Properties: %d%nPortfolio earnings: PHP %.2f%nStartup: %d ms%n"
+                        + "Heap used: %d MB of %d MB%n%s",
+                system.getPropertyCount(), system.getPortfolioEarnings(), startupMillis,
+                usedBytes / (1024 * 1024), runtime.maxMemory() / (1024 * 1024), system.getRecoveryStats());
+    }
+
+    /**
+     * Lists the first properties in ID order, read from one snapshot.
+     *
+     * @param limit the most properties to list
+     * @return one line per property
+     */
+    private String list(int limit) {
+        SystemSnapshot view = system.snapshot();
+        long[] ids = view.getPropertyIds();
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+
+        while (i < ids.length && i < limit) {
+            if (i > 0) {
+                out.append('\n');
+            }
+            out.append(summary(ids[i], view.getProperty(ids[i])));
+            i = i + 1;
+        }
+
+        if (ids.length > limit) {
+            out.append(String.format("%n... and %d more", ids.length - limit));
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Describes one property and its reservations.
+     *
+     * @param propertyId the property ID
+     * @return the description
+     */
+    private String show(long propertyId) {
+        PropertyState state = system.snapshot().getProperty(propertyId);
+        String output;
+
+        if (state == null) {
+            output = "Error: There is no property with ID " + propertyId + ".";
+        } else {
+            StringBuilder out = new StringBuilder(summary(propertyId, state));
+            Reservation[] reservations = state.getReservations();
+            int i = 0;
+
+            while (i < reservations.length) {
+                Reservation r = reservations[i];
+                out.append(String.format(Locale.US, "%n  %s: Day %d to Day %d, PHP %.2f",
+                        r.getGuestName(), r.getCheckIn(), r.getCheckOut(), r.getTotalPrice(state)));
+                i = i + 1;
+            }
+
+            output = out.toString();
+        }
+
+        return output;
+    }
+
+    /**
+     * Finds the properties that are free for a whole stay.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the number of matches and the first of their IDs
+     */
+    private String find(int checkIn, int checkOut) {
+        long[] ids = system.findAvailableProperties(checkIn, checkOut);
+        StringBuilder out = new StringBuilder(ids.length + " properties are free from Day " + checkIn
+                + " to Day " + checkOut + ".");
+        int i = 0;
+
+        while (i < ids.length && i < DEFAULT_LIST_LIMIT) {
+            out.append(i == 0 ? "\n" : " ").append(ids[i]);
+            i = i + 1;
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Books a stay.
+     *
+     * @param propertyId the property ID
+     * @param guest the guest name
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the booked reservation, or the reason the booking failed
+     */
+    private String book(long propertyId, String guest, int checkIn, int checkOut) {
+        BookingResult result = system.tryBook(propertyId, guest, checkIn, checkOut);
+        String output;
+
+        if (result.isBooked()) {
+            output = String.format(Locale.US, "Booked %s from Day %d to Day %d for PHP %.2f.", guest, checkIn,
+                    checkOut, system.getProperty(propertyId).getStayPrice(checkIn, checkOut));
+        } else {
+            output = "Error: " + result.getMessage();
+        }
+
+        return output;
+    }
+
+    /**
+     * Cancels the reservation that checks in on a given day.
+     *
+     * @param propertyId the property ID
+     * @param checkIn the check-in day of the reservation
+     * @return a confirmation, or the reason nothing was cancelled
+     */
+    private String cancel(long propertyId, int checkIn) {
+        String output = "Error: There is no reservation checking in on Day " + checkIn + ".";
+        Property p = system.getProperty(propertyId);
+
+        if (p == null) {
+            output = "Error: There is no property with ID " + propertyId + ".";
+        } else {
+            Reservation r = p.findReservation(checkIn);
+
+            if (r != null && system.removeReservation(propertyId, r)) {
+                output = "Cancelled the reservation of " + r.getGuestName() + ".";
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Writes the configured snapshot file.
+     *
+     * @return a confirmation, or the reason nothing was written
+     */
+    private String save() {
+        String output;
+
+        if (snapshotFile == null) {
+            output = "Error: No snapshot file was given; start with --snapshot FILE.";
+        } else if (system.writeSnapshot(snapshotFile)) {
+            output = "Wrote " + snapshotFile + ".";
+        } else {
+            output = "Error: Could not write " + snapshotFile + ".";
+        }
+
+        return output;
+    }
+
+    /**
+     * Runs the load simulator against the system with the default
+     * operation mix. A fifth of the time, up to one second, is used to
+     * warm up. The simulator undoes its own bookings and rate changes
+     * afterwards, but it is refused while a log is attached, so its load
+     * never reaches durable data.
+     *
+     * @param seconds the length of the run in seconds
+     * @param workers the number of workers
+     * @param traffic the traffic pattern: uniform, zipf, or bursty
+     * @param virtualThreads true to run the workers on virtual threads
+     * @return the load report, or the reason nothing was run
+     */
+    private String simulate(int seconds, int workers, String traffic, boolean virtualThreads) {
+        LoadSimulator simulator = new LoadSimulator(system);
+        String output = null;
+
+        if (log != null) {
+            output = "Error: The load would be written to the log; start without --log to simulate.";
+        } else if (seconds < 1 || workers < 1) {
+            output = "Error: The run must last at least 1 second with at least 1 worker.";
+        } else if (traffic.equalsIgnoreCase("uniform")) {
+            simulator.setTraffic(LoadSimulator.Traffic.UNIFORM);
+        } else if (traffic.equalsIgnoreCase("zipf")) {
+            simulator.setTraffic(LoadSimulator.Traffic.ZIPF);
+        } else if (traffic.equalsIgnoreCase("bursty")) {
+            simulator.setTraffic(LoadSimulator.Traffic.BURSTY);
+        } else {
+            output = "Error: The traffic must be uniform, zipf, or bursty.";
+        }
+
+        if (output == null) {
+            long millis = seconds * 1000L;
+            simulator.setWorkers(workers, virtualThreads);
+            simulator.setDuration(millis, Math.min(1000, millis / 5));
+
+            LoadReport report = simulator.run();
+            output = report == null ? "Error: There are no properties to put load on." : report.toString();
+        }
+
+        return output;
+    }
+
+    /**
+     * Describes a property in one line.
+     *
+     * @param propertyId the property ID
+     * @param state the property's state
+     * @return the description
+     */
+    private static String summary(long propertyId, PropertyState state) {
+        return String.format(Locale.US, "%d  %s  (%s)  %d free days  earnings PHP %.2f", propertyId,
+                state.getName(), state.getType().getDisplayName(), Long.bitCount(state.getFreeDaysMask()),
+                state.getEstimatedEarnings());
+    }
+}
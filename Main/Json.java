@@ -0,0 +1,261 @@
+package Main;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Json class holds the little JSON handling the booking API needs.
+ * It can quote strings and format numbers for output, and it can read a
+ * flat JSON object whose values are strings, numbers, booleans, or null.
+ * Nested objects and arrays are not read, since no request needs them.
+ */
+class Json {
+
+    /**
+     * Quotes a string as a JSON string, escaping every character JSON
+     * does not allow as is.
+     *
+     * @param text the string, or null
+     * @return the quoted string, or null written as a JSON literal
+     */
+    static String quote(String text) {
+        String result = "null";
+
+        if (text != null) {
+            StringBuilder out = new StringBuilder(text.length() + 2);
+            int i = 0;
+
+            out.append('"');
+            while (i < text.length()) {
+                char c = text.charAt(i);
+
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c == '\n') {
+                    out.append("\\n");
+                } else if (c == '\r') {
+                    out.append("\\r");
+                } else if (c == '\t') {
+                    out.append("\\t");
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+                i = i + 1;
+            }
+            out.append('"');
+
+            result = out.toString();
+        }
+
+        return result;
+    }
+
+    /**
+     * Formats an amount of money as a JSON number with two decimals.
+     *
+     * @param amount the amount
+     * @return the formatted number
+     */
+    static String money(double amount) {
+        return String.format(Locale.US, "%.2f", amount);
+    }
+
+    /**
+     * Reads a flat JSON object. String values are unescaped; numbers,
+     * booleans, and null are kept as the text they were written as, so
+     * the names of the members whose values were strings are added to a
+     * set, which tells the string "42" from the number 42.
+     *
+     * @param text the JSON text
+     * @param strings the set to add the names of string members to
+     * @return the values by name, or null if the text is not a flat object
+     */
+    static Map<String, String> parseObject(String text, Set<String> strings) {
+        Reader reader = new Reader(text);
+        Map<String, String> values = reader.readObject(strings);
+
+        if (values != null && !reader.atEnd()) {
+            values = null;
+        }
+
+        return values;
+    }
+
+    /**
+     * The Reader class walks through JSON text one character at a time.
+     * Every read method returns null when the text does not match.
+     */
+    private static final class Reader {
+
+        private final String text;
+        private int pos;
+
+        /**
+         * Constructs a Reader at the start of the text.
+         *
+         * @param text the JSON text
+         */
+        Reader(String text) {
+            this.text = text;
+            this.pos = 0;
+        }
+
+        /**
+         * Reads an object of names and simple values.
+         *
+         * @param strings the set to add the names of string members to
+         * @return the values by name, or null if the object is malformed
+         */
+        Map<String, String> readObject(Set<String> strings) {
+            Map<String, String> values = new HashMap<String, String>();
+            boolean valid = skipTo('{');
+            boolean more = valid && !skipTo('}');
+
+            while (valid && more) {
+                String name = readString();
+                String value = null;
+
+                valid = name != null && skipTo(':');
+                if (valid) {
+                    skipSpace();
+                    if (pos < text.length() && text.charAt(pos) == '"') {
+                        strings.add(name);
+                    } else {
+                        strings.remove(name);
+                    }
+                    value = readValue();
+                    valid = value != null;
+                }
+                if (valid) {
+                    values.put(name, value);
+                    more = skipTo(',');
+                    valid = more || skipTo('}');
+                }
+            }
+
+            return valid ? values : null;
+        }
+
+        /**
+         * Checks whether only white space is left.
+         *
+         * @return true if the whole text has been read
+         */
+        boolean atEnd() {
+            skipSpace();
+            return pos == text.length();
+        }
+
+        /**
+         * Reads a string, number, boolean, or null value.
+         *
+         * @return the value, or null if there is no simple value here
+         */
+        private String readValue() {
+            String value = null;
+
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == '"') {
+                value = readString();
+            } else {
+                int start = pos;
+
+                while (pos < text.length() && "+-.0123456789eEtruefalsn".indexOf(text.charAt(pos)) >= 0) {
+                    pos = pos + 1;
+                }
+                if (pos > start) {
+                    value = text.substring(start, pos);
+                }
+            }
+
+            return value;
+        }
+
+        /**
+         * Reads a quoted string and undoes its escapes.
+         *
+         * @return the string, or null if there is no well-formed string here
+         */
+        private String readString() {
+            StringBuilder out = new StringBuilder();
+            boolean valid = skipTo('"');
+            boolean closed = false;
+
+            while (valid && !closed) {
+                if (pos >= text.length()) {
+                    valid = false;
+                } else {
+                    char c = text.charAt(pos);
+                    pos = pos + 1;
+
+                    if (c == '"') {
+                        closed = true;
+                    } else if (c != '\\') {
+                        out.append(c);
+                    } else if (pos >= text.length()) {
+                        valid = false;
+                    } else {
+                        char e = text.charAt(pos);
+                        pos = pos + 1;
+
+                        if (e == 'n') {
+                            out.append('\n');
+                        } else if (e == 'r') {
+                            out.append('\r');
+                        } else if (e == 't') {
+                            out.append('\t');
+                        } else if (e == 'b') {
+                            out.append('\b');
+                        } else if (e == 'f') {
+                            out.append('\f');
+                        } else if (e == 'u' && pos + 4 <= text.length()) {
+                            try {
+                                out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                                pos = pos + 4;
+                            } catch (NumberFormatException ex) {
+                                valid = false;
+                            }
+                        } else if (e == '"' || e == '\\' || e == '/') {
+                            out.append(e);
+                        } else {
+                            valid = false;
+                        }
+                    }
+                }
+            }
+
+            return valid ? out.toString() : null;
+        }
+
+        /**
+         * Skips white space and then one expected character.
+         *
+         * @param expected the character to skip
+         * @return true if the character was there and skipped
+         */
+        private boolean skipTo(char expected) {
+            boolean found = false;
+
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == expected) {
+                pos = pos + 1;
+                found = true;
+            }
+
+            return found;
+        }
+
+        /**
+         * Skips white space.
+         */
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos = pos + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package Main;
+
+/**
+ * The LatencyHistogram class counts latencies in buckets whose width grows
+ * with the value, so any latency from one nanosecond to hours is kept
+ * with about 6% precision in a fixed, small array. Recording a value is a
+ * few bit operations and no allocation, so a worker can record every
+ * operation it times.
+ * A histogram is not safe to share between threads: each thread records
+ * into its own and the histograms are merged afterwards.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR_LIMIT + 60 * SUB_BUCKETS;
+
+    private long[] counts;
+    private long count;
+    private long max;
+    private long total;
+
+    /**
+     * Constructs an empty LatencyHistogram.
+     */
+    public LatencyHistogram() {
+        counts = new long[BUCKETS];
+        count = 0;
+        max = 0;
+        total = 0;
+    }
+
+    /**
+     * Records one latency. Negative values are counted as 0.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = bucketOf(value);
+
+        counts[bucket] = counts[bucket] + 1;
+        count = count + 1;
+        total = total + value;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds every latency recorded in another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        int i = 0;
+
+        while (i < BUCKETS) {
+            counts[i] = counts[i] + other.counts[i];
+            i = i + 1;
+        }
+
+        count = count + other.count;
+        total = total + other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the largest latency recorded, exactly.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the latency below which a given share of the recorded
+     * latencies fall. The answer is the upper edge of the bucket the
+     * percentile falls in, capped at the maximum.
+     *
+     * @param percentile the percentile (0–100)
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long result = 0;
+
+        if (count > 0) {
+            long wanted = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+            long seen = 0;
+            int i = 0;
+
+            while (seen < wanted) {
+                seen = seen + counts[i];
+                i = i + 1;
+            }
+
+            result = Math.min(max, upperEdgeOf(i - 1));
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the bucket of a latency. Values below 32 get a bucket each;
+     * larger values are grouped by their highest bit into 16 buckets per
+     * power of two.
+     *
+     * @param value the latency, at least 0
+     * @return the bucket index
+     */
+    private static int bucketOf(long value) {
+        int bucket;
+
+        if (value < LINEAR_LIMIT) {
+            bucket = (int) value;
+        } else {
+            int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+            bucket = LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Returns the largest latency that falls in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket's upper edge in nanoseconds
+     */
+    private static long upperEdgeOf(int bucket) {
+        long edge;
+
+        if (bucket < LINEAR_LIMIT) {
+            edge = bucket;
+        } else {
+            int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+            long mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+            edge = ((mantissa + 1) << shift) - 1;
+        }
+
+        return edge;
+    }
+}
@@ -0,0 +1,254 @@
+package Main;
+
+import java.util.Locale;
+
+/**
+ * The LoadReport class holds the outcome of one LoadSimulator run: how
+ * many operations of each kind were done in the measured time, how many
+ * bookings lost to a conflict, and the latency of every operation.
+ */
+public class LoadReport {
+
+    private String traffic;
+    private int workers;
+    private boolean virtualThreads;
+    private long millis;
+    private long bookingAttempts;
+    private long bookings;
+    private long conflicts;
+    private long cancelAttempts;
+    private long cancellations;
+    private long rateChanges;
+    private LatencyHistogram bookingLatency;
+    private LatencyHistogram cancelLatency;
+    private LatencyHistogram rateLatency;
+
+    /**
+     * Constructs an empty LoadReport. The counts are filled in by the
+     * simulator as it merges the results of its workers.
+     *
+     * @param traffic the name of the traffic pattern
+     * @param workers the number of workers
+     * @param virtualThreads true if the workers ran on virtual threads
+     */
+    LoadReport(String traffic, int workers, boolean virtualThreads) {
+        this.traffic = traffic;
+        this.workers = workers;
+        this.virtualThreads = virtualThreads;
+        this.millis = 0;
+        this.bookingLatency = new LatencyHistogram();
+        this.cancelLatency = new LatencyHistogram();
+        this.rateLatency = new LatencyHistogram();
+    }
+
+    /**
+     * Adds the counts of one worker to the report.
+     *
+     * @param attempts the bookings tried
+     * @param booked the bookings made
+     * @param conflicted the bookings that lost to a conflict
+     * @param cancelTries the cancellations tried
+     * @param cancelled the reservations cancelled
+     * @param rates the rate changes made
+     */
+    void addCounts(long attempts, long booked, long conflicted, long cancelTries, long cancelled, long rates) {
+        bookingAttempts = bookingAttempts + attempts;
+        bookings = bookings + booked;
+        conflicts = conflicts + conflicted;
+        cancelAttempts = cancelAttempts + cancelTries;
+        cancellations = cancellations + cancelled;
+        rateChanges = rateChanges + rates;
+    }
+
+    /**
+     * Sets the length of the measured part of the run.
+     *
+     * @param millis the measured time in milliseconds
+     */
+    void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * Returns the name of the traffic pattern.
+     *
+     * @return the traffic pattern
+     */
+    public String getTraffic() {
+        return traffic;
+    }
+
+    /**
+     * Returns the number of workers that ran.
+     *
+     * @return the number of workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Returns the length of the measured part of the run.
+     *
+     * @return the measured time in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Returns the number of operations of all kinds done while measuring.
+     *
+     * @return the number of operations
+     */
+    public long getOperations() {
+        return bookingAttempts + cancelAttempts + rateChanges;
+    }
+
+    /**
+     * Returns the number of operations done per second while measuring.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return millis == 0 ? 0 : getOperations() * 1000.0 / millis;
+    }
+
+    /**
+     * Returns the number of bookings tried.
+     *
+     * @return the booking attempts
+     */
+    public long getBookingAttempts() {
+        return bookingAttempts;
+    }
+
+    /**
+     * Returns the number of bookings made.
+     *
+     * @return the bookings
+     */
+    public long getBookings() {
+        return bookings;
+    }
+
+    /**
+     * Returns the number of bookings that lost because a night was
+     * already reserved or not listed.
+     *
+     * @return the conflicts
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Returns the share of booking attempts that ended in a conflict.
+     *
+     * @return the conflict rate (0–1)
+     */
+    public double getConflictRate() {
+        return bookingAttempts == 0 ? 0 : (double) conflicts / bookingAttempts;
+    }
+
+    /**
+     * Returns the number of cancellations tried.
+     *
+     * @return the cancellation attempts
+     */
+    public long getCancelAttempts() {
+        return cancelAttempts;
+    }
+
+    /**
+     * Returns the number of reservations cancelled.
+     *
+     * @return the cancellations
+     */
+    public long getCancellations() {
+        return cancellations;
+    }
+
+    /**
+     * Returns the number of rate changes made.
+     *
+     * @return the rate changes
+     */
+    public long getRateChanges() {
+        return rateChanges;
+    }
+
+    /**
+     * Returns the latencies of the booking attempts.
+     *
+     * @return the booking latencies
+     */
+    public LatencyHistogram getBookingLatency() {
+        return bookingLatency;
+    }
+
+    /**
+     * Returns the latencies of the cancellation attempts.
+     *
+     * @return the cancellation latencies
+     */
+    public LatencyHistogram getCancelLatency() {
+        return cancelLatency;
+    }
+
+    /**
+     * Returns the latencies of the rate changes.
+     *
+     * @return the rate-change latencies
+     */
+    public LatencyHistogram getRateLatency() {
+        return rateLatency;
+    }
+
+    /**
+     * Returns the latencies of all operations together.
+     *
+     * @return a new histogram of every latency
+     */
+    public LatencyHistogram getLatency() {
+        LatencyHistogram all = new LatencyHistogram();
+
+        all.add(bookingLatency);
+        all.add(cancelLatency);
+        all.add(rateLatency);
+
+        return all;
+    }
+
+    /**
+     * Returns a summary of the run with one line per kind of operation.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s traffic, %d %s workers, %d ms: %d operations, %.0f ops/s%n"
+                        + "Bookings: %d of %d made, %d conflicts (%.1f%%)%n"
+                        + "Cancellations: %d of %d made%nRate changes: %d%n%s%n%s%n%s%n%s",
+                traffic, workers, virtualThreads ? "virtual" : "platform", millis, getOperations(),
+                getThroughput(), bookings, bookingAttempts, conflicts, getConflictRate() * 100,
+                cancellations, cancelAttempts, rateChanges,
+                latencyLine("book", bookingLatency), latencyLine("cancel", cancelLatency),
+                latencyLine("rate", rateLatency), latencyLine("all", getLatency()));
+    }
+
+    /**
+     * Describes the latency percentiles of one kind of operation in
+     * microseconds.
+     *
+     * @param label the kind of operation
+     * @param latency its latencies
+     * @return one line of percentiles
+     */
+    private static String latencyLine(String label, LatencyHistogram latency) {
+        return String.format(Locale.US, "Latency %-6s us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f",
+                label, latency.getPercentile(50) / 1000.0, latency.getPercentile(90) / 1000.0,
+                latency.getPercentile(99) / 1000.0, latency.getPercentile(99.9) / 1000.0,
+                latency.getMax() / 1000.0);
+    }
+}
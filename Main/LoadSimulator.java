@@ -0,0 +1,610 @@
+package Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import Objects.Property;
+import Objects.PropertyState;
+import Objects.RatePlan;
+import Objects.Reservation;
+import System.BookingResult;
+import System.PropertySystem;
+
+/**
+ * The LoadSimulator class drives a PropertySystem with many workers at
+ * once to measure how it holds up under load. Each worker repeatedly
+ * books a stay, cancels a reservation, or changes the environmental rates
+ * of a range of days, in proportions set by the operation mix, on
+ * properties chosen by the traffic pattern:
+ * UNIFORM picks every property equally often; ZIPF makes a few hot
+ * properties take most of the traffic; BURSTY sends short bursts of
+ * operations at a small window of neighbouring properties, with a pause
+ * between bursts.
+ * Workers run on platform threads or on virtual threads, where the JDK
+ * has them. Every operation is timed, and after a warm-up the run is
+ * summed up in a LoadReport with the throughput, the booking conflict
+ * rate, and latency percentiles.
+ * The simulator leaves the system as it found it. A worker only cancels
+ * reservations it booked itself, and cancels whatever it still holds
+ * when the run ends. The rates of every property it changes are saved
+ * before the first change and put back afterwards. Changes made by
+ * others during the run are never undone, except rate changes to a
+ * property the simulator also changed.
+ */
+public class LoadSimulator {
+
+    /**
+     * The ways of choosing which property each operation goes to.
+     */
+    public enum Traffic {
+        /** Every property is equally likely. */
+        UNIFORM,
+        /** Properties are chosen by a Zipf distribution over a shuffled order. */
+        ZIPF,
+        /** Bursts of operations go to a small window of properties. */
+        BURSTY
+    }
+
+    private static final int MAX_NIGHTS = 4;
+    private static final int BURST_WINDOW = 64;
+
+    private PropertySystem system;
+    private int workers;
+    private boolean virtualThreads;
+    private long durationMillis;
+    private long warmupMillis;
+    private int bookWeight;
+    private int cancelWeight;
+    private int rateWeight;
+    private Traffic traffic;
+    private double zipfExponent;
+    private int burstOperations;
+    private long burstPauseMillis;
+    private long seed;
+    private Map<Long, double[]> savedRates;
+
+    /**
+     * Constructs a LoadSimulator with the default settings: one platform
+     * thread per processor, a 1-second warm-up and a 5-second run, 70%
+     * bookings, 20% cancellations, and 10% rate changes, spread evenly
+     * over all properties.
+     *
+     * @param system the system to put under load
+     */
+    public LoadSimulator(PropertySystem system) {
+        this.system = system;
+        this.workers = Runtime.getRuntime().availableProcessors();
+        this.virtualThreads = false;
+        this.durationMillis = 5000;
+        this.warmupMillis = 1000;
+        this.bookWeight = 70;
+        this.cancelWeight = 20;
+        this.rateWeight = 10;
+        this.traffic = Traffic.UNIFORM;
+        this.zipfExponent = 1.0;
+        this.burstOperations = 200;
+        this.burstPauseMillis = 20;
+        this.seed = 1;
+        this.savedRates = new ConcurrentHashMap<Long, double[]>();
+    }
+
+    /**
+     * Sets the number of workers and the kind of thread they run on.
+     * Virtual threads allow many more workers than processors. Before
+     * Java 21 there are none, and platform threads are used instead.
+     *
+     * @param workers the number of workers (at least 1)
+     * @param virtualThreads true to run on virtual threads; false for
+     *                       platform threads
+     */
+    public void setWorkers(int workers, boolean virtualThreads) {
+        this.workers = Math.max(1, workers);
+        this.virtualThreads = virtualThreads && VirtualThreads.isAvailable();
+    }
+
+    /**
+     * Sets how long the run lasts. Operations in the warm-up are done but
+     * not counted.
+     *
+     * @param durationMillis the measured time in milliseconds
+     * @param warmupMillis the warm-up time in milliseconds
+     */
+    public void setDuration(long durationMillis, long warmupMillis) {
+        this.durationMillis = Math.max(1, durationMillis);
+        this.warmupMillis = Math.max(0, warmupMillis);
+    }
+
+    /**
+     * Sets the operation mix as relative weights. A weight of 0 turns an
+     * operation off; at least one weight must be above 0.
+     *
+     * @param book the weight of bookings
+     * @param cancel the weight of cancellations
+     * @param rate the weight of rate changes
+     * @return true if the mix was set; false if it is not valid
+     */
+    public boolean setMix(int book, int cancel, int rate) {
+        boolean valid = book >= 0 && cancel >= 0 && rate >= 0 && book + cancel + rate > 0;
+
+        if (valid) {
+            this.bookWeight = book;
+            this.cancelWeight = cancel;
+            this.rateWeight = rate;
+        } else {
+            System.out.println("Error: The operation weights must not be negative and must not all be 0.");
+        }
+
+        return valid;
+    }
+
+    /**
+     * Sets the traffic pattern.
+     *
+     * @param traffic the traffic pattern
+     */
+    public void setTraffic(Traffic traffic) {
+        this.traffic = traffic;
+    }
+
+    /**
+     * Sets the exponent of the Zipf distribution. Larger exponents put
+     * more of the traffic on the hottest properties; 0 is uniform.
+     *
+     * @param exponent the exponent (at least 0)
+     */
+    public void setZipfExponent(double exponent) {
+        this.zipfExponent = Math.max(0, exponent);
+    }
+
+    /**
+     * Sets the shape of the bursts of the BURSTY pattern.
+     *
+     * @param operations the number of operations in each burst
+     * @param pauseMillis the pause after each burst in milliseconds
+     */
+    public void setBursts(int operations, long pauseMillis) {
+        this.burstOperations = Math.max(1, operations);
+        this.burstPauseMillis = Math.max(0, pauseMillis);
+    }
+
+    /**
+     * Sets the seed the workers' random choices are drawn from.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the simulation and waits for it to end. The properties that
+     * exist when the run starts are the ones the traffic goes to. Once
+     * the run is measured, the workers' leftover bookings are cancelled
+     * and the changed rates are put back.
+     *
+     * @return the report, or null if the system has no properties
+     */
+    public LoadReport run() {
+        long[] ids = system.getPropertyIds();
+        LoadReport report = null;
+
+        if (ids.length == 0) {
+            System.out.println("Error: There are no properties to put load on.");
+        } else {
+            SplittableRandom random = new SplittableRandom(seed);
+            double[] zipf = traffic == Traffic.ZIPF ? zipfCdf(ids.length, zipfExponent) : null;
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Worker> started = new ArrayList<Worker>();
+            List<Thread> threads = new ArrayList<Thread>();
+            int i = 0;
+
+            shuffle(ids, random);
+
+            while (i < workers) {
+                Worker w = new Worker(i, ids, zipf, random.split(), ready);
+                started.add(w);
+                threads.add(VirtualThreads.unstarted(w, "load-" + i, virtualThreads));
+                i = i + 1;
+            }
+
+            long measureFrom = System.nanoTime() + warmupMillis * 1000000;
+            long end = measureFrom + durationMillis * 1000000;
+
+            i = 0;
+            while (i < workers) {
+                started.get(i).setWindow(measureFrom, end);
+                threads.get(i).start();
+                i = i + 1;
+            }
+            ready.countDown();
+
+            report = new LoadReport(traffic.name().toLowerCase(), workers, virtualThreads);
+            i = 0;
+            while (i < workers) {
+                joinQuietly(threads.get(i));
+                started.get(i).addTo(report);
+                i = i + 1;
+            }
+            report.setMillis((Math.min(end, System.nanoTime()) - measureFrom) / 1000000);
+
+            i = 0;
+            while (i < workers) {
+                started.get(i).cancelAll();
+                i = i + 1;
+            }
+            restoreRates();
+        }
+
+        return report;
+    }
+
+    /**
+     * Saves the rates of a property before the simulator first changes
+     * them. Only the first call for a property saves anything, and other
+     * workers wait for it, so the saved rates are never ones the
+     * simulator set.
+     *
+     * @param id the property ID
+     */
+    private void saveRates(long id) {
+        savedRates.computeIfAbsent(id, key -> {
+            Property p = system.getProperty(key);
+            PropertyState state = p == null ? null : p.getState();
+            return state == null ? null : state.getRates().clone();
+        });
+    }
+
+    /**
+     * Puts back the saved rates of every property the simulator changed
+     * and forgets them.
+     */
+    private void restoreRates() {
+        for (Map.Entry<Long, double[]> saved : savedRates.entrySet()) {
+            RatePlan plan = new RatePlan();
+            double[] rates = saved.getValue();
+            int day = 1;
+
+            while (day <= rates.length) {
+                plan.setRate(day, rates[day - 1]);
+                day = day + 1;
+            }
+
+            system.applyRatePlan(plan, new long[] { saved.getKey() });
+        }
+
+        savedRates.clear();
+    }
+
+    /**
+     * Waits for a thread to end, going on waiting if interrupted and
+     * passing the interrupt on afterwards.
+     *
+     * @param thread the thread to wait for
+     */
+    private static void joinQuietly(Thread thread) {
+        boolean interrupted = false;
+        boolean done = false;
+
+        while (!done) {
+            try {
+                thread.join();
+                done = true;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Puts the IDs in a random order, so the hottest Zipf ranks and the
+     * burst windows do not always fall on the oldest properties.
+     *
+     * @param ids the IDs to shuffle in place
+     * @param random the source of randomness
+     */
+    private static void shuffle(long[] ids, SplittableRandom random) {
+        int i = ids.length - 1;
+
+        while (i > 0) {
+            int j = random.nextInt(i + 1);
+            long swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+            i = i - 1;
+        }
+    }
+
+    /**
+     * Builds the cumulative distribution of a Zipf distribution, where
+     * rank k (from 0) has weight 1 / (k + 1) to the power of the exponent.
+     *
+     * @param n the number of ranks
+     * @param exponent the exponent
+     * @return the cumulative share of every rank, ending at 1
+     */
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        int k = 0;
+
+        while (k < n) {
+            sum = sum + 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+            k = k + 1;
+        }
+
+        k = 0;
+        while (k < n) {
+            cdf[k] = cdf[k] / sum;
+            k = k + 1;
+        }
+
+        return cdf;
+    }
+
+    /**
+     * The Worker class is one source of load. It keeps its own counts
+     * and latency histograms, so workers never share anything but the
+     * system under test.
+     */
+    private final class Worker implements Runnable {
+
+        private final String guest;
+        private final long[] ids;
+        private final double[] zipf;
+        private final SplittableRandom random;
+        private final CountDownLatch ready;
+        private final List<Long> heldIds;
+        private final List<Reservation> held;
+        private long measureFrom;
+        private long end;
+        private long bookingAttempts;
+        private long bookings;
+        private long conflicts;
+        private long cancelAttempts;
+        private long cancellations;
+        private long rateChanges;
+        private LatencyHistogram bookingLatency;
+        private LatencyHistogram cancelLatency;
+        private LatencyHistogram rateLatency;
+
+        /**
+         * Constructs a Worker.
+         *
+         * @param number the worker number, used in its guest name
+         * @param ids the property IDs to choose from
+         * @param zipf the Zipf distribution over the IDs, or null
+         * @param random the worker's own source of randomness
+         * @param ready the latch all workers start on together
+         */
+        Worker(int number, long[] ids, double[] zipf, SplittableRandom random, CountDownLatch ready) {
+            this.guest = "Load Guest " + number;
+            this.ids = ids;
+            this.zipf = zipf;
+            this.random = random;
+            this.ready = ready;
+            this.heldIds = new ArrayList<Long>();
+            this.held = new ArrayList<Reservation>();
+            this.bookingLatency = new LatencyHistogram();
+            this.cancelLatency = new LatencyHistogram();
+            this.rateLatency = new LatencyHistogram();
+        }
+
+        /**
+         * Sets when counting starts and when the worker stops.
+         *
+         * @param measureFrom the System.nanoTime at which counting starts
+         * @param end the System.nanoTime at which the worker stops
+         */
+        void setWindow(long measureFrom, long end) {
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        /**
+         * Waits for the start signal and then does operations until the
+         * end of the run.
+         */
+        @Override
+        public void run() {
+            int total = bookWeight + cancelWeight + rateWeight;
+            int burstLeft = burstOperations;
+            int windowStart = random.nextInt(ids.length);
+            long now;
+
+            try {
+                ready.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            now = System.nanoTime();
+            while (now < end && !Thread.currentThread().isInterrupted()) {
+                if (traffic == Traffic.BURSTY && burstLeft == 0) {
+                    pause();
+                    burstLeft = burstOperations;
+                    windowStart = random.nextInt(ids.length);
+                }
+
+                long id = pick(windowStart);
+                int choice = random.nextInt(total);
+                long began = System.nanoTime();
+
+                if (choice < bookWeight) {
+                    book(id, began >= measureFrom);
+                } else if (choice < bookWeight + cancelWeight) {
+                    cancel(began >= measureFrom);
+                } else {
+                    changeRates(id, began >= measureFrom);
+                }
+
+                burstLeft = burstLeft - 1;
+                now = System.nanoTime();
+            }
+        }
+
+        /**
+         * Chooses the property for the next operation.
+         *
+         * @param windowStart the first index of the current burst window
+         * @return the property ID
+         */
+        private long pick(int windowStart) {
+            int index;
+
+            if (traffic == Traffic.ZIPF) {
+                index = Arrays.binarySearch(zipf, random.nextDouble());
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                index = Math.min(index, ids.length - 1);
+            } else if (traffic == Traffic.BURSTY) {
+                index = (windowStart + random.nextInt(Math.min(BURST_WINDOW, ids.length))) % ids.length;
+            } else {
+                index = random.nextInt(ids.length);
+            }
+
+            return ids[index];
+        }
+
+        /**
+         * Tries to book a random stay of one to four nights.
+         *
+         * @param id the property ID
+         * @param counted true if the operation falls in the measured time
+         */
+        private void book(long id, boolean counted) {
+            int checkIn = 1 + random.nextInt(Property.MAX_DAY);
+            int checkOut = Math.min(Property.MAX_DAY + 1, checkIn + 1 + random.nextInt(MAX_NIGHTS));
+            long began = System.nanoTime();
+            BookingResult result = system.tryBook(id, guest, checkIn, checkOut);
+            long took = System.nanoTime() - began;
+
+            if (result.isBooked()) {
+                heldIds.add(id);
+                held.add(result.getReservation());
+            }
+
+            if (counted) {
+                bookingAttempts = bookingAttempts + 1;
+                if (result.isBooked()) {
+                    bookings = bookings + 1;
+                } else if (result.getStatus() == BookingResult.Status.CONFLICT) {
+                    conflicts = conflicts + 1;
+                }
+                bookingLatency.record(took);
+            }
+        }
+
+        /**
+         * Cancels one of the reservations this worker booked and still
+         * holds, chosen at random, so no other guest's booking is ever
+         * touched. The traffic pattern is not used: a cancellation goes to
+         * the property of the chosen booking. Holding no booking still
+         * counts as an attempt.
+         *
+         * @param counted true if the operation falls in the measured time
+         */
+        private void cancel(boolean counted) {
+            long began = System.nanoTime();
+            boolean cancelled = false;
+
+            if (!held.isEmpty()) {
+                int k = random.nextInt(held.size());
+                int last = held.size() - 1;
+                long id = heldIds.get(k);
+                Reservation r = held.get(k);
+
+                heldIds.set(k, heldIds.get(last));
+                held.set(k, held.get(last));
+                heldIds.remove(last);
+                held.remove(last);
+
+                cancelled = system.removeReservation(id, r);
+            }
+
+            long took = System.nanoTime() - began;
+
+            if (counted) {
+                cancelAttempts = cancelAttempts + 1;
+                if (cancelled) {
+                    cancellations = cancellations + 1;
+                }
+                cancelLatency.record(took);
+            }
+        }
+
+        /**
+         * Sets one random environmental rate on a random range of days.
+         *
+         * @param id the property ID
+         * @param counted true if the operation falls in the measured time
+         */
+        private void changeRates(long id, boolean counted) {
+            int start = 1 + random.nextInt(Property.MAX_DAY);
+            int last = start + random.nextInt(Property.MAX_DAY - start + 1);
+            double rate = random.nextInt(80, 121) / 100.0;
+
+            saveRates(id);
+
+            long began = System.nanoTime();
+            system.setEnvironmentalRateForRange(id, start, last, rate);
+
+            long took = System.nanoTime() - began;
+
+            if (counted) {
+                rateChanges = rateChanges + 1;
+                rateLatency.record(took);
+            }
+        }
+
+        /**
+         * Cancels every reservation this worker still holds. Must only be
+         * called after the worker has finished.
+         */
+        void cancelAll() {
+            int i = 0;
+
+            while (i < held.size()) {
+                system.removeReservation(heldIds.get(i), held.get(i));
+                i = i + 1;
+            }
+
+            heldIds.clear();
+            held.clear();
+        }
+
+        /**
+         * Waits between two bursts.
+         */
+        private void pause() {
+            try {
+                Thread.sleep(burstPauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Adds this worker's counts and latencies to a report. Must only
+         * be called after the worker has finished.
+         *
+         * @param report the report to add to
+         */
+        void addTo(LoadReport report) {
+            report.addCounts(bookingAttempts, bookings, conflicts, cancelAttempts, cancellations, rateChanges);
+            report.getBookingLatency().add(bookingLatency);
+            report.getCancelLatency().add(cancelLatency);
+            report.getRateLatency().add(rateLatency);
+        }
+    }
+}
@@ -2,9 +2,11 @@ package Main;
 
 import javax.swing.*;
 import java.awt.*;
+import java.nio.file.Paths;
 
 import GUI.BookingMenuGUI;
 import GUI.PropertyMenuGUI;
+import System.MutationLog;
 import System.PropertySystem;
 
 
@@ -13,20 +15,59 @@ import System.PropertySystem;
  * The main window for the Green Property Exchange System GUI.
  * Contains the main menu with buttons to access Property and Booking sections.
  * Serves as the entry point for the entire application interface.
+ * By default the system lives in memory only and starts from the sample
+ * properties. Given a data directory, it keeps a mutation log and a
+ * snapshot there, picks up from them on the next start, and shows how it
+ * was recovered in a status line at the bottom of the window.
  */
 public class MainFrame extends JFrame {
 
+    private static final String LOG_FILE = "properties.log";
+    private static final String SNAPSHOT_FILE = "properties.snapshot";
+
     private PropertySystem system;
     private JPanel mainPanel;
+    private JLabel statusLabel;
+
+    /**
+     * Constructs the MainFrame with an in-memory system holding the
+     * sample properties. Nothing is written to disk.
+     */
+    public MainFrame() {
+        this(null);
+    }
 
     /**
      * Constructs the MainFrame and initializes the GUI components.
      * Sets up the main menu for property and booking management.
-     * Initializes the PropertySystem with sample data.
+     * With a data directory, the PropertySystem is rebuilt from the
+     * snapshot and mutation log kept there, or starts with sample data if
+     * neither holds anything yet.
+     *
+     * @param dataDirectory the directory for the log and snapshot, or null
+     *                      to keep everything in memory
      */
-    public MainFrame() {
-        // Initialize core system logic
-        system = new PropertySystem();
+    public MainFrame(String dataDirectory) {
+        String status = "Data is kept in memory only.";
+
+        if (dataDirectory == null) {
+            system = new PropertySystem();
+        } else {
+            String snapshotFile = Paths.get(dataDirectory, SNAPSHOT_FILE).toString();
+            MutationLog log = MutationLog.open(Paths.get(dataDirectory, LOG_FILE).toString());
+
+            if (log == null) {
+                system = new PropertySystem();
+                status = "Error: Could not open the log in " + dataDirectory + "; data is kept in memory only.";
+            } else {
+                // Initialize core system logic, replaying changes made since the last snapshot
+                system = new PropertySystem(snapshotFile, log);
+                status = system.getRecoveryStats().toString();
+
+                // Take a fresh snapshot so the next start has less to replay
+                system.writeSnapshotInBackground(snapshotFile);
+            }
+        }
 
         // Setup frame properties
         setTitle("Green Property Exchange System");
@@ -46,6 +87,12 @@ public class MainFrame extends JFrame {
         JPanel menuPanel = createMenuPanel();
         mainPanel.add(menuPanel, BorderLayout.CENTER);
 
+        // Add status line at the bottom
+        statusLabel = new JLabel(status);
+        statusLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        mainPanel.add(statusLabel, BorderLayout.SOUTH);
+
         add(mainPanel);
     }
 
@@ -185,12 +232,15 @@ public class MainFrame extends JFrame {
     /**
      * The entry point of the application, launching the main GUI window.
      * Ensures the GUI is created on the Event Dispatch Thread.
+     * Usage: java Main.MainFrame [DATA_DIRECTORY]
      *
-     * @param args the command-line arguments (unused)
+     * @param args an optional directory to keep the log and snapshot in
      */
     public static void main(String[] args) {
+        String dataDirectory = args.length > 0 ? args[0] : null;
+
         SwingUtilities.invokeLater(() -> {
-            MainFrame frame = new MainFrame();
+            MainFrame frame = new MainFrame(dataDirectory);
             frame.setVisible(true);
         });
     }
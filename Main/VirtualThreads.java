@@ -0,0 +1,80 @@
+package Main;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The VirtualThreads class starts tasks on virtual threads when the JDK
+ * has them, which is from Java 21 on, and on platform threads otherwise.
+ * The virtual-thread factories are looked up by reflection, so the code
+ * still compiles and runs on Java 17.
+ */
+class VirtualThreads {
+
+    /**
+     * Checks whether the running JDK can start virtual threads.
+     *
+     * @return true if virtual threads are available; false otherwise
+     */
+    static boolean isAvailable() {
+        boolean available = true;
+
+        try {
+            Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            available = false;
+        }
+
+        return available;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread, or
+     * on a pooled platform thread where virtual threads are not available.
+     *
+     * @return the executor
+     */
+    static ExecutorService newPerTaskExecutor() {
+        ExecutorService executor;
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            executor = Executors.newCachedThreadPool();
+        }
+
+        return executor;
+    }
+
+    /**
+     * Creates a thread that is not started yet: a virtual one if asked for
+     * and available, otherwise a platform thread with the given name.
+     *
+     * @param task the task the thread runs
+     * @param name the name of the thread
+     * @param virtual true to ask for a virtual thread
+     * @return the unstarted thread
+     */
+    static Thread unstarted(Runnable task, String name, boolean virtual) {
+        Thread thread = null;
+
+        if (virtual) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Method create = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+                thread = (Thread) create.invoke(builder, task);
+                thread.setName(name);
+            } catch (ReflectiveOperationException e) {
+                thread = null;
+            }
+        }
+
+        if (thread == null) {
+            thread = new Thread(task, name);
+        }
+
+        return thread;
+    }
+}
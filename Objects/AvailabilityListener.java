@@ -0,0 +1,29 @@
+package Objects;
+
+/**
+ * The AvailabilityListener interface is told when a property's nights are
+ * booked or freed, so that an index of free days can follow the property.
+ * Calls arrive from booking threads without any lock held, so
+ * implementations must be safe to call from many threads at once.
+ * Calls about the same nights are not ordered between threads: when a
+ * cancellation races a new booking of its nights, daysFreed may arrive
+ * after daysBooked. A listener must therefore treat what it is told as a
+ * hint and not as the exact state of the calendar.
+ */
+public interface AvailabilityListener {
+
+    /**
+     * Called after nights are reserved and before the reservation is
+     * published.
+     *
+     * @param days the nights that were reserved (day N is bit N - 1)
+     */
+    void daysBooked(long days);
+
+    /**
+     * Called after nights are freed.
+     *
+     * @param days the nights that became free (day N is bit N - 1)
+     */
+    void daysFreed(long days);
+}
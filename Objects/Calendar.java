@@ -0,0 +1,693 @@
+package Objects;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The Calendar class stores the day data of a property's availability
+ * calendar in column form. Base prices and environmental rates are kept
+ * in primitive arrays, while the listed and reserved status of every
+ * slot is kept in bit masks. Date objects are only created as views over
+ * a slot when a caller needs one.
+ * A prefix sum of price times rate over the listed slots is cached so the
+ * total of any range of slots is a single subtraction. The cache is
+ * dropped whenever a price, rate, or listing changes and is rebuilt on
+ * the next range query.
+ * The total of price times rate over the reserved slots is kept up to date
+ * on every change, and each change is reported to the owning property.
+ * The owner is also told after every change of any kind, so it can drop
+ * the copies of its state it has handed out.
+ * Every public method takes the read or write side of a lock. A calendar
+ * owned by a property shares that property's lock, so a property and its
+ * calendar change together.
+ * The reserved slots are kept as packed bits in an Occupancy. tryBook and
+ * tryUnbook set and clear a range with a compare-and-swap loop under the
+ * read lock, so bookings and cancellations on the same calendar do not
+ * wait for each other; only price, rate, and listing changes take the
+ * write lock.
+ */
+public class Calendar {
+
+    /**
+     * The most slots a calendar can have: one per bit of its masks.
+     */
+    public static final int MAX_SLOTS = 64;
+
+    private int size;
+    private double[] prices;
+    private double[] rates;
+    private long listedMask;
+    private Occupancy booked;
+    private volatile double[] prefixTotals;
+    private DoubleAdder bookedTotal;
+    private Property owner;
+    private ReadWriteLock lock;
+
+    /**
+     * Constructs an empty Calendar with the given number of slots.
+     * No slot is listed at first.
+     *
+     * @param size the number of slots (0–64)
+     */
+    public Calendar(int size) {
+        this(size, null);
+    }
+
+    /**
+     * Constructs an empty Calendar that reports changes of its reserved
+     * total to the given property and shares the property's lock.
+     *
+     * @param size the number of slots (0–64)
+     * @param owner the property that owns this calendar, or null
+     * @throws IllegalArgumentException if the size does not fit in a mask
+     */
+    Calendar(int size, Property owner) {
+        if (size < 0 || size > MAX_SLOTS) {
+            throw new IllegalArgumentException("A calendar has 0 to " + MAX_SLOTS + " slots, not " + size + ".");
+        }
+
+        this.size = size;
+        this.prices = new double[size];
+        this.rates = new double[size];
+        this.listedMask = 0L;
+        this.booked = new Occupancy();
+        this.prefixTotals = null;
+        this.bookedTotal = new DoubleAdder();
+        this.owner = owner;
+        this.lock = owner != null ? owner.getLock() : new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Returns the number of slots in this calendar.
+     *
+     * @return the calendar size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Lists a slot with the given price, rate, and reservation status.
+     *
+     * @param slot the slot to list
+     * @param price the base price of the slot
+     * @param rate the environmental rate of the slot
+     * @param reserved true if the slot starts out reserved
+     */
+    public void list(int slot, double price, double rate, boolean reserved) {
+        lock.writeLock().lock();
+        try {
+            double before = countedValue(slot);
+
+            prices[slot] = price;
+            rates[slot] = rate;
+            listedMask = listedMask | bit(slot);
+            prefixTotals = null;
+
+            if (reserved) {
+                booked.set(booked.get() | bit(slot));
+            } else {
+                booked.set(booked.get() & ~bit(slot));
+            }
+
+            updateBookedTotal(bookedTotal.sum() + countedValue(slot) - before);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a slot from the listing and clears its reservation status.
+     *
+     * @param slot the slot to unlist
+     */
+    public void unlist(int slot) {
+        lock.writeLock().lock();
+        try {
+            double before = countedValue(slot);
+
+            listedMask = listedMask & ~bit(slot);
+            booked.set(booked.get() & ~bit(slot));
+            prefixTotals = null;
+
+            updateBookedTotal(bookedTotal.sum() - before);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a slot is listed.
+     *
+     * @param slot the slot to check
+     * @return true if the slot is listed; false otherwise
+     */
+    public boolean isListed(int slot) {
+        lock.readLock().lock();
+        try {
+            return slot >= 0 && slot < size && (listedMask & bit(slot)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the base price of a slot.
+     *
+     * @param slot the slot to read
+     * @return the base price
+     */
+    public double getPrice(int slot) {
+        lock.readLock().lock();
+        try {
+            return prices[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a new base price for a slot. No validation is done here.
+     *
+     * @param slot the slot to update
+     * @param price the new base price
+     */
+    public void setPrice(int slot, double price) {
+        lock.writeLock().lock();
+        try {
+            double before = countedValue(slot);
+
+            prices[slot] = price;
+            prefixTotals = null;
+
+            updateBookedTotal(bookedTotal.sum() + countedValue(slot) - before);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the environmental rate of a slot.
+     *
+     * @param slot the slot to read
+     * @return the environmental rate
+     */
+    public double getRate(int slot) {
+        lock.readLock().lock();
+        try {
+            return rates[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a new environmental rate for a slot. No validation is done here.
+     *
+     * @param slot the slot to update
+     * @param rate the new environmental rate
+     */
+    public void setRate(int slot, double rate) {
+        lock.writeLock().lock();
+        try {
+            double before = countedValue(slot);
+
+            rates[slot] = rate;
+            prefixTotals = null;
+
+            updateBookedTotal(bookedTotal.sum() + countedValue(slot) - before);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores new environmental rates for every listed slot in a mask in
+     * one step. No validation is done here. The prefix cache and the
+     * reserved total are updated once for the whole change.
+     *
+     * @param mask the slots to update
+     * @param slotRates the new rates, indexed by slot
+     */
+    public void setRates(long mask, double[] slotRates) {
+        lock.writeLock().lock();
+        try {
+            long remaining = mask & listedMask;
+
+            while (remaining != 0) {
+                int slot = Long.numberOfTrailingZeros(remaining);
+                rates[slot] = slotRates[slot];
+                remaining = remaining & (remaining - 1);
+            }
+
+            prefixTotals = null;
+
+            updateBookedTotal(sumOf(booked.get() & listedMask));
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a slot is reserved.
+     *
+     * @param slot the slot to check
+     * @return true if the slot is reserved; false otherwise
+     */
+    public boolean isBooked(int slot) {
+        lock.readLock().lock();
+        try {
+            return (booked.get() & bit(slot)) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets or clears the reservation status of a single slot.
+     *
+     * @param slot the slot to update
+     * @param booked true to reserve the slot; false to free it
+     */
+    public void setBooked(int slot, boolean booked) {
+        if (booked) {
+            book(bit(slot));
+        } else {
+            unbook(bit(slot));
+        }
+    }
+
+    /**
+     * Returns the mask of listed slots. Bit n stands for slot n.
+     *
+     * @return the listed-slots mask
+     */
+    public long getListedMask() {
+        lock.readLock().lock();
+        try {
+            return listedMask;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the mask of reserved slots. Bit n stands for slot n.
+     *
+     * @return the booked-slots mask
+     */
+    public long getBookedMask() {
+        lock.readLock().lock();
+        try {
+            return booked.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks every slot in the mask as reserved.
+     *
+     * @param mask the slots to reserve
+     */
+    public void book(long mask) {
+        lock.writeLock().lock();
+        try {
+            double added = sumOf(mask & listedMask & ~booked.get());
+
+            booked.set(booked.get() | mask);
+
+            updateBookedTotal(bookedTotal.sum() + added);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks every slot in the mask as available.
+     *
+     * @param mask the slots to free
+     */
+    public void unbook(long mask) {
+        lock.writeLock().lock();
+        try {
+            double removed = sumOf(mask & listedMask & booked.get());
+
+            booked.set(booked.get() & ~mask);
+
+            updateBookedTotal(bookedTotal.sum() - removed);
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reserves the slots from fromSlot up to, but not including, toSlot in
+     * one atomic step, but only if all of them are listed and free. The
+     * reserved bits are set with a compare-and-swap loop under the read
+     * lock, so two bookings of the same calendar never both succeed for
+     * the same slot and neither has to wait for the other.
+     *
+     * @param fromSlot the first slot of the range
+     * @param toSlot the slot just past the end of the range
+     * @return 0 if the slots were reserved; otherwise the mask of slots
+     *         that are unlisted or already reserved
+     */
+    public long tryBook(int fromSlot, int toSlot) {
+        lock.readLock().lock();
+        try {
+            long mask = rangeOf(fromSlot, toSlot);
+            long conflicts = mask & ~listedMask;
+            boolean done = conflicts != 0;
+
+            while (!done) {
+                if (booked.trySet(mask)) {
+                    done = true;
+                } else {
+                    conflicts = mask & booked.get();
+                    done = conflicts != 0;
+                }
+            }
+
+            if (conflicts == 0) {
+                addToBookedTotal(sumOf(mask));
+                stateChanged();
+            }
+
+            return conflicts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Frees the slots from fromSlot up to, but not including, toSlot with
+     * a compare-and-swap loop under the read lock. The caller must own the
+     * range through an earlier successful tryBook.
+     *
+     * @param fromSlot the first slot of the range
+     * @param toSlot the slot just past the end of the range
+     */
+    public void tryUnbook(int fromSlot, int toSlot) {
+        lock.readLock().lock();
+        try {
+            long mask = rangeOf(fromSlot, toSlot);
+
+            booked.clear(mask);
+            addToBookedTotal(-sumOf(mask & listedMask));
+            stateChanged();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the base prices of every slot into an array.
+     *
+     * @param into the array to fill, at least as long as the calendar
+     */
+    void copyPrices(double[] into) {
+        lock.readLock().lock();
+        try {
+            System.arraycopy(prices, 0, into, 0, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the environmental rates of every slot into an array.
+     *
+     * @param into the array to fill, at least as long as the calendar
+     */
+    void copyRates(double[] into) {
+        lock.readLock().lock();
+        try {
+            System.arraycopy(rates, 0, into, 0, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole content of the calendar in one step.
+     * The reserved total is computed again from the new content.
+     *
+     * @param listed the listed slots
+     * @param reserved the reserved slots
+     * @param slotPrices the base price of every slot
+     * @param slotRates the environmental rate of every slot
+     */
+    void restore(long listed, long reserved, double[] slotPrices, double[] slotRates) {
+        lock.writeLock().lock();
+        try {
+            System.arraycopy(slotPrices, 0, prices, 0, size);
+            System.arraycopy(slotRates, 0, rates, 0, size);
+            listedMask = listed & rangeOf(0, size);
+            booked.set(reserved & rangeOf(0, size));
+            prefixTotals = null;
+
+            updateBookedTotal(sumOf(booked.get() & listedMask));
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the same base price on every slot.
+     *
+     * @param price the new base price
+     */
+    public void setAllPrices(double price) {
+        lock.writeLock().lock();
+        try {
+            int i = 0;
+
+            while (i < size) {
+                prices[i] = price;
+                i = i + 1;
+            }
+
+            prefixTotals = null;
+
+            updateBookedTotal(sumOf(booked.get() & listedMask));
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total of price times environmental rate over every
+     * reserved slot. The type multiplier is not applied.
+     * The total is kept up to date as slots change, so no scan is needed.
+     *
+     * @return the total of the reserved slots
+     */
+    public double getBookedTotal() {
+        lock.readLock().lock();
+        try {
+            return bookedTotal.sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds up price times environmental rate over the slots from
+     * fromSlot up to, but not including, toSlot. Unlisted slots count as 0.
+     * The type multiplier is not applied.
+     *
+     * @param fromSlot the first slot of the range
+     * @param toSlot the slot just past the end of the range
+     * @return the total of the range
+     */
+    public double getRangeTotal(int fromSlot, int toSlot) {
+        double[] prefix = getPrefixTotals();
+        return prefix[toSlot] - prefix[fromSlot];
+    }
+
+    /**
+     * Returns the cached prefix sums of price times rate over the listed
+     * slots, building them first if a change dropped them. Entry n holds
+     * the total of slots 0 to n - 1. A built array is never changed, since
+     * a change drops it and the next call builds a new one, so it may be
+     * kept and shared. It is filled before it is published, so readers
+     * that rebuild it at the same time under the read lock never see a
+     * half-built cache.
+     *
+     * @return the prefix sums
+     */
+    double[] getPrefixTotals() {
+        lock.readLock().lock();
+        try {
+            double[] prefix = prefixTotals;
+
+            if (prefix == null) {
+                prefix = prefixOf(listedMask, prices, rates, size);
+                prefixTotals = prefix;
+            }
+
+            return prefix;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Computes the prefix sums of price times rate over the listed slots
+     * of a set of columns. Entry n holds the total of slots 0 to n - 1.
+     *
+     * @param listed the listed slots
+     * @param slotPrices the base price of every slot
+     * @param slotRates the environmental rate of every slot
+     * @param slots the number of slots
+     * @return the new prefix sums
+     */
+    static double[] prefixOf(long listed, double[] slotPrices, double[] slotRates, int slots) {
+        double[] prefix = new double[slots + 1];
+        int i = 0;
+
+        while (i < slots) {
+            double night = 0;
+
+            if ((listed & bit(i)) != 0) {
+                night = slotPrices[i] * slotRates[i];
+            }
+
+            prefix[i + 1] = prefix[i] + night;
+            i = i + 1;
+        }
+
+        return prefix;
+    }
+
+    /**
+     * Returns what a slot adds to the reserved total: price times rate
+     * if the slot is listed and reserved, 0 otherwise.
+     *
+     * @param slot the slot to check
+     * @return the slot's share of the reserved total
+     */
+    private double countedValue(int slot) {
+        double value = 0;
+
+        if ((listedMask & booked.get() & bit(slot)) != 0) {
+            value = prices[slot] * rates[slot];
+        }
+
+        return value;
+    }
+
+    /**
+     * Adds up price times environmental rate over the slots in a mask.
+     *
+     * @param mask the slots to add up
+     * @return the total of those slots
+     */
+    private double sumOf(long mask) {
+        return sumOf(mask, prices, rates);
+    }
+
+    /**
+     * Adds up price times rate over the slots in a mask of a set of
+     * columns.
+     *
+     * @param mask the slots to add up
+     * @param slotPrices the base price of every slot
+     * @param slotRates the environmental rate of every slot
+     * @return the total of the slots
+     */
+    static double sumOf(long mask, double[] slotPrices, double[] slotRates) {
+        double total = 0;
+        long remaining = mask;
+
+        while (remaining != 0) {
+            int slot = Long.numberOfTrailingZeros(remaining);
+            total = total + slotPrices[slot] * slotRates[slot];
+            remaining = remaining & (remaining - 1);
+        }
+
+        return total;
+    }
+
+    /**
+     * Stores a new reserved total and reports the change to the owner.
+     * Only called with the write lock held.
+     * When nothing is reserved the total is reset to exactly 0 so that
+     * rounding errors cannot build up.
+     *
+     * @param total the new reserved total
+     */
+    private void updateBookedTotal(double total) {
+        double before = bookedTotal.sum();
+        double after = total;
+
+        if ((booked.get() & listedMask) == 0) {
+            after = 0;
+        }
+
+        bookedTotal.reset();
+        bookedTotal.add(after);
+
+        if (owner != null && after != before) {
+            owner.bookedTotalChanged(after - before);
+        }
+    }
+
+    /**
+     * Adds a change to the reserved total and reports it to the owner.
+     * Safe to call from many threads holding the read lock.
+     *
+     * @param delta the change in the reserved total
+     */
+    private void addToBookedTotal(double delta) {
+        bookedTotal.add(delta);
+
+        if (owner != null) {
+            owner.bookedTotalChanged(delta);
+        }
+    }
+
+    /**
+     * Tells the owner that the content of the calendar has changed.
+     * Called at the end of every change while the lock is still held.
+     */
+    private void stateChanged() {
+        if (owner != null) {
+            owner.stateChanged();
+        }
+    }
+
+    /**
+     * Returns the mask of the slots from fromSlot up to, but not
+     * including, toSlot.
+     *
+     * @param fromSlot the first slot of the range
+     * @param toSlot the slot just past the end of the range
+     * @return the bits of the range
+     */
+    private static long rangeOf(int fromSlot, int toSlot) {
+        long upper = toSlot >= 64 ? -1L : ~(-1L << toSlot);
+        return (-1L << fromSlot) & upper;
+    }
+
+    /**
+     * Returns the mask bit that stands for a single slot.
+     *
+     * @param slot the slot number
+     * @return the bit for that slot
+     */
+    private static long bit(int slot) {
+        return 1L << slot;
+    }
+}
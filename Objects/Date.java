@@ -3,15 +3,40 @@ package Objects;
 
 /**
  * The Date class represents a specific day of a month in a property's
- * availability calendar. It stores the day number, a base price, an
- * environmental impact rate, and the reservation status.
+ * availability calendar. It gives access to the day number, a base price,
+ * an environmental impact rate, and the reservation status.
+ * A Date built on its own keeps its values in plain fields. A Date
+ * obtained from a property has no values of its own: it is a lightweight
+ * view of that property's day, which lives in a Calendar slot.
  */
 public class Date {
 
+    /**
+     * The base price a new date starts with.
+     */
+    static final double DEFAULT_PRICE = 1500.0;
+
+    /**
+     * The environmental rate a new date starts with.
+     */
+    static final double DEFAULT_RATE = 1.0;
+
+    /**
+     * The lowest environmental rate a date can have.
+     */
+    public static final double MIN_RATE = 0.80;
+
+    /**
+     * The highest environmental rate a date can have.
+     */
+    public static final double MAX_RATE = 1.20;
+
     private int day;
+    private Calendar calendar;
+    private int slot;
     private double price;
-    private boolean isReserved;
-    private double environmentalRate;
+    private double rate;
+    private boolean reserved;
 
     /**
      * Constructs a Date object with a specific day.
@@ -23,9 +48,28 @@ public class Date {
      */
     public Date(int day) {
         this.day = day;
-        this.price = 1500.0;
-        this.isReserved = false;
-        this.environmentalRate = 1.0;
+        this.calendar = null;
+        this.slot = -1;
+        this.price = DEFAULT_PRICE;
+        this.rate = DEFAULT_RATE;
+        this.reserved = false;
+    }
+
+    /**
+     * Constructs a Date that views a slot of an existing calendar.
+     * Changes made through this Date are written to the calendar.
+     *
+     * @param calendar the calendar holding the day's data
+     * @param slot the slot of the day in the calendar
+     * @param day the day of the month (1–30)
+     */
+    Date(Calendar calendar, int slot, int day) {
+        this.day = day;
+        this.calendar = calendar;
+        this.slot = slot;
+        this.price = 0.0;
+        this.rate = 0.0;
+        this.reserved = false;
     }
 
     /**
@@ -44,7 +88,7 @@ public class Date {
      * @return the base price per night
      */
     public double getPrice() {
-        return price;
+        return calendar == null ? price : calendar.getPrice(slot);
     }
 
     /**
@@ -61,7 +105,11 @@ public class Date {
         }
 
         if (!isInvalid) {
-            this.price = price;
+            if (calendar == null) {
+                this.price = price;
+            } else {
+                calendar.setPrice(slot, price);
+            }
         }
     }
 
@@ -72,7 +120,7 @@ public class Date {
      * @return the environmental impact rate
      */
     public double getEnvironmentalRate() {
-        return environmentalRate;
+        return calendar == null ? rate : calendar.getRate(slot);
     }
 
     /**
@@ -84,13 +132,17 @@ public class Date {
     public void setEnvironmentalRate(double rate) {
         boolean isInvalid = false;
 
-        if (rate < 0.80 || rate > 1.20) {
+        if (rate < MIN_RATE || rate > MAX_RATE) {
             isInvalid = true;
             System.out.println("Error: Environmental rate must be between 0.80 and 1.20.");
         }
 
         if (!isInvalid) {
-            this.environmentalRate = rate;
+            if (calendar == null) {
+                this.rate = rate;
+            } else {
+                calendar.setRate(slot, rate);
+            }
         }
     }
 
@@ -103,7 +155,7 @@ public class Date {
      * @return the computed final nightly price
      */
     public double getFinalPrice(double typeMultiplier) {
-        return price * typeMultiplier * environmentalRate;
+        return getPrice() * typeMultiplier * getEnvironmentalRate();
     }
 
     /**
@@ -112,21 +164,37 @@ public class Date {
      * @return true if the date is not reserved; false otherwise
      */
     public boolean isAvailable() {
-        return !isReserved;
+        return calendar == null ? !reserved : !calendar.isBooked(slot);
     }
 
     /**
-     * Marks this date as reserved.
+     * Marks this date as reserved. Only the package may call this: days
+     * of a property are booked through Property, which keeps the
+     * reservation records, the listeners, and the log in step.
      */
-    public void book() {
-        this.isReserved = true;
+    void book() {
+        setReserved(true);
     }
 
     /**
-     * Marks this date as available (not reserved).
+     * Marks this date as available (not reserved). Only the package may
+     * call this; see book.
      */
-    public void unbook() {
-        this.isReserved = false;
+    void unbook() {
+        setReserved(false);
+    }
+
+    /**
+     * Sets the reservation status in the fields or in the calendar slot.
+     *
+     * @param reserved true to mark the date reserved; false to free it
+     */
+    private void setReserved(boolean reserved) {
+        if (calendar == null) {
+            this.reserved = reserved;
+        } else {
+            calendar.setBooked(slot, reserved);
+        }
     }
 
     /**
@@ -136,7 +204,7 @@ public class Date {
      * @return a string with date information
      */
     public String toString() {
-        return "Day " + day + " - Base Price: " + price + " - " +
-                (isReserved ? "Reserved" : "Available");
+        return "Day " + day + " - Base Price: " + getPrice() + " - " +
+                (isAvailable() ? "Available" : "Reserved");
     }
 }
@@ -0,0 +1,82 @@
+package Objects;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * The EarningsLedger class keeps running totals of estimated earnings
+ * for a whole portfolio and for each property type. Properties attached
+ * to the ledger report every change in their earnings, so the totals can
+ * be read at any time without scanning the properties again.
+ * The totals are DoubleAdder counters, so properties on different threads
+ * can report changes at the same time without waiting for each other.
+ */
+public class EarningsLedger {
+
+    private DoubleAdder total;
+    private ConcurrentSkipListMap<String, DoubleAdder> totalsByType;
+
+    /**
+     * Constructs an empty EarningsLedger.
+     */
+    public EarningsLedger() {
+        this.total = new DoubleAdder();
+        this.totalsByType = new ConcurrentSkipListMap<String, DoubleAdder>();
+    }
+
+    /**
+     * Adds an amount to the portfolio total and to the total of a type.
+     * Negative amounts lower the totals.
+     *
+     * @param type the property type the amount belongs to
+     * @param amount the change in earnings
+     */
+    public void add(PropertyType type, double amount) {
+        DoubleAdder current = totalsByType.get(type.getDisplayName());
+
+        if (current == null) {
+            current = totalsByType.computeIfAbsent(type.getDisplayName(), key -> new DoubleAdder());
+        }
+
+        current.add(amount);
+        total.add(amount);
+    }
+
+    /**
+     * Returns the estimated earnings of the whole portfolio.
+     *
+     * @return the portfolio total
+     */
+    public double getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the estimated earnings of all properties of one type.
+     *
+     * @param typeName the display name of the property type
+     * @return the total for that type; 0 if no property of that type has earnings
+     */
+    public double getTotal(String typeName) {
+        DoubleAdder value = totalsByType.get(typeName);
+        return value == null ? 0 : value.sum();
+    }
+
+    /**
+     * Returns a copy of the per-type totals, keyed by type display name
+     * and sorted by name.
+     *
+     * @return a map from type name to estimated earnings
+     */
+    public Map<String, Double> getTotalsByType() {
+        LinkedHashMap<String, Double> copy = new LinkedHashMap<String, Double>();
+
+        for (Map.Entry<String, DoubleAdder> entry : totalsByType.entrySet()) {
+            copy.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return copy;
+    }
+}
@@ -0,0 +1,81 @@
+package Objects;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Occupancy class holds the reserved status of a calendar's slots as
+ * packed bits in one atomic 64-bit word. Slot n is bit n, so a calendar
+ * has at most 64 slots. Ranges are reserved and freed with
+ * compare-and-swap loops, so many threads can book the same calendar
+ * without taking a lock.
+ */
+public class Occupancy {
+
+    private AtomicLong bits;
+
+    /**
+     * Constructs an Occupancy with every slot free.
+     */
+    public Occupancy() {
+        bits = new AtomicLong(0L);
+    }
+
+    /**
+     * Returns the reserved bits.
+     *
+     * @return the reserved bits
+     */
+    public long get() {
+        return bits.get();
+    }
+
+    /**
+     * Replaces the reserved bits. Meant for callers that already keep
+     * other writers out.
+     *
+     * @param reserved the new reserved bits
+     */
+    public void set(long reserved) {
+        bits.set(reserved);
+    }
+
+    /**
+     * Reserves every slot in a mask, but only if none of them is reserved
+     * yet.
+     *
+     * @param mask the slots to reserve
+     * @return true if the whole mask was reserved; false if any slot was taken
+     */
+    public boolean trySet(long mask) {
+        boolean success = false;
+        boolean done = false;
+
+        while (!done) {
+            long current = bits.get();
+
+            if ((current & mask) != 0) {
+                done = true;
+            } else if (bits.compareAndSet(current, current | mask)) {
+                success = true;
+                done = true;
+            }
+        }
+
+        return success;
+    }
+
+    /**
+     * Frees every slot in a mask. The caller must own the slots, for
+     * example through an earlier successful trySet.
+     *
+     * @param mask the slots to free
+     */
+    public void clear(long mask) {
+        boolean done = false;
+
+        while (!done) {
+            long current = bits.get();
+            done = bits.compareAndSet(current, current & ~mask);
+        }
+    }
+}
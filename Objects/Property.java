@@ -1,25 +1,67 @@
 package Objects;
 
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import Objects.Calendar;
 import Objects.Date;
+import Objects.EarningsLedger;
 import Objects.Reservation;
 import Objects.PropertyType;
 
 /**
  * Represents a property with a name, type, available dates, and reservations.
  * Each date has its own base pricing, environmental rate, and reservation status.
+ * The day data is stored in a Calendar where day N lives in slot N - 1;
+ * Date objects returned by this class are views over that calendar.
+ * Each property has its own read/write lock, shared with its calendar.
+ * Methods that read take the read side and methods that change the
+ * property take the write side, so threads working on different
+ * properties never wait for each other. Callers that need several calls
+ * to happen together can hold the lock from getLock themselves.
+ * Bookings and cancellations are the exception: they set and clear their
+ * nights with a compare-and-swap loop on the calendar under the read lock.
+ * The reservation record is stored afterwards under a small store lock,
+ * in a packed store that grows as reservations are added. A new record
+ * goes right after the last one and a removed record's place is filled
+ * with the last one, so both take constant time; copyReservations sorts
+ * its copy by check-in day.
+ * getState hands out an unchanging copy of the whole property. The copy
+ * is kept and handed out again until the property next changes, so
+ * readers of a property that does not change share one copy.
  */
 public class Property {
 
-    private String name;
-    private PropertyType type;
-    private Date[] dates;
+    /**
+     * The last day of the calendar. Every property lists days 1 to MAX_DAY.
+     */
+    public static final int MAX_DAY = 30;
+
+    private static final int INITIAL_RESERVATIONS = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile String name;
+    private volatile PropertyType type;
+    private Calendar calendar;
+    private final Object storeLock = new Object();
     private Reservation[] reservations;
+    private int reservationCount;
+    private List<Reservation> reservationView;
+    private EarningsLedger ledger;
+    private volatile AvailabilityListener availabilityListener;
+    private volatile ReservationListener reservationListener;
+    private volatile StateListener stateListener;
+    private volatile PropertyState published;
 
     /**
      * Constructs a Property with the given name.
      * The default property type is Eco-Apartment.
-     * The property can store up to 30 dates and 30 reservations.
+     * The property can store up to 30 dates and any number of reservations.
      *
      * @param name the name of the property
      */
@@ -29,7 +71,8 @@ public class Property {
 
     /**
      * Constructs a Property with a specific name and type.
-     * Initializes storage for up to 30 dates and 30 reservations.
+     * Initializes storage for up to 30 dates and a small reservation store
+     * that grows as reservations are added.
      *
      * @param name the name of the property
      * @param type the property type
@@ -37,8 +80,27 @@ public class Property {
     public Property(String name, PropertyType type) {
         this.name = name;
         this.type = type;
-        this.dates = new Date[30];
-        this.reservations = new Reservation[30];
+        this.calendar = new Calendar(MAX_DAY, this);
+        this.reservations = new Reservation[INITIAL_RESERVATIONS];
+        this.reservationCount = 0;
+        this.reservationView = new ReservationView();
+        this.ledger = null;
+        this.availabilityListener = null;
+        this.reservationListener = null;
+        this.stateListener = null;
+        this.published = null;
+    }
+
+    /**
+     * Returns the lock that guards this property and its calendar.
+     * The lock is reentrant, so a thread holding the write side may call
+     * any method of this property. A thread holding only the read side
+     * must not call a method that changes the property.
+     *
+     * @return the property's read/write lock
+     */
+    public ReadWriteLock getLock() {
+        return lock;
     }
 
     /**
@@ -56,7 +118,13 @@ public class Property {
      * @param name the new name to assign
      */
     public void setName(String name) {
-        this.name = name;
+        lock.writeLock().lock();
+        try {
+            this.name = name;
+            stateChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -74,41 +142,154 @@ public class Property {
      * @param type the new property type
      */
     public void setType(PropertyType type) {
-        if (type != null) {
-            this.type = type;
+        lock.writeLock().lock();
+        try {
+            if (type != null) {
+                if (ledger != null) {
+                    double booked = calendar.getBookedTotal();
+                    ledger.add(this.type, -booked * this.type.getMultiplier());
+                    ledger.add(type, booked * type.getMultiplier());
+                }
+                this.type = type;
+                stateChanged();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Attaches this property to an earnings ledger. The property's current
+     * earnings are added to the ledger, and every later change in its
+     * earnings is reported to it.
+     *
+     * @param ledger the ledger to report to
+     */
+    public void attachLedger(EarningsLedger ledger) {
+        lock.writeLock().lock();
+        try {
+            detachLedger();
+
+            if (ledger != null) {
+                this.ledger = ledger;
+                ledger.add(type, getEstimatedEarnings());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Detaches this property from its earnings ledger and takes its
+     * current earnings back out of the ledger's totals.
+     */
+    public void detachLedger() {
+        lock.writeLock().lock();
+        try {
+            if (ledger != null) {
+                ledger.add(type, -getEstimatedEarnings());
+                ledger = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the listener that is told when nights of this property are
+     * booked or freed through reservations.
+     *
+     * @param listener the listener, or null to stop reporting
+     */
+    public void setAvailabilityListener(AvailabilityListener listener) {
+        this.availabilityListener = listener;
+    }
+
+    /**
+     * Sets the listener that is told when reservations of this property
+     * are added or removed.
+     *
+     * @param listener the listener, or null to stop reporting
+     */
+    public void setReservationListener(ReservationListener listener) {
+        this.reservationListener = listener;
+    }
+
+    /**
+     * Sets the listener that is told after every change of this property.
+     *
+     * @param listener the listener, or null to stop reporting
+     */
+    public void setStateListener(StateListener listener) {
+        this.stateListener = listener;
+    }
+
+    /**
+     * Drops the kept copy of this property's state and tells the state
+     * listener. Called while the lock is held, after every change of the
+     * property or its calendar.
+     */
+    void stateChanged() {
+        published = null;
+
+        StateListener listener = stateListener;
+
+        if (listener != null) {
+            listener.stateChanged();
+        }
+    }
+
+    /**
+     * Reports a change in the calendar's reserved total to the ledger.
+     * Called by the calendar whenever a booking, price, or rate change
+     * alters the total.
+     *
+     * @param delta the change in price times rate over the reserved days
+     */
+    void bookedTotalChanged(double delta) {
+        if (ledger != null) {
+            ledger.add(type, delta * type.getMultiplier());
         }
     }
 
     /**
      * Adds a Date object to the property's list of available dates.
-     * The date is added only if no duplicate day exists.
+     * The date is added only if its day is between 1 and 30 and
+     * no duplicate day exists. The date's price, rate, and status are
+     * copied into the property's calendar; use getDateByDay to get a
+     * Date that reflects later changes.
      *
      * @param date the Date to add
      */
     public void addDate(Date date) {
-        boolean foundDuplicate = false;
-        int i = 0;
-
-        if (date != null) {
-            while (i < dates.length) {
-                if (dates[i] != null && dates[i].getDay() == date.getDay()) {
-                    foundDuplicate = true;
-                }
-                i = i + 1;
+        lock.writeLock().lock();
+        try {
+            if (date != null && date.getDay() >= 1 && date.getDay() <= MAX_DAY &&
+                    !calendar.isListed(date.getDay() - 1)) {
+                calendar.list(date.getDay() - 1, date.getPrice(),
+                        date.getEnvironmentalRate(), !date.isAvailable());
             }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-            if (!foundDuplicate) {
-                int j = 0;
-                boolean placed = false;
-
-                while (j < dates.length && !placed) {
-                    if (dates[j] == null) {
-                        dates[j] = date;
-                        placed = true;
-                    }
-                    j = j + 1;
-                }
+    /**
+     * Lists a day straight in the property's calendar with the default
+     * base price and environmental rate, not reserved. The day is listed
+     * only if it is between 1 and 30 and not listed yet. Unlike addDate,
+     * no Date is needed.
+     *
+     * @param day the day to list
+     */
+    public void listDay(int day) {
+        lock.writeLock().lock();
+        try {
+            if (day >= 1 && day <= MAX_DAY && !calendar.isListed(day - 1)) {
+                calendar.list(day - 1, Date.DEFAULT_PRICE, Date.DEFAULT_RATE, false);
             }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -118,210 +299,594 @@ public class Property {
      * @param day the day to remove
      */
     public void removeDate(int day) {
-        boolean done = false;
-        int i = 0;
+        lock.writeLock().lock();
+        try {
+            if (day >= 1 && day <= MAX_DAY) {
+                calendar.unlist(day - 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        while (i < dates.length && !done) {
-            if (dates[i] != null && dates[i].getDay() == day) {
-                dates[i] = null;
-                done = true;
+    /**
+     * Checks whether every night from check-in up to, but not including,
+     * check-out is listed and not yet reserved.
+     * The check is done on the listed-days and booked-days masks, so it
+     * does not depend on the length of the stay.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return true if the whole range can be booked; false otherwise
+     */
+    public boolean isRangeAvailable(int checkIn, int checkOut) {
+        lock.readLock().lock();
+        try {
+            boolean available = false;
+
+            if (isValidStay(checkIn, checkOut)) {
+                long range = rangeMask(checkIn, checkOut);
+                long free = calendar.getListedMask() & ~calendar.getBookedMask();
+                available = (free & range) == range;
             }
-            i = i + 1;
+
+            return available;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the mask of days that are listed, reserved or not.
+     * Day N is bit N - 1.
+     *
+     * @return the listed-days mask
+     */
+    public long getListedDaysMask() {
+        return calendar.getListedMask();
+    }
+
+    /**
+     * Returns the mask of days that are listed and not reserved.
+     * Day N is bit N - 1.
+     *
+     * @return the free-days mask
+     */
+    public long getFreeDaysMask() {
+        lock.readLock().lock();
+        try {
+            return calendar.getListedMask() & ~calendar.getBookedMask();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds every check-in day from which a stay of the given number of
+     * nights is listed and free. The free-days mask is folded onto itself
+     * with doubling shifts, so the work grows with the logarithm of the
+     * stay length rather than with the number of days.
+     *
+     * @param nights the length of the stay (at least 1)
+     * @return a mask of possible check-in days (day N is bit N - 1)
+     */
+    public long getStayStartsMask(int nights) {
+        long starts = 0L;
+
+        if (nights >= 1 && nights <= MAX_DAY) {
+            starts = getFreeDaysMask();
+            int covered = 1;
+
+            while (covered < nights && starts != 0) {
+                int step = Math.min(covered, nights - covered);
+                starts = starts & (starts >>> step);
+                covered = covered + step;
+            }
+        }
+
+        return starts;
+    }
+
+    /**
+     * Finds the earliest check-in day from which a stay of the given
+     * number of nights is listed and free.
+     *
+     * @param nights the length of the stay (at least 1)
+     * @return the earliest check-in day, or -1 if there is none
+     */
+    public int findEarliestStart(int nights) {
+        long starts = getStayStartsMask(nights);
+        int day = -1;
+
+        if (starts != 0) {
+            day = Long.numberOfTrailingZeros(starts) + 1;
+        }
+
+        return day;
+    }
+
+    /**
+     * Returns the highest environmental rate of the nights from check-in
+     * up to, but not including, check-out. Unlisted nights are skipped.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the highest rate, or 0 if no night in the range is listed
+     */
+    public double getMaxRate(int checkIn, int checkOut) {
+        lock.readLock().lock();
+        try {
+            double max = 0;
+            int day = Math.max(1, checkIn);
+
+            while (day < checkOut && day <= MAX_DAY) {
+                if (calendar.isListed(day - 1) && calendar.getRate(day - 1) > max) {
+                    max = calendar.getRate(day - 1);
+                }
+                day = day + 1;
+            }
+
+            return max;
+        } finally {
+            lock.readLock().unlock();
         }
     }
 
     /**
      * Adds a reservation if all requested dates exist and are available.
-     * When added, all corresponding Date objects are marked as reserved.
      *
      * @param res the reservation to add
      * @return true if added successfully; false otherwise
      */
     public boolean addReservation(Reservation res) {
-        boolean success = false;
+        return tryAddReservation(res) == 0;
+    }
 
-        if (res != null && res.getCheckOut() > res.getCheckIn()) {
+    /**
+     * Adds a reservation if all requested dates exist and are available,
+     * checking and reserving the whole stay in one atomic step.
+     * The nights are set in the calendar's booked-days bits with a
+     * compare-and-swap loop, so two bookings racing for the same night can
+     * never both succeed, and bookings do not block each other. Once the
+     * nights are won, the availability and reservation listeners are
+     * told, and only then is the reservation placed at the end of the
+     * store. A reservation can therefore never be cancelled before the
+     * listener has seen its booking.
+     *
+     * @param res the reservation to add
+     * @return 0 if added; the mask of nights that are unlisted or already
+     *         reserved (day N is bit N - 1); or -1 if the reservation or
+     *         its range is not valid
+     */
+    public long tryAddReservation(Reservation res) {
+        lock.readLock().lock();
+        try {
+            long conflicts = -1L;
 
-            boolean allAvailable = true;
-            int day = res.getCheckIn();
+            if (res != null && !res.isStored() && isValidStay(res.getCheckIn(), res.getCheckOut())) {
+                conflicts = calendar.tryBook(res.getCheckIn() - 1, res.getCheckOut() - 1);
 
-            while (day < res.getCheckOut()) {
-                boolean found = false;
-                int j = 0;
+                if (conflicts == 0) {
+                    AvailabilityListener listener = availabilityListener;
 
-                while (j < dates.length) {
-                    if (dates[j] != null && dates[j].getDay() == day) {
-                        found = true;
-                        if (!dates[j].isAvailable()) {
-                            allAvailable = false;
-                        }
+                    if (listener != null) {
+                        listener.daysBooked(rangeMask(res.getCheckIn(), res.getCheckOut()));
                     }
-                    j = j + 1;
-                }
-
-                if (!found) {
-                    allAvailable = false;
-                }
 
-                day = day + 1;
-            }
+                    ReservationListener watcher = reservationListener;
 
-            if (allAvailable) {
-                int k = 0;
-
-                while (k < reservations.length && !success) {
-                    if (reservations[k] == null) {
-                        reservations[k] = res;
-
-                        int d = res.getCheckIn();
-                        while (d < res.getCheckOut()) {
-                            int m = 0;
-                            while (m < dates.length) {
-                                if (dates[m] != null && dates[m].getDay() == d) {
-                                    dates[m].book();
-                                }
-                                m = m + 1;
-                            }
-                            d = d + 1;
-                        }
-
-                        success = true;
+                    if (watcher != null) {
+                        watcher.reservationAdded(res);
                     }
-                    k = k + 1;
+
+                    storeReservation(res);
                 }
             }
+
+            return conflicts;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    /**
+     * Places a reservation right after the last one in the store and
+     * records its position in the reservation. The store doubles in size
+     * when it is full, so this takes amortized constant time, and the
+     * place freed by the last removal is the next one reused.
+     *
+     * @param res the reservation to store
+     */
+    private void storeReservation(Reservation res) {
+        synchronized (storeLock) {
+            if (reservationCount == reservations.length) {
+                int capacity = Math.max(INITIAL_RESERVATIONS, reservations.length * 2);
+                reservations = Arrays.copyOf(reservations, capacity);
+            }
 
-        return success;
+            reservations[reservationCount] = res;
+            res.setStoreIndex(reservationCount);
+            reservationCount = reservationCount + 1;
+        }
     }
 
     /**
      * Removes a reservation and resets the reservation status of its dates.
+     * The reservation must be one that was added to this property. It is
+     * taken out of the store under the store lock, so only one of two
+     * racing removals succeeds. The reservation listener is told next, and
+     * the nights are then cleared with a compare-and-swap loop before the
+     * availability listener is told.
+     * No lock is held against other bookings.
      *
      * @param res the reservation to remove
      * @return true if removed; false otherwise
      */
     public boolean removeReservation(Reservation res) {
-        boolean removed = false;
-        int i = 0;
+        lock.readLock().lock();
+        try {
+            boolean removed = res != null && unstoreReservation(res);
 
-        if (res != null) {
-            while (i < reservations.length && !removed) {
-                Reservation r = reservations[i];
-
-                if (r != null &&
-                        r.getGuestName().equals(res.getGuestName()) &&
-                        r.getCheckIn() == res.getCheckIn() &&
-                        r.getCheckOut() == res.getCheckOut()) {
-
-                    int d = r.getCheckIn();
-                    while (d < r.getCheckOut()) {
-                        int j = 0;
-                        while (j < dates.length) {
-                            if (dates[j] != null && dates[j].getDay() == d) {
-                                dates[j].unbook();
-                            }
-                            j = j + 1;
-                        }
-                        d = d + 1;
-                    }
+            if (removed) {
+                ReservationListener watcher = reservationListener;
+
+                if (watcher != null) {
+                    watcher.reservationRemoved(res);
+                }
+
+                calendar.tryUnbook(res.getCheckIn() - 1, res.getCheckOut() - 1);
+
+                AvailabilityListener listener = availabilityListener;
 
-                    reservations[i] = null;
-                    removed = true;
+                if (listener != null) {
+                    listener.daysFreed(rangeMask(res.getCheckIn(), res.getCheckOut()));
+                }
+            }
+
+            return removed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a reservation out of the store by the position recorded in
+     * it, filling that place with the last reservation, so the removal
+     * takes constant time and does not shift the others.
+     *
+     * @param res the reservation to take out
+     * @return true if it was stored in this property; false otherwise
+     */
+    private boolean unstoreReservation(Reservation res) {
+        synchronized (storeLock) {
+            int at = res.getStoreIndex();
+            boolean found = at >= 0 && at < reservationCount && reservations[at] == res;
+
+            if (found) {
+                Reservation last = reservations[reservationCount - 1];
+                reservations[at] = last;
+                last.setStoreIndex(at);
+                reservationCount = reservationCount - 1;
+                reservations[reservationCount] = null;
+                res.setStoreIndex(-1);
+            }
+
+            return found;
+        }
+    }
+
+    /**
+     * Returns a read-only view of this property's reservations, in the
+     * order they sit in the store, which changes as reservations are
+     * removed. The view always reflects the current reservations; it is
+     * not a copy, and each position is read straight from the store.
+     * To walk the reservations in check-in order, or while other threads
+     * may book, use copyReservations instead.
+     *
+     * @return an unmodifiable list of the reservations
+     */
+    public List<Reservation> getReservations() {
+        return reservationView;
+    }
+
+    /**
+     * Returns a copy of this property's reservations, ordered by check-in
+     * day and taken in one step under the store lock.
+     *
+     * @return a new list of the reservations
+     */
+    public List<Reservation> copyReservations() {
+        Reservation[] copy;
+
+        synchronized (storeLock) {
+            copy = Arrays.copyOf(reservations, reservationCount);
+        }
+
+        sortByCheckIn(copy);
+        return new ArrayList<Reservation>(Arrays.asList(copy));
+    }
+
+    /**
+     * Sorts reservations by check-in day with an insertion sort. A store
+     * holds at most MAX_DAY - 1 reservations, since no two of them share
+     * a night, so the sort is short.
+     *
+     * @param list the reservations to sort
+     */
+    private static void sortByCheckIn(Reservation[] list) {
+        int i = 1;
+
+        while (i < list.length) {
+            Reservation r = list[i];
+            int j = i - 1;
+
+            while (j >= 0 && list[j].getCheckIn() > r.getCheckIn()) {
+                list[j + 1] = list[j];
+                j = j - 1;
+            }
+            list[j + 1] = r;
+            i = i + 1;
+        }
+    }
+
+    /**
+     * Finds the reservation that checks in on a given day by walking the
+     * store, which never holds more than MAX_DAY - 1 reservations.
+     *
+     * @param checkIn the check-in day
+     * @return the reservation, or null if none checks in that day
+     */
+    public Reservation findReservation(int checkIn) {
+        synchronized (storeLock) {
+            Reservation found = null;
+            int i = 0;
+
+            while (found == null && i < reservationCount) {
+                if (reservations[i].getCheckIn() == checkIn) {
+                    found = reservations[i];
                 }
                 i = i + 1;
             }
+
+            return found;
         }
+    }
 
-        return removed;
+    /**
+     * Copies the whole state of this property in one step. The write lock
+     * is taken, so no booking or cancellation can happen halfway through.
+     * The reservations are copied too, so the state shares nothing that
+     * can change with the property, and the calendar's prefix sums and
+     * reserved total are handed over so the state does not compute them
+     * again.
+     *
+     * @return the copied state
+     */
+    public PropertyState captureState() {
+        lock.writeLock().lock();
+        try {
+            double[] prices = new double[MAX_DAY];
+            double[] rates = new double[MAX_DAY];
+            calendar.copyPrices(prices);
+            calendar.copyRates(rates);
+
+            List<Reservation> live = copyReservations();
+            Reservation[] copies = new Reservation[live.size()];
+            int i = 0;
+
+            while (i < copies.length) {
+                Reservation r = live.get(i);
+                copies[i] = new Reservation(r.getGuestName(), r.getCheckIn(), r.getCheckOut());
+                i = i + 1;
+            }
+
+            return new PropertyState(name, type, calendar.getListedMask(), calendar.getBookedMask(),
+                    prices, rates, copies, calendar.getPrefixTotals(), calendar.getBookedTotal());
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Retrieves all available (not reserved) dates.
+     * Returns an unchanging copy of the whole state of this property.
+     * The copy is kept until the property next changes, so calling this
+     * again for an unchanged property returns the same object without
+     * taking any lock. Otherwise a new copy is taken under the write lock,
+     * so a thread holding only the read lock must not call this method.
      *
-     * @return an array of available Date objects
+     * @return the current state
      */
-    public Date[] getAvailableDates() {
-        int count = 0;
+    public PropertyState getState() {
+        PropertyState state = published;
+
+        if (state == null) {
+            lock.writeLock().lock();
+            try {
+                state = published;
+
+                if (state == null) {
+                    state = captureState();
+                    published = state;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Builds a property from a saved state. The reservations are copied,
+     * so the new property shares nothing with the property it was saved
+     * from.
+     *
+     * @param state the saved state
+     * @return the new property
+     */
+    public static Property fromState(PropertyState state) {
+        Property p = new Property(state.getName(), state.getType());
+        Reservation[] saved = state.getReservations();
         int i = 0;
 
-        while (i < dates.length) {
-            if (dates[i] != null && dates[i].isAvailable()) {
-                count = count + 1;
+        p.calendar.restore(state.getListedMask(), state.getBookedMask(), state.getPrices(), state.getRates());
+
+        while (i < saved.length) {
+            Reservation r = new Reservation(saved[i].getGuestName(), saved[i].getCheckIn(), saved[i].getCheckOut());
+
+            if (isValidStay(r.getCheckIn(), r.getCheckOut()) && p.findReservation(r.getCheckIn()) == null) {
+                p.storeReservation(r);
             }
             i = i + 1;
         }
 
-        Date[] available = new Date[count];
-        int idx = 0;
-        int j = 0;
+        return p;
+    }
 
-        while (j < dates.length) {
-            if (dates[j] != null && dates[j].isAvailable()) {
-                available[idx] = dates[j];
+    /**
+     * Checks whether this property has at least one reservation.
+     *
+     * @return true if there are reservations; false otherwise
+     */
+    public boolean hasReservations() {
+        synchronized (storeLock) {
+            return reservationCount > 0;
+        }
+    }
+
+    /**
+     * Retrieves all available (not reserved) dates.
+     *
+     * @return an array of available Date objects
+     */
+    public Date[] getAvailableDates() {
+        lock.readLock().lock();
+        try {
+            long free = calendar.getListedMask() & ~calendar.getBookedMask();
+            Date[] available = new Date[Long.bitCount(free)];
+            int idx = 0;
+
+            while (free != 0) {
+                int slot = Long.numberOfTrailingZeros(free);
+                available[idx] = new Date(calendar, slot, slot + 1);
                 idx = idx + 1;
+                free = free & (free - 1);
             }
-            j = j + 1;
-        }
 
-        return available;
+            return available;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
      * Retrieves the Date object for a specific day.
+     * The day is looked up directly in its slot, so this takes the
+     * same time no matter how many dates are listed. The returned Date
+     * is a view: changes made through it update this property.
      *
      * @param day the day to search for
      * @return the Date object if found; null otherwise
      */
     public Date getDateByDay(int day) {
-        Date found = null;
-        int i = 0;
+        lock.readLock().lock();
+        try {
+            Date found = null;
 
-        while (i < dates.length) {
-            if (dates[i] != null && dates[i].getDay() == day) {
-                found = dates[i];
+            if (day >= 1 && day <= MAX_DAY && calendar.isListed(day - 1)) {
+                found = new Date(calendar, day - 1, day);
             }
-            i = i + 1;
+
+            return found;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        return found;
+    /**
+     * Computes the total price of a stay from check-in up to, but not
+     * including, check-out. Each night's final price includes the property
+     * type multiplier and the environmental rate. The total is taken from
+     * the calendar's cached prefix sums, so it does not depend on the
+     * length of the stay. If any night is not listed, the total is 0.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the total price of the stay
+     */
+    public double getStayPrice(int checkIn, int checkOut) {
+        lock.readLock().lock();
+        try {
+            return PropertyState.stayPrice(calendar.getListedMask(), calendar.getPrefixTotals(),
+                    type.getMultiplier(), checkIn, checkOut);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates the list of final nightly prices of a stay from check-in up
+     * to, but not including, check-out. Nights that are not listed get 0.
+     * A range reaching outside days 1 to MAX_DAY is cut to them.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return an array containing the nightly prices
+     */
+    public double[] getNightlyPrices(int checkIn, int checkOut) {
+        lock.readLock().lock();
+        try {
+            double[] prices = new double[MAX_DAY];
+            double[] rates = new double[MAX_DAY];
+            calendar.copyPrices(prices);
+            calendar.copyRates(rates);
+
+            return PropertyState.nightlyPrices(calendar.getListedMask(), prices, rates,
+                    type.getMultiplier(), checkIn, checkOut);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
      * Updates the base price for all listed dates.
+     * The price must be at least 100.
      *
      * @param newBase the new base price to apply
      */
     public void updateBasePrice(double newBase) {
-        int i = 0;
-
-        while (i < dates.length) {
-            if (dates[i] != null) {
-                dates[i].setPrice(newBase);
-            }
-            i = i + 1;
+        if (newBase < 100.0) {
+            System.out.println("Error: Price cannot be less than 100.");
+        } else {
+            calendar.setAllPrices(newBase);
         }
     }
 
+    /**
+     * Applies a rate plan to the listed dates of this property.
+     * The plan's rates were checked when they were added to it, so they
+     * are written straight into the calendar.
+     *
+     * @param plan the rate plan to apply
+     */
+    public void applyRatePlan(RatePlan plan) {
+        calendar.setRates(plan.getDaysMask(), plan.getSlotRates());
+    }
+
     /**
      * Computes estimated earnings based on all reserved dates.
      * Final prices include the property type multiplier and environmental rate.
+     * The calendar keeps the reserved total up to date, so no scan is needed.
      *
      * @return the total earnings
      */
     public double getEstimatedEarnings() {
-        double total = 0;
-        double multiplier = type.getMultiplier();
-        int i = 0;
-
-        while (i < dates.length) {
-            if (dates[i] != null && !dates[i].isAvailable()) {
-                total = total + dates[i].getFinalPrice(multiplier);
-            }
-            i = i + 1;
+        lock.readLock().lock();
+        try {
+            return calendar.getBookedTotal() * type.getMultiplier();
+        } finally {
+            lock.readLock().unlock();
         }
-
-        return total;
     }
 
     /**
@@ -330,22 +895,84 @@ public class Property {
      * @return true if removed successfully; false otherwise
      */
     public boolean removeProperty() {
-        boolean canRemove = true;
-        int i = 0;
-
-        while (i < reservations.length) {
-            if (reservations[i] != null) {
-                canRemove = false;
+        lock.writeLock().lock();
+        try {
+            boolean canRemove = !hasReservations();
+
+            if (canRemove) {
+                detachLedger();
+                name = null;
+                calendar = new Calendar(0, this);
+                availabilityListener = null;
+                reservationListener = null;
+                stateChanged();
+                stateListener = null;
             }
-            i = i + 1;
+
+            return canRemove;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        if (canRemove) {
-            name = null;
-            dates = new Date[0];
-            reservations = new Reservation[0];
+    /**
+     * Checks whether a stay fits the calendar: check-in is day 1 or
+     * later, check-out is after check-in, and the last night is no later
+     * than MAX_DAY.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return true if the stay fits the calendar; false otherwise
+     */
+    public static boolean isValidStay(int checkIn, int checkOut) {
+        return checkIn >= 1 && checkOut > checkIn && checkOut <= MAX_DAY + 1;
+    }
+
+    /**
+     * Returns the calendar mask covering the nights from check-in up to,
+     * but not including, check-out. Day N is bit N - 1. The stay must be
+     * valid; see isValidStay.
+     *
+     * @param checkIn the first night
+     * @param checkOut the check-out day
+     * @return the bits for every night of the stay
+     */
+    public static long rangeMask(int checkIn, int checkOut) {
+        return (-1L << (checkIn - 1)) & ~(-1L << (checkOut - 1));
+    }
+
+    /**
+     * A read-only list over the front of the reservation store, where the
+     * reservations are kept packed.
+     */
+    private class ReservationView extends AbstractList<Reservation> {
+
+        /**
+         * Retrieves the reservation at a position of the view.
+         *
+         * @param index the position (0 to size - 1)
+         * @return the reservation at that position
+         */
+        @Override
+        public Reservation get(int index) {
+            synchronized (storeLock) {
+                if (index < 0 || index >= reservationCount) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + reservationCount);
+                }
+                return reservations[index];
+            }
         }
 
-        return canRemove;
+        /**
+         * Returns the number of reservations.
+         *
+         * @return the reservation count
+         */
+        @Override
+        public int size() {
+            synchronized (storeLock) {
+                return reservationCount;
+            }
+        }
     }
-}
\ No newline at end of file
+}
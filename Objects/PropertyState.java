@@ -0,0 +1,273 @@
+package Objects;
+
+/**
+ * The PropertyState class holds a copy of everything that makes up a
+ * property at one moment: its name and type, its listed and reserved
+ * days, the base price and environmental rate of every day, and its
+ * reservations. It is used to save a property and to build it again,
+ * and it is the copy of a property that readers of a SystemSnapshot see.
+ * Day N is bit N - 1 of the masks and index N - 1 of the arrays.
+ * The arrays and reservations are owned by the state once it is built;
+ * callers must not change them, and a property hands over copies of its
+ * reservations, so a state never changes after it is built.
+ * Along with the days, a state keeps the calendar's prefix sums of price
+ * times rate and its reserved total, so a stay is priced with one
+ * subtraction and the earnings are read without a scan. Stays are
+ * priced by the same static methods a live property uses.
+ */
+public class PropertyState {
+
+    private final String name;
+    private final PropertyType type;
+    private final long listedMask;
+    private final long bookedMask;
+    private final double[] prices;
+    private final double[] rates;
+    private final Reservation[] reservations;
+    private final double[] prefixTotals;
+    private final double bookedTotal;
+
+    /**
+     * Constructs a PropertyState, computing the prefix sums and the
+     * reserved total from the days.
+     *
+     * @param name the property name
+     * @param type the property type
+     * @param listedMask the listed days
+     * @param bookedMask the reserved days
+     * @param prices the base price of every day
+     * @param rates the environmental rate of every day
+     * @param reservations the reservations, ordered by check-in day
+     */
+    public PropertyState(String name, PropertyType type, long listedMask, long bookedMask,
+                         double[] prices, double[] rates, Reservation[] reservations) {
+        this(name, type, listedMask, bookedMask, prices, rates, reservations,
+                Calendar.prefixOf(listedMask, prices, rates, prices.length),
+                Calendar.sumOf(listedMask & bookedMask, prices, rates));
+    }
+
+    /**
+     * Constructs a PropertyState with prefix sums and a reserved total
+     * the calendar already holds.
+     *
+     * @param name the property name
+     * @param type the property type
+     * @param listedMask the listed days
+     * @param bookedMask the reserved days
+     * @param prices the base price of every day
+     * @param rates the environmental rate of every day
+     * @param reservations the reservations, ordered by check-in day
+     * @param prefixTotals the prefix sums of price times rate over the listed days
+     * @param bookedTotal the total of price times rate over the reserved days
+     */
+    PropertyState(String name, PropertyType type, long listedMask, long bookedMask, double[] prices,
+                  double[] rates, Reservation[] reservations, double[] prefixTotals, double bookedTotal) {
+        this.name = name;
+        this.type = type;
+        this.listedMask = listedMask;
+        this.bookedMask = bookedMask;
+        this.prices = prices;
+        this.rates = rates;
+        this.reservations = reservations;
+        this.prefixTotals = prefixTotals;
+        this.bookedTotal = bookedTotal;
+    }
+
+    /**
+     * Returns the property name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the property type.
+     *
+     * @return the type
+     */
+    public PropertyType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the listed days. Day N is bit N - 1.
+     *
+     * @return the listed-days mask
+     */
+    public long getListedMask() {
+        return listedMask;
+    }
+
+    /**
+     * Returns the reserved days. Day N is bit N - 1.
+     *
+     * @return the reserved-days mask
+     */
+    public long getBookedMask() {
+        return bookedMask;
+    }
+
+    /**
+     * Returns the base price of every day, day N at index N - 1.
+     * The array must not be changed.
+     *
+     * @return the base prices
+     */
+    public double[] getPrices() {
+        return prices;
+    }
+
+    /**
+     * Returns the environmental rate of every day, day N at index N - 1.
+     * The array must not be changed.
+     *
+     * @return the environmental rates
+     */
+    public double[] getRates() {
+        return rates;
+    }
+
+    /**
+     * Returns the reservations, ordered by check-in day.
+     * The array must not be changed.
+     *
+     * @return the reservations
+     */
+    public Reservation[] getReservations() {
+        return reservations;
+    }
+
+    /**
+     * Returns the days that are listed but not reserved. Day N is bit N - 1.
+     *
+     * @return the free-days mask
+     */
+    public long getFreeDaysMask() {
+        return listedMask & ~bookedMask;
+    }
+
+    /**
+     * Computes the final price of one day: its base price times the
+     * property type multiplier and the day's environmental rate.
+     * Days that are not listed cost 0.
+     *
+     * @param day the day (1–30)
+     * @return the final price of the day
+     */
+    public double getFinalPrice(int day) {
+        return finalPrice(listedMask, prices, rates, type.getMultiplier(), day);
+    }
+
+    /**
+     * Computes the total price of a stay from check-in up to, but not
+     * including, check-out, from the kept prefix sums. If any night is not
+     * listed, the total is 0.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the total price of the stay
+     */
+    public double getStayPrice(int checkIn, int checkOut) {
+        return stayPrice(listedMask, prefixTotals, type.getMultiplier(), checkIn, checkOut);
+    }
+
+    /**
+     * Creates the list of final nightly prices of a stay from check-in up
+     * to, but not including, check-out. Nights that are not listed get 0.
+     * A range reaching outside days 1 to 30 is cut to them.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return an array containing the nightly prices
+     */
+    public double[] getNightlyPrices(int checkIn, int checkOut) {
+        return nightlyPrices(listedMask, prices, rates, type.getMultiplier(), checkIn, checkOut);
+    }
+
+    /**
+     * Returns the estimated earnings from every reserved day that is
+     * listed, from the reserved total kept when the state was built.
+     *
+     * @return the total earnings
+     */
+    public double getEstimatedEarnings() {
+        return bookedTotal * type.getMultiplier();
+    }
+
+    /**
+     * Computes the final price of one day from a set of day columns.
+     *
+     * @param listed the listed days
+     * @param prices the base price of every day
+     * @param rates the environmental rate of every day
+     * @param multiplier the property type multiplier
+     * @param day the day (1–30)
+     * @return the final price of the day, or 0 if it is not listed
+     */
+    static double finalPrice(long listed, double[] prices, double[] rates, double multiplier, int day) {
+        double price = 0;
+
+        if (day >= 1 && day <= prices.length && (listed & (1L << (day - 1))) != 0) {
+            price = prices[day - 1] * multiplier * rates[day - 1];
+        }
+
+        return price;
+    }
+
+    /**
+     * Computes the total price of a stay from prefix sums of price times
+     * rate over the listed days.
+     *
+     * @param listed the listed days
+     * @param prefix the prefix sums, entry n holding days 1 to n
+     * @param multiplier the property type multiplier
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the total price, or 0 if the stay is invalid or a night is not listed
+     */
+    static double stayPrice(long listed, double[] prefix, double multiplier, int checkIn, int checkOut) {
+        double total = 0;
+
+        if (Property.isValidStay(checkIn, checkOut)) {
+            long range = Property.rangeMask(checkIn, checkOut);
+
+            if ((listed & range) == range) {
+                total = (prefix[checkOut - 1] - prefix[checkIn - 1]) * multiplier;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Creates the final nightly prices of a stay from a set of day
+     * columns. Nights that are not listed get 0. The range is cut to the
+     * days the columns hold, so a far-off check-out cannot make the array
+     * any longer than the calendar.
+     *
+     * @param listed the listed days
+     * @param prices the base price of every day
+     * @param rates the environmental rate of every day
+     * @param multiplier the property type multiplier
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return an array containing the nightly prices, the first for the
+     *         later of check-in and day 1
+     */
+    static double[] nightlyPrices(long listed, double[] prices, double[] rates, double multiplier,
+                                  int checkIn, int checkOut) {
+        int first = Math.max(checkIn, 1);
+        int last = Math.min(checkOut, prices.length + 1);
+        double[] breakdown = new double[Math.max(0, last - first)];
+        int index = 0;
+
+        while (index < breakdown.length) {
+            breakdown[index] = finalPrice(listed, prices, rates, multiplier, first + index);
+            index = index + 1;
+        }
+
+        return breakdown;
+    }
+}
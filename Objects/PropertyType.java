@@ -52,6 +52,26 @@ public abstract class PropertyType {
 
         return null;
     }
+
+    /**
+     * Converts a PropertyType into its numeric menu choice (1–4).
+     *
+     * @param type the property type
+     * @return the menu choice, or -1 if the type is not known
+     */
+    public static int toChoice(PropertyType type) {
+        int found = -1;
+        int choice = 1;
+
+        while (found < 0 && type != null && choice <= 4) {
+            if (fromChoice(choice).getDisplayName().equals(type.getDisplayName())) {
+                found = choice;
+            }
+            choice = choice + 1;
+        }
+
+        return found;
+    }
 }
 
 /**
@@ -0,0 +1,93 @@
+package Objects;
+
+/**
+ * The RatePlan class holds a set of environmental rates to apply to the
+ * days of a property's calendar. Each rate is checked when it is added to
+ * the plan, so applying the plan to many properties needs no further
+ * checks. Days without a rate in the plan are left unchanged.
+ */
+public class RatePlan {
+
+    private double[] rates;
+    private long daysMask;
+
+    /**
+     * Constructs an empty RatePlan.
+     */
+    public RatePlan() {
+        this.rates = new double[Property.MAX_DAY];
+        this.daysMask = 0L;
+    }
+
+    /**
+     * Adds the rate of a single day to the plan.
+     *
+     * @param day the day number (1–30)
+     * @param rate the environmental rate (0.80–1.20)
+     * @return true if added; false if the day or rate is not valid
+     */
+    public boolean setRate(int day, double rate) {
+        return setRange(day, day, rate);
+    }
+
+    /**
+     * Adds the same rate for every day of a range to the plan.
+     * Nothing is added if the range or rate is not valid.
+     *
+     * @param start the first day (1–30)
+     * @param end the last day (1–30)
+     * @param rate the environmental rate (0.80–1.20)
+     * @return true if added; false if the range or rate is not valid
+     */
+    public boolean setRange(int start, int end, double rate) {
+        boolean valid = start >= 1 && end <= Property.MAX_DAY && start <= end &&
+                rate >= Date.MIN_RATE && rate <= Date.MAX_RATE;
+
+        if (valid) {
+            int day = start;
+
+            while (day <= end) {
+                rates[day - 1] = rate;
+                daysMask = daysMask | (1L << (day - 1));
+                day = day + 1;
+            }
+        }
+
+        return valid;
+    }
+
+    /**
+     * Returns the days that have a rate in this plan.
+     *
+     * @return the days mask (day N is bit N - 1)
+     */
+    public long getDaysMask() {
+        return daysMask;
+    }
+
+    /**
+     * Returns the rate the plan sets for a day.
+     *
+     * @param day the day number (1–30)
+     * @return the rate, or 0 if the plan does not set that day
+     */
+    public double getRate(int day) {
+        double rate = 0;
+
+        if (day >= 1 && day <= Property.MAX_DAY && (daysMask & (1L << (day - 1))) != 0) {
+            rate = rates[day - 1];
+        }
+
+        return rate;
+    }
+
+    /**
+     * Returns the rates of the plan by calendar slot. Only the slots in
+     * the days mask hold meaningful values.
+     *
+     * @return the rates array, indexed by slot
+     */
+    double[] getSlotRates() {
+        return rates;
+    }
+}
@@ -1,7 +1,7 @@
 package Objects;
 
-import Objects.Date;
 import Objects.Property;
+import Objects.PropertyState;
 
 /**
  * Represents a reservation made by a guest.
@@ -12,6 +12,7 @@ public class Reservation {
     private String guestName;
     private int checkIn;
     private int checkOut;
+    private volatile int storeIndex;
 
     /**
      * Constructs a Reservation object.
@@ -24,6 +25,7 @@ public class Reservation {
         this.guestName = guest;
         this.checkIn = in;
         this.checkOut = out;
+        this.storeIndex = -1;
     }
 
     /**
@@ -53,34 +55,47 @@ public class Reservation {
         return checkOut;
     }
 
+    /**
+     * Checks whether this reservation is stored in a property.
+     *
+     * @return true if it is stored in a property; false otherwise
+     */
+    boolean isStored() {
+        return storeIndex >= 0;
+    }
+
+    /**
+     * Returns the position of this reservation in its property's
+     * reservation store, or -1 if it is not stored in one.
+     *
+     * @return the reservation's store position
+     */
+    int getStoreIndex() {
+        return storeIndex;
+    }
+
+    /**
+     * Records the position of this reservation in its property's
+     * reservation store.
+     *
+     * @param storeIndex the new position, or -1 once the reservation is removed
+     */
+    void setStoreIndex(int storeIndex) {
+        this.storeIndex = storeIndex;
+    }
+
     /**
      * Calculates the total price for this reservation.
      * The price is computed using each Date's final price, which already
      * includes the property type multiplier and the environmental rate.
+     * The property answers this from its cached price sums.
      * If any date does not exist, the total becomes 0.
      *
      * @param property the property containing the dates
      * @return the total price of the reservation
      */
     public double getTotalPrice(Property property) {
-        double total = 0;
-        int day = checkIn;
-        double multiplier = property.getType().getMultiplier();
-
-        while (day < checkOut) {
-            Date date = property.getDateByDay(day);
-
-            if (date != null) {
-                total = total + date.getFinalPrice(multiplier);
-            } else {
-                total = 0;
-                day = checkOut;
-            }
-
-            day = day + 1;
-        }
-
-        return total;
+        return property.getStayPrice(checkIn, checkOut);
     }
 
     /**
@@ -92,26 +107,29 @@ public class Reservation {
      * @return an array containing the nightly prices
      */
     public double[] getBreakdown(Property property) {
-        int nights = checkOut - checkIn;
-        double[] breakdown = new double[nights];
-
-        int index = 0;
-        int day = checkIn;
-        double multiplier = property.getType().getMultiplier();
-
-        while (index < nights) {
-            Date date = property.getDateByDay(day);
-
-            if (date != null) {
-                breakdown[index] = date.getFinalPrice(multiplier);
-            } else {
-                breakdown[index] = 0;
-            }
+        return property.getNightlyPrices(checkIn, checkOut);
+    }
 
-            index = index + 1;
-            day = day + 1;
-        }
+    /**
+     * Calculates the total price for this reservation from a copy of the
+     * property's state.
+     * If any date is not listed in the copy, the total becomes 0.
+     *
+     * @param state the copied state of the property
+     * @return the total price of the reservation
+     */
+    public double getTotalPrice(PropertyState state) {
+        return state.getStayPrice(checkIn, checkOut);
+    }
 
-        return breakdown;
+    /**
+     * Creates a breakdown of nightly prices for this reservation from a
+     * copy of the property's state. Missing dates produce a value of 0.
+     *
+     * @param state the copied state of the property
+     * @return an array containing the nightly prices
+     */
+    public double[] getBreakdown(PropertyState state) {
+        return state.getNightlyPrices(checkIn, checkOut);
     }
 }
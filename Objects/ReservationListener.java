@@ -0,0 +1,28 @@
+package Objects;
+
+/**
+ * The ReservationListener interface is told when a reservation is added
+ * to or removed from a property. The calls are made at the point where
+ * the change becomes certain: a booking is reported after its nights are
+ * won but before the reservation can be seen or cancelled, and a
+ * cancellation is reported before its nights can be booked again. The
+ * order of the calls is therefore the order in which the changes happen.
+ * Calls arrive from booking threads, so implementations must be safe to
+ * call from many threads at once.
+ */
+public interface ReservationListener {
+
+    /**
+     * Called when a reservation has been added.
+     *
+     * @param res the new reservation
+     */
+    void reservationAdded(Reservation res);
+
+    /**
+     * Called when a reservation has been removed.
+     *
+     * @param res the removed reservation
+     */
+    void reservationRemoved(Reservation res);
+}
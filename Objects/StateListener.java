@@ -0,0 +1,17 @@
+package Objects;
+
+/**
+ * The StateListener interface is told whenever anything that makes up a
+ * property changes: its name, type, days, prices, rates, or reservations.
+ * The call is made while the property's lock is held, after the change is
+ * complete, so a copy of the property taken later always holds it.
+ * Calls arrive from booking threads, so implementations must be quick and
+ * safe to call from many threads at once.
+ */
+public interface StateListener {
+
+    /**
+     * Called after the property has changed.
+     */
+    void stateChanged();
+}
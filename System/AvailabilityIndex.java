@@ -0,0 +1,166 @@
+package System;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import Objects.AvailabilityListener;
+import Objects.Property;
+
+/**
+ * The AvailabilityIndex class keeps, for every day of the month, a bit set
+ * of the property slots that are listed and free on that day. A search for
+ * a stay intersects the sets of its nights instead of checking every
+ * property one by one.
+ * The bits are stored in fixed-size chunks of atomic words, one word per
+ * day for every 64 slots. Bits are set and cleared with atomic updates,
+ * so properties that share a word can be updated from different threads.
+ * Growing the index only adds chunks; existing chunks are never copied,
+ * so no update can be lost while the index grows.
+ * The index is only a hint. Bookings and cancellations report their
+ * nights after the calendar has changed and without a lock, so when a
+ * cancellation races a new booking of the same nights, the freed report
+ * can arrive after the booked one and leave a slot marked free that is
+ * not. The reverse cannot happen, because a reservation is only published
+ * for cancelling after its booked report. A slot that is free is
+ * therefore always in the index, but a slot in the index may not be free,
+ * and callers must check every candidate against its own calendar.
+ */
+public class AvailabilityIndex {
+
+    private static final int WORDS_PER_CHUNK = 64;
+    private static final int SLOTS_PER_CHUNK = WORDS_PER_CHUNK * 64;
+
+    private volatile AtomicLongArray[] chunks;
+
+    /**
+     * Constructs an empty AvailabilityIndex.
+     */
+    public AvailabilityIndex() {
+        chunks = new AtomicLongArray[0];
+    }
+
+    /**
+     * Records a change in the free days of a property slot.
+     * Only the days that changed are touched.
+     *
+     * @param slot the property slot
+     * @param oldFree the slot's previous free-days mask (day N is bit N - 1)
+     * @param newFree the slot's current free-days mask (day N is bit N - 1)
+     */
+    public void update(int slot, long oldFree, long newFree) {
+        long changed = oldFree ^ newFree;
+
+        if (changed != 0) {
+            AtomicLongArray chunk = chunkFor(slot);
+            int word = (slot % SLOTS_PER_CHUNK) >>> 6;
+            long slotBit = 1L << (slot & 63);
+
+            while (changed != 0) {
+                int bit = Long.numberOfTrailingZeros(changed);
+                int index = bit * WORDS_PER_CHUNK + word;
+
+                if ((newFree & (1L << bit)) != 0) {
+                    chunk.getAndAccumulate(index, slotBit, (a, b) -> a | b);
+                } else {
+                    chunk.getAndAccumulate(index, ~slotBit, (a, b) -> a & b);
+                }
+
+                changed = changed & (changed - 1);
+            }
+        }
+    }
+
+    /**
+     * Returns a listener that keeps one property slot of this index up to
+     * date as the property's nights are booked and freed.
+     *
+     * @param slot the property slot
+     * @return the listener for that slot
+     */
+    public AvailabilityListener listenerFor(int slot) {
+        return new AvailabilityListener() {
+            public void daysBooked(long days) {
+                update(slot, days, 0L);
+            }
+
+            public void daysFreed(long days) {
+                update(slot, 0L, days);
+            }
+        };
+    }
+
+    /**
+     * Finds the slots that may be free on every night from check-in up
+     * to, but not including, check-out. Every free slot is included, but
+     * some of the slots may have been booked; see the class comment.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return a new bit set of matching slots (empty if the range is invalid)
+     */
+    public BitSet findFreeSlots(int checkIn, int checkOut) {
+        BitSet result = new BitSet();
+
+        if (Property.isValidStay(checkIn, checkOut)) {
+            AtomicLongArray[] current = chunks;
+            long[] words = new long[current.length * WORDS_PER_CHUNK];
+            int c = 0;
+
+            while (c < current.length) {
+                int w = 0;
+
+                while (w < WORDS_PER_CHUNK) {
+                    long free = -1L;
+                    int day = checkIn;
+
+                    while (day < checkOut && free != 0) {
+                        free = free & current[c].get((day - 1) * WORDS_PER_CHUNK + w);
+                        day = day + 1;
+                    }
+
+                    words[c * WORDS_PER_CHUNK + w] = free;
+                    w = w + 1;
+                }
+
+                c = c + 1;
+            }
+
+            result = BitSet.valueOf(words);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the chunk that holds a slot, adding chunks if needed.
+     *
+     * @param slot the property slot
+     * @return the chunk for that slot
+     */
+    private AtomicLongArray chunkFor(int slot) {
+        int index = slot / SLOTS_PER_CHUNK;
+        AtomicLongArray[] current = chunks;
+
+        if (index >= current.length) {
+            synchronized (this) {
+                current = chunks;
+
+                if (index >= current.length) {
+                    AtomicLongArray[] grown = Arrays.copyOf(current, Math.max(index + 1, current.length * 2));
+                    int i = current.length;
+
+                    while (i < grown.length) {
+                        grown[i] = new AtomicLongArray(Property.MAX_DAY * WORDS_PER_CHUNK);
+                        i = i + 1;
+                    }
+
+                    chunks = grown;
+                    current = grown;
+                }
+            }
+        }
+
+        return current[index];
+    }
+}
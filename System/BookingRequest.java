@@ -0,0 +1,64 @@
+package System;
+
+/**
+ * The BookingRequest class holds one booking to be made by
+ * PropertySystem.bookAll: the property, the guest, and the stay.
+ */
+public class BookingRequest {
+
+    private long propertyId;
+    private String guestName;
+    private int checkIn;
+    private int checkOut;
+
+    /**
+     * Constructs a BookingRequest.
+     *
+     * @param propertyId the ID of the property to book
+     * @param guestName the name of the guest
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     */
+    public BookingRequest(long propertyId, String guestName, int checkIn, int checkOut) {
+        this.propertyId = propertyId;
+        this.guestName = guestName;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+
+    /**
+     * Returns the ID of the property to book.
+     *
+     * @return the property ID
+     */
+    public long getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Returns the name of the guest.
+     *
+     * @return the guest name
+     */
+    public String getGuestName() {
+        return guestName;
+    }
+
+    /**
+     * Returns the check-in day.
+     *
+     * @return the check-in day
+     */
+    public int getCheckIn() {
+        return checkIn;
+    }
+
+    /**
+     * Returns the check-out day.
+     *
+     * @return the check-out day
+     */
+    public int getCheckOut() {
+        return checkOut;
+    }
+}
@@ -0,0 +1,116 @@
+package System;
+
+import Objects.Reservation;
+
+/**
+ * The BookingResult class describes the outcome of a booking attempt.
+ * A successful attempt carries the new reservation; a failed one carries
+ * the reason and, when the dates were the problem, the nights that
+ * could not be booked.
+ */
+public class BookingResult {
+
+    /**
+     * The possible outcomes of a booking attempt.
+     */
+    public enum Status {
+        /** The stay was booked. */
+        BOOKED,
+        /** The property ID is not valid. */
+        UNKNOWN_PROPERTY,
+        /** The guest name or the date range is not valid. */
+        INVALID_REQUEST,
+        /** Some nights are not listed or are already reserved. */
+        CONFLICT,
+        /** The mutation log could not be written, so nothing was booked. */
+        NOT_SAVED
+    }
+
+    private Status status;
+    private Reservation reservation;
+    private int[] conflictingNights;
+
+    /**
+     * Constructs a BookingResult.
+     *
+     * @param status the outcome
+     * @param reservation the new reservation, or null if nothing was booked
+     * @param conflictingNights the nights that could not be booked
+     */
+    BookingResult(Status status, Reservation reservation, int[] conflictingNights) {
+        this.status = status;
+        this.reservation = reservation;
+        this.conflictingNights = conflictingNights;
+    }
+
+    /**
+     * Checks whether the stay was booked.
+     *
+     * @return true if booked; false otherwise
+     */
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+
+    /**
+     * Returns the outcome of the attempt.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the new reservation.
+     *
+     * @return the reservation, or null if nothing was booked
+     */
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    /**
+     * Returns the nights that are not listed or are already reserved.
+     *
+     * @return a copy of the conflicting day numbers (empty unless the
+     *         status is CONFLICT)
+     */
+    public int[] getConflictingNights() {
+        return conflictingNights.clone();
+    }
+
+    /**
+     * Returns a short message explaining the outcome.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        String message;
+
+        if (status == Status.BOOKED) {
+            message = "Reservation successful.";
+        } else if (status == Status.UNKNOWN_PROPERTY) {
+            message = "The property does not exist.";
+        } else if (status == Status.INVALID_REQUEST) {
+            message = "The guest name or dates are not valid.";
+        } else if (status == Status.NOT_SAVED) {
+            message = "The booking could not be saved, so it was not made.";
+        } else {
+            StringBuilder days = new StringBuilder();
+            int i = 0;
+
+            while (i < conflictingNights.length) {
+                if (i > 0) {
+                    days.append(", ");
+                }
+                days.append(conflictingNights[i]);
+                i = i + 1;
+            }
+
+            message = "These nights are not available: " + days + ".";
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,173 @@
+package System;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.RecursiveTask;
+
+import Objects.Property;
+import Objects.PropertyType;
+
+/**
+ * The CheapestStayTask class searches a range of properties for the
+ * cheapest stays of a fixed number of nights. Large ranges are split in
+ * half and searched with fork/join; each half keeps only its k cheapest
+ * stays in a bounded heap, and the halves are merged the same way.
+ * Every window's price comes from the property's cached prefix sums, so
+ * each window costs O(1).
+ */
+class CheapestStayTask extends RecursiveTask<PriorityQueue<CheapestStayTask.Candidate>> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int LEAF_SIZE = 256;
+
+    /**
+     * Orders candidates from most to least expensive, so the head of a
+     * bounded heap is the first one to drop. Ties are broken by property
+     * order and then by check-in day, which keeps results stable.
+     */
+    static final Comparator<Candidate> MOST_EXPENSIVE_FIRST = new Comparator<Candidate>() {
+        public int compare(Candidate a, Candidate b) {
+            int result = Double.compare(b.total, a.total);
+
+            if (result == 0) {
+                result = Integer.compare(b.order, a.order);
+            }
+            if (result == 0) {
+                result = Integer.compare(b.checkIn, a.checkIn);
+            }
+
+            return result;
+        }
+    };
+
+    private transient PropertyTable properties;
+    private long[] ids;
+    private int from;
+    private int to;
+    private int nights;
+    private transient PropertyType type;
+    private int limit;
+
+    /**
+     * Constructs a CheapestStayTask over part of an ID array.
+     *
+     * @param properties the table the IDs refer to
+     * @param ids the property IDs to search
+     * @param from the first index to search
+     * @param to the index just past the last one to search
+     * @param nights the length of the stay
+     * @param type the property type to match, or null for any type
+     * @param limit the number of stays to keep
+     */
+    CheapestStayTask(PropertyTable properties, long[] ids, int from, int to,
+                     int nights, PropertyType type, int limit) {
+        this.properties = properties;
+        this.ids = ids;
+        this.from = from;
+        this.to = to;
+        this.nights = nights;
+        this.type = type;
+        this.limit = limit;
+    }
+
+    /**
+     * Searches the range, splitting it if it is large.
+     *
+     * @return a heap of at most limit candidates, most expensive at the head
+     */
+    protected PriorityQueue<Candidate> compute() {
+        PriorityQueue<Candidate> heap;
+
+        if (to - from <= LEAF_SIZE) {
+            heap = new PriorityQueue<Candidate>(limit + 1, MOST_EXPENSIVE_FIRST);
+            int i = from;
+
+            while (i < to) {
+                scan(i, heap);
+                i = i + 1;
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            CheapestStayTask left = new CheapestStayTask(properties, ids, from, middle, nights, type, limit);
+            CheapestStayTask right = new CheapestStayTask(properties, ids, middle, to, nights, type, limit);
+
+            left.fork();
+            heap = right.compute();
+
+            for (Candidate c : left.join()) {
+                offer(heap, c);
+            }
+        }
+
+        return heap;
+    }
+
+    /**
+     * Offers every free window of one property to the heap.
+     *
+     * @param index the index of the property in the ID array
+     * @param heap the heap to add to
+     */
+    private void scan(int index, PriorityQueue<Candidate> heap) {
+        Property p = properties.get(ids[index]);
+
+        if (p != null && PropertySystem.matchesType(p, type)) {
+            long starts = p.getStayStartsMask(nights);
+
+            while (starts != 0) {
+                int checkIn = Long.numberOfTrailingZeros(starts) + 1;
+                double total = p.getStayPrice(checkIn, checkIn + nights);
+
+                offer(heap, new Candidate(p, ids[index], index, checkIn, total));
+                starts = starts & (starts - 1);
+            }
+        }
+    }
+
+    /**
+     * Adds a candidate to a bounded heap, dropping the most expensive one
+     * if the heap grows past the limit.
+     *
+     * @param heap the heap to add to
+     * @param c the candidate
+     */
+    private void offer(PriorityQueue<Candidate> heap, Candidate c) {
+        if (heap.size() < limit) {
+            heap.add(c);
+        } else if (MOST_EXPENSIVE_FIRST.compare(c, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(c);
+        }
+    }
+
+    /**
+     * The Candidate class is a stay found during the search. It holds only
+     * what is needed to rank it; the full StayOption is built for the
+     * stays that make the final cut.
+     */
+    static class Candidate {
+
+        final Property property;
+        final long propertyId;
+        final int order;
+        final int checkIn;
+        final double total;
+
+        /**
+         * Constructs a Candidate.
+         *
+         * @param property the property of the stay
+         * @param propertyId the ID of the property
+         * @param order the position of the property in the search
+         * @param checkIn the check-in day
+         * @param total the total price of the stay
+         */
+        Candidate(Property property, long propertyId, int order, int checkIn, double total) {
+            this.property = property;
+            this.propertyId = propertyId;
+            this.order = order;
+            this.checkIn = checkIn;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,1080 @@
+package System;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The MutationLog class is an append-only write-ahead log of every change
+ * made to a PropertySystem. Each change is one binary record framed as
+ * its length, an operation code, the fields of the change, and a CRC32 of
+ * the operation code and fields. Appending a record only copies it into
+ * an in-memory buffer; sync() makes it durable. When several threads sync
+ * at once, one of them writes everything appended so far and forces it to
+ * disk while the others wait for it, so many changes share one fsync.
+ * A record that was cut short by a crash fails its length or checksum and
+ * is cut off, together with anything after it, when the log is opened.
+ * A failed write is final: sync() keeps returning false, and records
+ * appended afterwards are dropped instead of buffered, since they could
+ * never be written.
+ * Once a snapshot holds everything before some log position, the log is
+ * cut over to a new segment that keeps only the records from that
+ * position on. The segment's header holds the log sequence number of its
+ * first record, so numbering carries on across segments, and opening or
+ * replaying the log only reads what the last snapshot does not hold.
+ * Replay can be split across threads by property. Records about one
+ * property are always replayed in log order by the same thread, while
+ * records about different properties are replayed at the same time.
+ * Records that change the set of properties or their names are replayed
+ * in log order by the reading thread.
+ */
+public class MutationLog {
+
+    static final byte CREATE_PROPERTY = 1;
+    static final byte REMOVE_PROPERTY = 2;
+    static final byte RENAME = 3;
+    static final byte SET_TYPE = 4;
+    static final byte SET_BASE_PRICE = 5;
+    static final byte SET_DAY = 6;
+    static final byte SET_RATES = 7;
+    static final byte RESERVE = 8;
+    static final byte CANCEL = 9;
+
+    private static final int MAGIC = 0x4D4C4F47;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_RECORD = 1 << 20;
+    private static final int REPLAY_BATCH = 512;
+
+    private final Path path;
+    private final ReentrantLock lock;
+    private final Condition synced;
+    private final long recordCount;
+    private final long endLsn;
+    private FileChannel channel;
+    private long baseLsn;
+    private long fileEnd;
+    private ByteBuffer pending;
+    private int recordStart;
+    private long appendedCount;
+    private long durableCount;
+    private boolean flushing;
+    private IOException failure;
+
+    /**
+     * Constructs a MutationLog over an open file whose records end at a
+     * known position.
+     *
+     * @param path the log file
+     * @param channel the open channel of the log file
+     * @param baseLsn the log sequence number of the first record in the file
+     * @param recordCount the number of records already in the file
+     * @param fileEnd the file position just after the last record
+     */
+    private MutationLog(Path path, FileChannel channel, long baseLsn, long recordCount, long fileEnd) {
+        this.path = path;
+        this.lock = new ReentrantLock();
+        this.synced = lock.newCondition();
+        this.recordCount = recordCount;
+        this.endLsn = baseLsn + recordCount;
+        this.channel = channel;
+        this.baseLsn = baseLsn;
+        this.fileEnd = fileEnd;
+        this.pending = ByteBuffer.allocate(4096);
+        this.recordStart = 0;
+        this.appendedCount = 0;
+        this.durableCount = 0;
+        this.flushing = false;
+        this.failure = null;
+    }
+
+    /**
+     * Opens a log file, creating it if it does not exist. Any damaged
+     * record at the end of the file is cut off so new records follow the
+     * last complete one.
+     *
+     * @param fileName the name of the log file
+     * @return the opened log, or null if the file could not be used
+     */
+    public static MutationLog open(String fileName) {
+        MutationLog result = null;
+        Path path = Paths.get(fileName);
+        FileChannel channel = null;
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (channel.size() == 0) {
+                writeHeader(channel, 0);
+                channel.force(true);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                System.out.println("Error: " + fileName + " is not a mutation log.");
+                channel.close();
+            } else {
+                long base = header.getLong();
+                long[] end = new long[1];
+                long records = scan(path, base, null, end);
+
+                if (end[0] < channel.size()) {
+                    channel.truncate(end[0]);
+                    channel.force(true);
+                }
+                channel.position(end[0]);
+                result = new MutationLog(path, channel, base, records, end[0]);
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Could not open " + fileName + ": " + e.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // The open already failed; nothing more can be done.
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of records that were in the file when it was
+     * opened. After a cut this is only the records of the last segment.
+     *
+     * @return the number of records found when opening
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the log sequence number of the first record the file held
+     * when it was opened. It is 0 unless the log was cut after a snapshot,
+     * in which case the records before it are only in that snapshot.
+     *
+     * @return the log sequence number the opened segment starts at
+     */
+    public long getStartLsn() {
+        return endLsn - recordCount;
+    }
+
+    /**
+     * Returns the log sequence number just after the last record that was
+     * in the file when it was opened.
+     *
+     * @return the log sequence number the opened file ended at
+     */
+    public long getEndLsn() {
+        return endLsn;
+    }
+
+    /**
+     * Checks whether writing the log has failed. Once it has, no record
+     * appended from then on can be made durable.
+     *
+     * @return true if a write has failed; false otherwise
+     */
+    public boolean hasFailed() {
+        lock.lock();
+        try {
+            return failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the log sequence number the next record will get. Records
+     * are numbered from 0 in the order they are written, counting those
+     * already in the file when it was opened, those cut off with earlier
+     * segments, and those not yet synced.
+     *
+     * @return the number of records written to the log so far
+     */
+    public long nextLsn() {
+        lock.lock();
+        try {
+            return endLsn + appendedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Feeds the records that were in the file when it was opened to a
+     * visitor. Each record is first offered to the visitor's wants method
+     * and only decoded if wanted.
+     * With more than one thread, the records of each property go to one
+     * of several partitions, chosen by property ID, and each partition
+     * replays its records in log order on its own thread. Creations and
+     * renames are replayed by the calling thread in log order, as they
+     * touch every property's names and IDs. A removal first waits until
+     * its property's partition has caught up and is then replayed by the
+     * calling thread too. The visitor must therefore accept calls about
+     * different properties from different threads at once.
+     *
+     * @param visitor the receiver of the records
+     * @param threads the number of partitions to replay on
+     * @return the number of records replayed
+     */
+    long replay(Visitor visitor, int threads) {
+        PartitionedReplay run = new PartitionedReplay(visitor, threads);
+
+        try {
+            scan(path, getStartLsn(), run, new long[1]);
+        } catch (IOException e) {
+            System.out.println("Error: Could not read " + path + ": " + e.getMessage());
+        } finally {
+            run.finish();
+        }
+
+        return run.replayed;
+    }
+
+    /**
+     * Records that a property was created.
+     *
+     * @param id the ID given to the property
+     * @param name the property name
+     * @param typeChoice the menu choice (1–4) of the property type
+     * @param daysMask the listed days, day N as bit N - 1
+     */
+    void appendCreate(long id, String name, int typeChoice, long daysMask) {
+        byte[] text = name.getBytes(StandardCharsets.UTF_8);
+
+        lock.lock();
+        try {
+            begin(CREATE_PROPERTY, 8 + 4 + text.length + 1 + 8);
+            pending.putLong(id);
+            pending.putInt(text.length).put(text);
+            pending.put((byte) typeChoice);
+            pending.putLong(daysMask);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a property was removed.
+     *
+     * @param id the property ID
+     */
+    void appendRemove(long id) {
+        lock.lock();
+        try {
+            begin(REMOVE_PROPERTY, 8);
+            pending.putLong(id);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a property was renamed.
+     *
+     * @param id the property ID
+     * @param name the new name
+     */
+    void appendRename(long id, String name) {
+        byte[] text = name.getBytes(StandardCharsets.UTF_8);
+
+        lock.lock();
+        try {
+            begin(RENAME, 8 + 4 + text.length);
+            pending.putLong(id);
+            pending.putInt(text.length).put(text);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that the type of a property was changed.
+     *
+     * @param id the property ID
+     * @param typeChoice the menu choice (1–4) of the new type
+     */
+    void appendType(long id, int typeChoice) {
+        lock.lock();
+        try {
+            begin(SET_TYPE, 8 + 1);
+            pending.putLong(id);
+            pending.put((byte) typeChoice);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that the base price of every listed date was changed.
+     *
+     * @param id the property ID
+     * @param price the new base price
+     */
+    void appendBasePrice(long id, double price) {
+        lock.lock();
+        try {
+            begin(SET_BASE_PRICE, 8 + 8);
+            pending.putLong(id);
+            pending.putDouble(price);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the base price and environmental rate of one date.
+     *
+     * @param id the property ID
+     * @param day the day number (1–30)
+     * @param price the base price of the day
+     * @param rate the environmental rate of the day
+     */
+    void appendDay(long id, int day, double price, double rate) {
+        lock.lock();
+        try {
+            begin(SET_DAY, 8 + 1 + 8 + 8);
+            pending.putLong(id);
+            pending.put((byte) day);
+            pending.putDouble(price);
+            pending.putDouble(rate);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the environmental rates of a set of days.
+     *
+     * @param id the property ID
+     * @param daysMask the days whose rates are recorded, day N as bit N - 1
+     * @param rates the rates of those days, lowest day first
+     */
+    void appendRates(long id, long daysMask, double[] rates) {
+        lock.lock();
+        try {
+            begin(SET_RATES, 8 + 8 + 8 * rates.length);
+            pending.putLong(id);
+            pending.putLong(daysMask);
+
+            int i = 0;
+            while (i < rates.length) {
+                pending.putDouble(rates[i]);
+                i = i + 1;
+            }
+
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a stay was booked.
+     *
+     * @param id the property ID
+     * @param guest the guest name
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     */
+    void appendReserve(long id, String guest, int checkIn, int checkOut) {
+        byte[] text = guest.getBytes(StandardCharsets.UTF_8);
+
+        lock.lock();
+        try {
+            begin(RESERVE, 8 + 4 + text.length + 1 + 1);
+            pending.putLong(id);
+            pending.putInt(text.length).put(text);
+            pending.put((byte) checkIn);
+            pending.put((byte) checkOut);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that a reservation was cancelled.
+     *
+     * @param id the property ID
+     * @param checkIn the check-in day of the reservation
+     */
+    void appendCancel(long id, int checkIn) {
+        lock.lock();
+        try {
+            begin(CANCEL, 8 + 1);
+            pending.putLong(id);
+            pending.put((byte) checkIn);
+            end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes every record appended so far durable. If another thread is
+     * already writing, this thread waits for it and then, if its records
+     * were not part of that write, writes everything still buffered in
+     * one go for itself and any threads that arrived meanwhile.
+     *
+     * @return true if the records are on disk; false if writing failed
+     */
+    public boolean sync() {
+        lock.lock();
+        try {
+            long target = appendedCount;
+
+            while (durableCount < target && failure == null) {
+                if (flushing) {
+                    synced.awaitUninterruptibly();
+                } else {
+                    flushing = true;
+                    pending.flip();
+                    ByteBuffer batch = pending;
+                    FileChannel file = channel;
+                    long upTo = appendedCount;
+                    pending = ByteBuffer.allocate(Math.max(4096, batch.capacity()));
+
+                    lock.unlock();
+                    IOException error = null;
+                    try {
+                        while (batch.hasRemaining()) {
+                            file.write(batch);
+                        }
+                        file.force(false);
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                    lock.lock();
+
+                    flushing = false;
+                    if (error != null) {
+                        failure = error;
+                        System.out.println("Error: Could not write " + path + ": " + error.getMessage());
+                    } else {
+                        durableCount = upTo;
+                        fileEnd = fileEnd + batch.limit();
+                    }
+                    synced.signalAll();
+                }
+            }
+
+            return durableCount >= target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes all buffered records durable and closes the file.
+     *
+     * @return true if everything was written; false otherwise
+     */
+    public boolean close() {
+        boolean written = sync();
+
+        lock.lock();
+        try {
+            while (flushing) {
+                synced.awaitUninterruptibly();
+            }
+            channel.close();
+        } catch (IOException e) {
+            written = false;
+        } finally {
+            lock.unlock();
+        }
+
+        return written;
+    }
+
+    /**
+     * Cuts the log over to a new segment that starts at a given log
+     * position, dropping every record before it. Only call this once a
+     * snapshot holding all of those records is safely in place.
+     * The records from the position on are copied to a new file while
+     * appends and syncs go on; only the copy of whatever was synced
+     * during that time holds syncs back. The new file then replaces the
+     * log in one rename, so a crash leaves either the old log or the new
+     * segment, never a mix. Only one cut may run at a time.
+     *
+     * @param lsn the log sequence number of the first record to keep
+     * @return true if the log now starts at lsn or later; false otherwise
+     */
+    boolean cutBefore(long lsn) {
+        boolean done = false;
+        Path next = path.resolveSibling(path.getFileName() + ".next");
+        FileChannel out = null;
+        FileChannel old = null;
+        boolean reserved = false;
+
+        try {
+            long base;
+            boolean usable;
+            long upTo;
+
+            lock.lock();
+            try {
+                old = channel;
+                base = baseLsn;
+                usable = failure == null && lsn <= endLsn + durableCount;
+                upTo = fileEnd;
+            } finally {
+                lock.unlock();
+            }
+
+            if (lsn <= base || !usable) {
+                done = lsn <= base;
+            } else {
+                long from = positionOf(base, lsn);
+                out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                writeHeader(out, lsn);
+                copy(old, from, upTo, out);
+
+                lock.lock();
+                try {
+                    while (flushing) {
+                        synced.awaitUninterruptibly();
+                    }
+                    flushing = true;
+                    reserved = true;
+                    from = upTo;
+                    upTo = fileEnd;
+                } finally {
+                    lock.unlock();
+                }
+
+                copy(old, from, upTo, out);
+                out.force(true);
+                Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                lock.lock();
+                try {
+                    channel = out;
+                    baseLsn = lsn;
+                    fileEnd = out.position();
+                } finally {
+                    lock.unlock();
+                }
+
+                out = null;
+                old.close();
+                done = true;
+            }
+        } catch (IOException e) {
+            System.out.println("Error: Could not cut " + path + ": " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                    Files.deleteIfExists(next);
+                } catch (IOException ignored) {
+                    // The next cut replaces a leftover segment file.
+                }
+            }
+            if (reserved) {
+                lock.lock();
+                try {
+                    flushing = false;
+                    synced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        return done;
+    }
+
+    /**
+     * Finds where a record starts in the current segment by stepping over
+     * the lengths of the records before it. Only records that are already
+     * synced may be looked up, since nothing rewrites them.
+     *
+     * @param base the log sequence number of the segment's first record
+     * @param lsn the log sequence number of the record
+     * @return the file position of the record
+     * @throws IOException if the file cannot be read
+     */
+    private long positionOf(long base, long lsn) throws IOException {
+        long position = HEADER_SIZE;
+        long at = base;
+        FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in.position(HEADER_SIZE))))) {
+            while (at < lsn) {
+                int length = data.readInt();
+                data.skipNBytes(length + 4L);
+                position = position + 4 + length + 4;
+                at = at + 1;
+            }
+        }
+
+        return position;
+    }
+
+    /**
+     * Copies part of one file to the end of another.
+     *
+     * @param from the file to copy from
+     * @param start the first position to copy
+     * @param end the position to stop before
+     * @param to the file to append to
+     * @throws IOException if either file fails
+     */
+    private static void copy(FileChannel from, long start, long end, FileChannel to) throws IOException {
+        long at = start;
+
+        while (at < end) {
+            at = at + from.transferTo(at, end - at, to);
+        }
+    }
+
+    /**
+     * Writes the header of a new segment at the start of a file and
+     * leaves the file positioned after it.
+     *
+     * @param channel the new file
+     * @param baseLsn the log sequence number of the segment's first record
+     * @throws IOException if writing fails
+     */
+    private static void writeHeader(FileChannel channel, long baseLsn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(baseLsn).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Starts a record in the buffer, leaving room for its length. Once
+     * the log has failed, whatever is buffered is dropped first, so the
+     * buffer never holds more than the record being appended.
+     * The caller must hold the lock.
+     *
+     * @param op the operation code
+     * @param payloadSize the size of the fields that follow
+     */
+    private void begin(byte op, int payloadSize) {
+        int needed = 4 + 1 + payloadSize + 4;
+
+        if (failure != null) {
+            pending.clear();
+        }
+
+        if (pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+
+        recordStart = pending.position();
+        pending.putInt(1 + payloadSize);
+        pending.put(op);
+    }
+
+    /**
+     * Finishes the record started by begin by adding its checksum.
+     * The caller must hold the lock.
+     */
+    private void end() {
+        CRC32 crc = new CRC32();
+        crc.update(pending.array(), recordStart + 4, pending.position() - recordStart - 4);
+        pending.putInt((int) crc.getValue());
+        appendedCount = appendedCount + 1;
+    }
+
+    /**
+     * Reads the records of a log file in order and checks their
+     * checksums. Reading stops at the end of the file or at the first
+     * record that is cut short or damaged.
+     *
+     * @param path the log file
+     * @param baseLsn the log sequence number of the file's first record
+     * @param handler the receiver of the records, or null to only count them
+     * @param end receives the position just after the last good record
+     * @return the number of good records
+     * @throws IOException if the file cannot be read
+     */
+    private static long scan(Path path, long baseLsn, PartitionedReplay handler, long[] end) throws IOException {
+        long records = 0;
+        long position = HEADER_SIZE;
+        FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Channels.newInputStream(in.position(HEADER_SIZE))))) {
+            boolean reading = true;
+
+            while (reading) {
+                try {
+                    int length = data.readInt();
+
+                    if (length < 1 || length > MAX_RECORD) {
+                        reading = false;
+                    } else {
+                        byte[] body = new byte[length];
+                        data.readFully(body);
+                        int stored = data.readInt();
+
+                        CRC32 crc = new CRC32();
+                        crc.update(body, 0, length);
+
+                        if (stored != (int) crc.getValue()) {
+                            reading = false;
+                        } else {
+                            if (handler != null) {
+                                handler.accept(baseLsn + records, body);
+                            }
+                            records = records + 1;
+                            position = position + 4 + length + 4;
+                        }
+                    }
+                } catch (EOFException e) {
+                    reading = false;
+                }
+            }
+        }
+
+        end[0] = position;
+        return records;
+    }
+
+    /**
+     * Reads the property ID that follows the operation code of a record.
+     *
+     * @param body the operation code and fields of the record
+     * @return the property ID, or -1 if the record is too short
+     */
+    private static long idOf(byte[] body) {
+        long id = -1;
+
+        if (body.length >= 9) {
+            id = ByteBuffer.wrap(body, 1, 8).getLong();
+        }
+
+        return id;
+    }
+
+    /**
+     * Decodes one record and passes it to the visitor.
+     *
+     * @param body the operation code and fields of the record
+     * @param visitor the receiver of the record
+     */
+    private static void dispatch(ByteBuffer body, Visitor visitor) {
+        byte op = body.get();
+        long id = body.getLong();
+
+        if (op == CREATE_PROPERTY) {
+            String name = readString(body);
+            int typeChoice = body.get();
+            visitor.createProperty(id, name, typeChoice, body.getLong());
+        } else if (op == REMOVE_PROPERTY) {
+            visitor.removeProperty(id);
+        } else if (op == RENAME) {
+            visitor.rename(id, readString(body));
+        } else if (op == SET_TYPE) {
+            visitor.setType(id, body.get());
+        } else if (op == SET_BASE_PRICE) {
+            visitor.setBasePrice(id, body.getDouble());
+        } else if (op == SET_DAY) {
+            int day = body.get();
+            double price = body.getDouble();
+            visitor.setDay(id, day, price, body.getDouble());
+        } else if (op == SET_RATES) {
+            long mask = body.getLong();
+            double[] rates = new double[Long.bitCount(mask)];
+            int i = 0;
+            while (i < rates.length) {
+                rates[i] = body.getDouble();
+                i = i + 1;
+            }
+            visitor.setRates(id, mask, rates);
+        } else if (op == RESERVE) {
+            String guest = readString(body);
+            int checkIn = body.get();
+            visitor.reserve(id, guest, checkIn, body.get());
+        } else if (op == CANCEL) {
+            visitor.cancel(id, body.get());
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     *
+     * @param body the buffer to read from
+     * @return the string
+     */
+    private static String readString(ByteBuffer body) {
+        byte[] text = new byte[body.getInt()];
+        body.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The PartitionedReplay class routes the records of one replay to
+     * the thread that owns their property. Records are handed over in
+     * batches, and each partition is a single-thread executor, so the
+     * records of a partition run in the order they were handed over.
+     */
+    private static final class PartitionedReplay {
+
+        private final Visitor visitor;
+        private final ExecutorService[] partitions;
+        private final List<List<byte[]>> batches;
+        private long replayed;
+
+        /**
+         * Constructs a PartitionedReplay. With one thread no executors
+         * are started and every record is replayed by the reading thread.
+         *
+         * @param visitor the receiver of the records
+         * @param threads the number of partitions
+         */
+        PartitionedReplay(Visitor visitor, int threads) {
+            int count = threads > 1 ? threads : 0;
+
+            this.visitor = visitor;
+            this.partitions = new ExecutorService[count];
+            this.batches = new ArrayList<List<byte[]>>();
+            this.replayed = 0;
+
+            int i = 0;
+            while (i < count) {
+                partitions[i] = Executors.newSingleThreadExecutor();
+                batches.add(new ArrayList<byte[]>());
+                i = i + 1;
+            }
+        }
+
+        /**
+         * Takes the next record read from the log.
+         *
+         * @param lsn the record's log sequence number
+         * @param body the operation code and fields of the record
+         */
+        void accept(long lsn, byte[] body) {
+            byte op = body[0];
+            long id = idOf(body);
+
+            if (visitor.wants(lsn, op, id)) {
+                replayed = replayed + 1;
+
+                if (partitions.length == 0 || op == CREATE_PROPERTY || op == RENAME) {
+                    dispatch(ByteBuffer.wrap(body), visitor);
+                } else if (op == REMOVE_PROPERTY) {
+                    drain(partitionOf(id));
+                    dispatch(ByteBuffer.wrap(body), visitor);
+                } else {
+                    int partition = partitionOf(id);
+                    List<byte[]> batch = batches.get(partition);
+
+                    batch.add(body);
+                    if (batch.size() >= REPLAY_BATCH) {
+                        submit(partition);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Replays every record still waiting and stops the partitions.
+         */
+        void finish() {
+            int i = 0;
+
+            while (i < partitions.length) {
+                submit(i);
+                partitions[i].shutdown();
+                i = i + 1;
+            }
+
+            i = 0;
+            while (i < partitions.length) {
+                try {
+                    while (!partitions[i].awaitTermination(1, TimeUnit.MINUTES)) {
+                        // Keep waiting; replay must finish before the system is used.
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                i = i + 1;
+            }
+        }
+
+        /**
+         * Chooses the partition of a property.
+         *
+         * @param id the property ID
+         * @return the partition number
+         */
+        private int partitionOf(long id) {
+            return Math.floorMod(Long.hashCode(id), partitions.length);
+        }
+
+        /**
+         * Hands the waiting records of a partition to its thread.
+         *
+         * @param partition the partition number
+         */
+        private void submit(int partition) {
+            List<byte[]> batch = batches.get(partition);
+
+            if (!batch.isEmpty()) {
+                batches.set(partition, new ArrayList<byte[]>());
+                partitions[partition].execute(() -> {
+                    for (byte[] body : batch) {
+                        dispatch(ByteBuffer.wrap(body), visitor);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Waits until a partition has replayed every record handed to it.
+         *
+         * @param partition the partition number
+         */
+        private void drain(int partition) {
+            submit(partition);
+
+            try {
+                partitions[partition].submit(() -> { }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                System.out.println("Error: Replay failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * The Visitor interface receives the records of a log as it is
+     * replayed, one call per record. During a partitioned replay, calls
+     * about different properties may arrive from different threads at
+     * once.
+     */
+    interface Visitor {
+
+        /**
+         * Decides whether a record should be replayed. Records that are
+         * not wanted are skipped without being decoded.
+         *
+         * @param lsn the record's log sequence number
+         * @param op the record's operation code
+         * @param id the property ID the record is about
+         * @return true to replay the record; false to skip it
+         */
+        boolean wants(long lsn, byte op, long id);
+
+        /**
+         * Replays the creation of a property.
+         *
+         * @param id the ID the property was given
+         * @param name the property name
+         * @param typeChoice the menu choice (1–4) of the property type
+         * @param daysMask the listed days, day N as bit N - 1
+         */
+        void createProperty(long id, String name, int typeChoice, long daysMask);
+
+        /**
+         * Replays the removal of a property.
+         *
+         * @param id the property ID
+         */
+        void removeProperty(long id);
+
+        /**
+         * Replays a rename.
+         *
+         * @param id the property ID
+         * @param name the new name
+         */
+        void rename(long id, String name);
+
+        /**
+         * Replays a change of property type.
+         *
+         * @param id the property ID
+         * @param typeChoice the menu choice (1–4) of the new type
+         */
+        void setType(long id, int typeChoice);
+
+        /**
+         * Replays a change of the base price of every listed date.
+         *
+         * @param id the property ID
+         * @param price the new base price
+         */
+        void setBasePrice(long id, double price);
+
+        /**
+         * Replays a change to one date.
+         *
+         * @param id the property ID
+         * @param day the day number (1–30)
+         * @param price the base price of the day
+         * @param rate the environmental rate of the day
+         */
+        void setDay(long id, int day, double price, double rate);
+
+        /**
+         * Replays a change of environmental rates.
+         *
+         * @param id the property ID
+         * @param daysMask the days whose rates were recorded
+         * @param rates the rates of those days, lowest day first
+         */
+        void setRates(long id, long daysMask, double[] rates);
+
+        /**
+         * Replays a booking.
+         *
+         * @param id the property ID
+         * @param guest the guest name
+         * @param checkIn the check-in day
+         * @param checkOut the check-out day
+         */
+        void reserve(long id, String guest, int checkIn, int checkOut);
+
+        /**
+         * Replays a cancellation.
+         *
+         * @param id the property ID
+         * @param checkIn the check-in day of the reservation
+         */
+        void cancel(long id, int checkIn);
+    }
+}
@@ -1,28 +1,344 @@
 package System;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.ArrayList;
-
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import Objects.AvailabilityListener;
 import Objects.Property;
 import Objects.Reservation;
 import Objects.Date;
+import Objects.EarningsLedger;
+import Objects.PropertyState;
 import Objects.PropertyType;
+import Objects.RatePlan;
+import Objects.ReservationListener;
 
 /**
  * The PropertySystem class stores all properties and their reservations.
  * It handles the core business logic but does not interact with the user.
+ * Properties are identified by stable property IDs that stay valid until
+ * the property is removed and are never given to another property.
+ * The system is safe to use from many threads at once. Each property is
+ * guarded by its own read/write lock, so work on different properties
+ * runs in parallel. Adding and removing properties only locks the
+ * property table and the property involved, never the whole system.
+ * A system can be given a mutation log. Every change is then appended to
+ * the log while the locks that order it are held, and each public method
+ * that changes something waits for its records to be on disk before it
+ * returns. A new system given a log that already has records rebuilds its
+ * state by replaying them instead of loading the sample properties.
+ * If the log cannot be written, the change being synced is reported as
+ * failed: a booking or a new property is undone, and any other change
+ * stays in memory only. From then on the system refuses every change,
+ * since none of them could be made durable; restarting from the log
+ * brings back the last durable state.
+ * A snapshot of the whole system can be written while bookings go on.
+ * Each property is copied under its own lock together with the log
+ * position it was copied at, so a system started from a snapshot only
+ * replays the logged changes the snapshot does not already hold. Adding,
+ * removing, and renaming properties wait while the properties are
+ * copied, but not while the copies are written out. Once the snapshot
+ * is in place the log is cut, so it only keeps what the snapshot lacks.
+ * Readers that want a steady view, such as the viewing dialogs and
+ * reports, take a SystemSnapshot instead of reading the live properties.
+ * Taking one only copies the properties that changed since the last one.
  */
 public class PropertySystem {
 
-    private ArrayList<Property> properties;
-    private ArrayList<ArrayList<Reservation>> reservationsPerProperty;
+    private PropertyTable properties;
+    private ConcurrentHashMap<String, Property> propertiesByName;
+    private EarningsLedger ledger;
+    private AvailabilityIndex availability;
+    private volatile MutationLog log;
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private final Object snapshotLock = new Object();
+    private RecoveryStats recovery;
+    private final Object viewLock = new Object();
+    private SystemSnapshot view;
 
     /**
      * Constructs a PropertySystem and loads sample properties.
      */
     public PropertySystem() {
-        properties = new ArrayList<Property>();
-        reservationsPerProperty = new ArrayList<ArrayList<Reservation>>();
-        seedSampleProperties();
+        this(null);
+    }
+
+    /**
+     * Constructs a PropertySystem from a snapshot and a mutation log.
+     * The snapshot is loaded first, and then only the logged changes made
+     * after each part of it was taken are replayed. If there is no usable
+     * snapshot, the system is built from the log alone.
+     *
+     * @param snapshotFile the snapshot file name, or null to use none
+     * @param mutationLog the log to use, or null to keep no log
+     */
+    public PropertySystem(String snapshotFile, MutationLog mutationLog) {
+        this(snapshotFile, mutationLog, true);
+    }
+
+    /**
+     * Constructs a PropertySystem from a snapshot and a mutation log, and
+     * chooses whether the sample properties are loaded when neither holds
+     * anything.
+     *
+     * @param snapshotFile the snapshot file name, or null to use none
+     * @param mutationLog the log to use, or null to keep no log
+     * @param sampleData true to load the sample properties into an empty
+     *                   system; false to leave it empty
+     */
+    public PropertySystem(String snapshotFile, MutationLog mutationLog, boolean sampleData) {
+        this(snapshotFile, mutationLog, sampleData, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a PropertySystem from a snapshot and a mutation log,
+     * replaying the log on a chosen number of threads. The result does
+     * not depend on the number of threads.
+     *
+     * @param snapshotFile the snapshot file name, or null to use none
+     * @param mutationLog the log to use, or null to keep no log
+     * @param sampleData true to load the sample properties into an empty
+     *                   system; false to leave it empty
+     * @param replayThreads the number of threads to replay the log on
+     *                      (at least 1)
+     */
+    public PropertySystem(String snapshotFile, MutationLog mutationLog, boolean sampleData, int replayThreads) {
+        properties = new PropertyTable();
+        propertiesByName = new ConcurrentHashMap<String, Property>();
+        ledger = new EarningsLedger();
+        availability = new AvailabilityIndex();
+        log = null;
+        view = new SystemSnapshot();
+        recover(snapshotFile, mutationLog, sampleData, Math.max(1, replayThreads));
+    }
+
+    /**
+     * Constructs a PropertySystem that records its changes in a mutation
+     * log. If the log already has records, they are replayed to rebuild
+     * the system; otherwise the sample properties are loaded and logged.
+     *
+     * @param mutationLog the log to use, or null to keep no log
+     */
+    public PropertySystem(MutationLog mutationLog) {
+        this(null, mutationLog);
+    }
+
+    /**
+     * Rebuilds the system from a snapshot and a log, loads the sample
+     * properties if neither holds anything and they are wanted, and then
+     * attaches the log.
+     * The log is replayed on one partition per thread. How long each
+     * step took is kept as the recovery statistics.
+     *
+     * @param snapshotFile the snapshot file name, or null to use none
+     * @param mutationLog the log to use, or null to keep no log
+     * @param sampleData true to load the sample properties into an empty
+     *                   system
+     * @param threads the number of threads to replay the log on
+     */
+    private void recover(String snapshotFile, MutationLog mutationLog, boolean sampleData, int threads) {
+        long started = System.nanoTime();
+        SnapshotFile.Contents snapshot = null;
+
+        if (snapshotFile != null) {
+            snapshot = SnapshotFile.read(Paths.get(snapshotFile));
+        }
+
+        if (snapshot != null && mutationLog != null && mutationLog.getEndLsn() < snapshot.endLsn) {
+            System.out.println("Error: " + snapshotFile + " is newer than the log and was ignored.");
+            snapshot = null;
+        }
+
+        long needed = snapshot == null ? 0 : snapshot.tableLsn;
+        if (mutationLog != null && mutationLog.getStartLsn() > needed) {
+            System.out.println("Error: The log starts at change " + mutationLog.getStartLsn() + " but change "
+                    + needed + " is needed; the changes in between are lost.");
+        }
+
+        if (snapshot != null) {
+            loadSnapshot(snapshot);
+        }
+
+        long loaded = System.nanoTime();
+        Replayer replayer = new Replayer(snapshot);
+        long recordsInLog = mutationLog == null ? 0 : mutationLog.getRecordCount();
+        long logEnd = mutationLog == null ? 0 : mutationLog.getEndLsn();
+        long replayed = 0;
+
+        if (recordsInLog > 0) {
+            replayed = mutationLog.replay(replayer, threads);
+
+            if (replayer.mismatches.get() > 0) {
+                System.out.println("Error: " + replayer.mismatches.get() + " logged changes could not be replayed.");
+            }
+        }
+
+        recovery = new RecoveryStats(snapshot == null ? 0 : snapshot.ids.length, (loaded - started) / 1000000,
+                recordsInLog, replayed, replayer.mismatches.get(), threads, (System.nanoTime() - loaded) / 1000000);
+        log = mutationLog;
+
+        if (sampleData && snapshot == null && logEnd == 0) {
+            seedSampleProperties();
+            syncLog();
+        }
+    }
+
+    /**
+     * Returns how the system was rebuilt when it was constructed.
+     *
+     * @return the recovery statistics
+     */
+    public RecoveryStats getRecoveryStats() {
+        return recovery;
+    }
+
+    /**
+     * Fills this empty system from a decoded snapshot. The properties are
+     * built in parallel and put back in the exact table slots they were
+     * saved from, so their IDs stay the same.
+     *
+     * @param snapshot the decoded snapshot
+     */
+    private void loadSnapshot(SnapshotFile.Contents snapshot) {
+        Property[] bySlot = new Property[snapshot.generations.length];
+
+        IntStream.range(0, snapshot.ids.length).parallel().forEach(i ->
+                bySlot[PropertyTable.slotOf(snapshot.ids[i])] = Property.fromState(snapshot.state(i)));
+
+        properties.restore(snapshot.generations, bySlot, snapshot.freeSlots);
+        propertiesByName = new ConcurrentHashMap<String, Property>(Math.max(16, snapshot.ids.length * 2));
+
+        IntStream.range(0, snapshot.ids.length).parallel().forEach(i -> {
+            long id = snapshot.ids[i];
+            int slot = PropertyTable.slotOf(id);
+            Property p = bySlot[slot];
+
+            propertiesByName.put(p.getName(), p);
+            p.attachLedger(ledger);
+            p.setAvailabilityListener(availability.listenerFor(slot));
+            p.setReservationListener(new LogWriter(id));
+            p.setStateListener(properties.listenerFor(slot));
+            availability.update(slot, 0L, p.getFreeDaysMask());
+        });
+    }
+
+    /**
+     * Writes a snapshot of the whole system to a file. Bookings and other
+     * changes to existing properties go on while the snapshot is written;
+     * each property is only held still while it is copied. Adding,
+     * removing, and renaming properties wait until every property has been
+     * copied, and the copies are then written out without holding them
+     * back. The log is synced before the snapshot is put in place, so a
+     * snapshot never holds a change the log could lose. Once it is in
+     * place, the log is cut to the records the snapshot does not hold, so
+     * the system must be started from this snapshot from then on.
+     * Snapshots are written one at a time.
+     *
+     * @param fileName the snapshot file name
+     * @return true if the snapshot was written; false otherwise
+     */
+    public boolean writeSnapshot(String fileName) {
+        boolean written = false;
+        MutationLog current = log;
+
+        synchronized (snapshotLock) {
+            long tableLsn;
+            long[] ids;
+            int[] generations;
+            int[] freeSlots;
+            PropertyState[] states;
+            long[] lsns;
+
+            structureLock.writeLock().lock();
+            try {
+                synchronized (properties) {
+                    tableLsn = current == null ? 0 : current.nextLsn();
+                    ids = properties.getIds();
+                    generations = properties.copyGenerations();
+                    freeSlots = properties.copyFreeSlots();
+                }
+
+                states = new PropertyState[ids.length];
+                lsns = new long[ids.length];
+
+                int i = 0;
+                while (i < ids.length) {
+                    Property p = properties.get(ids[i]);
+
+                    p.getLock().writeLock().lock();
+                    try {
+                        states[i] = p.getState();
+                        lsns[i] = current == null ? 0 : current.nextLsn();
+                    } finally {
+                        p.getLock().writeLock().unlock();
+                    }
+                    i = i + 1;
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+
+            long endLsn = current == null ? 0 : current.nextLsn();
+            SnapshotFile.Writer writer = SnapshotFile.create(Paths.get(fileName), tableLsn, generations,
+                    freeSlots, ids.length);
+
+            int i = 0;
+            while (writer != null && i < ids.length) {
+                try {
+                    writer.add(ids[i], lsns[i], states[i]);
+                } catch (IOException e) {
+                    System.out.println("Error: Could not write snapshot " + fileName + ": " + e.getMessage());
+                    writer.abort();
+                    writer = null;
+                }
+                i = i + 1;
+            }
+
+            if (writer != null) {
+                if (current == null || current.sync()) {
+                    written = writer.finish(endLsn);
+                } else {
+                    writer.abort();
+                }
+            }
+
+            if (written && current != null) {
+                current.cutBefore(tableLsn);
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Writes a snapshot on a background thread.
+     *
+     * @param fileName the snapshot file name
+     * @return the pending result, true once the snapshot is written
+     */
+    public Future<Boolean> writeSnapshotInBackground(String fileName) {
+        FutureTask<Boolean> task = new FutureTask<Boolean>(() -> writeSnapshot(fileName));
+        Thread writer = new Thread(task, "snapshot-writer");
+
+        writer.setDaemon(true);
+        writer.start();
+
+        return task;
     }
 
     /**
@@ -30,67 +346,157 @@ public class PropertySystem {
      */
     private void seedSampleProperties() {
         Property p1 = new Property("Grand Residences", PropertyType.fromChoice(1));
-        for (int d = 1; d <= 30; d++) p1.addDate(new Date(d));
-        properties.add(p1);
-        reservationsPerProperty.add(new ArrayList<Reservation>());
+        for (int d = 1; d <= Property.MAX_DAY; d++) p1.listDay(d);
+        long id1 = addProperty(p1);
 
 
         Property p2 = new Property("Arasaka Tower", PropertyType.fromChoice(2));
-        for (int d = 1; d <= 15; d++) p2.addDate(new Date(d));
-        for (int d = 21; d <= 25; d++) p2.addDate(new Date(d));
-        properties.add(p2);
-        reservationsPerProperty.add(new ArrayList<Reservation>());
+        for (int d = 1; d <= 15; d++) p2.listDay(d);
+        for (int d = 21; d <= 25; d++) p2.listDay(d);
+        long id2 = addProperty(p2);
 
 
         Property p3 = new Property("Bolinao Reservations", PropertyType.fromChoice(3));
-        for (int d = 10; d <= 20; d++) p3.addDate(new Date(d));
-        properties.add(p3);
-        reservationsPerProperty.add(new ArrayList<Reservation>());
+        for (int d = 10; d <= 20; d++) p3.listDay(d);
+        long id3 = addProperty(p3);
 
 
         Property p4 = new Property("Sunset Retreat", PropertyType.fromChoice(4));
-        for (int d = 5; d <= 25; d++) p4.addDate(new Date(d));
-        properties.add(p4);
-        reservationsPerProperty.add(new ArrayList<Reservation>());
+        for (int d = 5; d <= 25; d++) p4.listDay(d);
+        long id4 = addProperty(p4);
 
 
         Property p5 = new Property("Mountain Edge", PropertyType.fromChoice(2));
-        for (int d = 1; d <= 10; d++) p5.addDate(new Date(d));
-        for (int d = 18; d <= 28; d++) p5.addDate(new Date(d));
-        properties.add(p5);
-        reservationsPerProperty.add(new ArrayList<Reservation>());
+        for (int d = 1; d <= 10; d++) p5.listDay(d);
+        for (int d = 18; d <= 28; d++) p5.listDay(d);
+        long id5 = addProperty(p5);
 
 
 // Bookings
-        Reservation r1 = new Reservation("Paolo", 2, 4);
-        Reservation r2 = new Reservation("Ammiel", 5, 9);
-        Reservation r3 = new Reservation("Johnny SilverHand", 11, 13);
-        Reservation r4 = new Reservation("Adam Smasher", 15, 20);
-        Reservation r5 = new Reservation("Han Helldiver", 7, 14);
-        Reservation r6 = new Reservation("Master Chief", 1, 3);
-        Reservation r7 = new Reservation("Fireful FlyShine", 19, 24);
+        addReservation(id1, "Paolo", 2, 4);
+        addReservation(id1, "Ammiel", 5, 9);
+        addReservation(id2, "Johnny SilverHand", 11, 13);
+        addReservation(id3, "Adam Smasher", 15, 20);
+        addReservation(id4, "Han Helldiver", 7, 14);
+        addReservation(id5, "Master Chief", 1, 3);
+        addReservation(id5, "Fireful FlyShine", 19, 24);
+
+
+// Environmental Modifiers
+        setEnvironmentalRateForRange(id1, 1, 10, 0.90);
+        setEnvironmentalRateForRange(id1, 11, 20, 1.10);
+        setEnvironmentalRateForRange(id2, 1, 15, 1.00);
+        setEnvironmentalRateForRange(id2, 21, 25, 0.85);
+        setEnvironmentalRateForRange(id3, 10, 15, 1.20);
+        setEnvironmentalRateForRange(id3, 16, 20, 0.80);
+        setEnvironmentalRateForRange(id4, 5, 15, 0.95);
+        setEnvironmentalRateForRange(id4, 16, 25, 1.05);
+        setEnvironmentalRateForRange(id5, 1, 10, 0.88);
+        setEnvironmentalRateForRange(id5, 18, 28, 1.15);
+    }
 
+    /**
+     * Stores a new property, registers its name in the name index,
+     * attaches it to the earnings ledger, and adds its free days to the
+     * availability index. The name is claimed first, so two threads can
+     * never add properties with the same name. The property's write lock
+     * is held until it is fully registered.
+     *
+     * @param p the property to store
+     * @return the ID of the stored property; -1 if the name is taken
+     */
+    private long addProperty(Property p) {
+        long id = -1;
+
+        structureLock.readLock().lock();
+        try {
+            id = registerProperty(p);
+        } finally {
+            structureLock.readLock().unlock();
+        }
 
-        p1.addReservation(r1); reservationsPerProperty.get(0).add(r1);
-        p1.addReservation(r2); reservationsPerProperty.get(0).add(r2);
-        p2.addReservation(r3); reservationsPerProperty.get(1).add(r3);
-        p3.addReservation(r4); reservationsPerProperty.get(2).add(r4);
-        p4.addReservation(r5); reservationsPerProperty.get(3).add(r5);
-        p5.addReservation(r6); reservationsPerProperty.get(4).add(r6);
-        p5.addReservation(r7); reservationsPerProperty.get(4).add(r7);
+        return id;
+    }
+
+    /**
+     * Does the work of addProperty. The caller must hold the read side of
+     * the structure lock.
+     *
+     * @param p the property to store
+     * @return the ID of the stored property; -1 if the name is taken
+     */
+    private long registerProperty(Property p) {
+        long id = -1;
+
+        if (propertiesByName.putIfAbsent(p.getName(), p) == null) {
+            p.getLock().writeLock().lock();
+            try {
+                synchronized (properties) {
+                    id = properties.add(p);
+
+                    MutationLog current = log;
+                    if (current != null) {
+                        current.appendCreate(id, p.getName(), PropertyType.toChoice(p.getType()),
+                                p.getListedDaysMask());
+                    }
+                }
+                p.attachLedger(ledger);
+                p.setAvailabilityListener(availability.listenerFor(PropertyTable.slotOf(id)));
+                p.setReservationListener(new LogWriter(id));
+                p.setStateListener(properties.listenerFor(PropertyTable.slotOf(id)));
+                availability.update(PropertyTable.slotOf(id), 0L, p.getFreeDaysMask());
+            } finally {
+                p.getLock().writeLock().unlock();
+            }
+        }
 
+        return id;
+    }
 
-// Environmental Modifiers
-        setEnvironmentalRateForRange(0, 1, 10, 0.90);
-        setEnvironmentalRateForRange(0, 11, 20, 1.10);
-        setEnvironmentalRateForRange(1, 1, 15, 1.00);
-        setEnvironmentalRateForRange(1, 21, 25, 0.85);
-        setEnvironmentalRateForRange(2, 10, 15, 1.20);
-        setEnvironmentalRateForRange(2, 16, 20, 0.80);
-        setEnvironmentalRateForRange(3, 5, 15, 0.95);
-        setEnvironmentalRateForRange(3, 16, 25, 1.05);
-        setEnvironmentalRateForRange(4, 1, 10, 0.88);
-        setEnvironmentalRateForRange(4, 18, 28, 1.15);
+    /**
+     * Looks up a property and takes its write lock. The ID is checked
+     * again once the lock is held, so a property removed in the meantime
+     * is never changed. The caller must unlock the property when done.
+     *
+     * @param propertyId the property ID
+     * @return the locked Property, or null if the ID is not valid
+     */
+    private Property lockForWrite(long propertyId) {
+        Property p = properties.get(propertyId);
+
+        if (p != null) {
+            p.getLock().writeLock().lock();
+
+            if (properties.get(propertyId) != p) {
+                p.getLock().writeLock().unlock();
+                p = null;
+            }
+        }
+
+        return p;
+    }
+
+    /**
+     * Looks up a property and takes its read lock. The ID is checked
+     * again once the lock is held, so a property removed in the meantime
+     * is never used. The caller must unlock the property when done.
+     *
+     * @param propertyId the property ID
+     * @return the locked Property, or null if the ID is not valid
+     */
+    private Property lockForRead(long propertyId) {
+        Property p = properties.get(propertyId);
+
+        if (p != null) {
+            p.getLock().readLock().lock();
+
+            if (properties.get(propertyId) != p) {
+                p.getLock().readLock().unlock();
+                p = null;
+            }
+        }
+
+        return p;
     }
 
     /**
@@ -103,55 +509,97 @@ public class PropertySystem {
     }
 
     /**
-     * Retrieves the Property at a specific index.
-     * If the index is invalid, null is returned.
+     * Returns the IDs of all stored properties.
      *
-     * @param index the property index
-     * @return the Property, or null if index is invalid
+     * @return an array of property IDs
      */
-    public Property getProperty(int index) {
-        Property result = null;
+    public long[] getPropertyIds() {
+        return properties.getIds();
+    }
 
-        if (index >= 0 && index < properties.size()) {
-            result = properties.get(index);
+    /**
+     * Returns an unchanging view of every property as it is now. The view
+     * can be kept and read from any thread without locking, and it does
+     * not follow later changes. Only the parts of the system that changed
+     * since the last view are copied; if nothing changed, the last view
+     * itself is returned. This is not the snapshot file written by
+     * writeSnapshot. The caller must not hold the lock of any property.
+     *
+     * @return the current view of the system
+     */
+    public SystemSnapshot snapshot() {
+        synchronized (viewLock) {
+            view = SystemSnapshot.refresh(view, properties);
+            return view;
         }
+    }
 
-        return result;
+    /**
+     * Retrieves the Property with a specific ID.
+     * If the ID is invalid or the property was removed, null is returned.
+     *
+     * @param propertyId the property ID
+     * @return the Property, or null if the ID is invalid
+     */
+    public Property getProperty(long propertyId) {
+        return properties.get(propertyId);
+    }
+
+    /**
+     * Returns the estimated earnings of the whole portfolio.
+     * The total is kept up to date by the properties themselves.
+     *
+     * @return the sum of the estimated earnings of all properties
+     */
+    public double getPortfolioEarnings() {
+        return ledger.getTotal();
+    }
+
+    /**
+     * Returns the estimated earnings of the portfolio split by property type.
+     * Only types that have had a property are included.
+     *
+     * @return a map from type display name to estimated earnings
+     */
+    public Map<String, Double> getEarningsByType() {
+        return ledger.getTotalsByType();
     }
 
     /**
      * Checks if a property name already exists.
+     * The name is looked up in the name index instead of scanning every property.
      *
      * @param name the name to check
      * @return true if a property with this name exists; false otherwise
      */
     public boolean propertyNameExists(String name) {
-        boolean exists = false;
-        int i = 0;
-
-        while (i < properties.size()) {
-            if (properties.get(i).getName().equals(name)) {
-                exists = true;
-            }
-            i = i + 1;
-        }
+        return propertiesByName.containsKey(name);
+    }
 
-        return exists;
+    /**
+     * Finds the property with the given name.
+     *
+     * @param name the name to look up
+     * @return the Property with that name, or null if none exists
+     */
+    public Property findPropertyByName(String name) {
+        return propertiesByName.get(name);
     }
 
     /**
      * Creates a new property with a given name, type, and listed days.
      * Only valid days (1–30) are added. Duplicate days are ignored.
-     * If creation succeeds, the index of the new property is returned.
-     * If creation fails (for example, no valid days), -1 is returned.
+     * If creation succeeds, the ID of the new property is returned.
+     * If creation fails (for example, no valid days, or the log cannot
+     * be written), -1 is returned.
      *
      * @param name the name of the property
      * @param type the type of the property
      * @param days an array of day numbers to list (1–30)
-     * @return the index of the new property; -1 if creation fails
+     * @return the ID of the new property; -1 if creation fails
      */
-    public int createProperty(String name, PropertyType type, int[] days) {
-        int index = -1;
+    public long createProperty(String name, PropertyType type, int[] days) {
+        long id = -1;
 
         if (name != null && type != null && days != null && days.length > 0 && !propertyNameExists(name)) {
             Property p = new Property(name, type);
@@ -160,37 +608,60 @@ public class PropertySystem {
             while (i < days.length) {
                 int day = days[i];
 
-                if (day >= 1 && day <= 30) {
-                    p.addDate(new Date(day));
-                }
-
+                p.listDay(day);
                 i = i + 1;
             }
 
-            if (p.getAvailableDates().length > 0) {
-                properties.add(p);
-                reservationsPerProperty.add(new ArrayList<Reservation>());
-                index = properties.size() - 1;
+            if (p.getListedDaysMask() != 0 && !logFailed()) {
+                id = addProperty(p);
+
+                if (!syncLog() && id >= 0) {
+                    unregisterProperty(id);
+                    id = -1;
+                }
             }
         }
 
-        return index;
+        return id;
     }
 
     /**
      * Changes the name of a property if the new name is not a duplicate.
+     * The rename is logged before the old name is given up, so a property
+     * that takes the old name is always logged after it.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @param newName the new name to set
      * @return true if the name is changed; false otherwise
      */
-    public boolean changePropertyName(int index, String newName) {
+    public boolean changePropertyName(long propertyId, String newName) {
         boolean changed = false;
 
-        if (index >= 0 && index < properties.size() && newName != null && !propertyNameExists(newName)) {
-            Property p = properties.get(index);
-            p.setName(newName);
-            changed = true;
+        if (newName != null && !logFailed()) {
+            structureLock.readLock().lock();
+            try {
+                Property p = lockForWrite(propertyId);
+
+                if (p != null) {
+                    try {
+                        if (propertiesByName.putIfAbsent(newName, p) == null) {
+                            MutationLog current = log;
+                            if (current != null) {
+                                current.appendRename(propertyId, newName);
+                            }
+
+                            propertiesByName.remove(p.getName(), p);
+                            p.setName(newName);
+                            changed = true;
+                        }
+                    } finally {
+                        p.getLock().writeLock().unlock();
+                    }
+                }
+            } finally {
+                structureLock.readLock().unlock();
+            }
+            changed = syncLog() && changed;
         }
 
         return changed;
@@ -199,17 +670,15 @@ public class PropertySystem {
     /**
      * Returns true if this property has at least one reservation.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @return true if there are reservations; false otherwise
      */
-    public boolean hasReservations(int index) {
+    public boolean hasReservations(long propertyId) {
         boolean has = false;
+        Property p = properties.get(propertyId);
 
-        if (index >= 0 && index < reservationsPerProperty.size()) {
-            ArrayList<Reservation> list = reservationsPerProperty.get(index);
-            if (!list.isEmpty()) {
-                has = true;
-            }
+        if (p != null) {
+            has = p.hasReservations();
         }
 
         return has;
@@ -220,17 +689,27 @@ public class PropertySystem {
      * This method does not check for reservations; this should be done
      * by the caller before calling this method.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @param newBase the new base price
-     * @return true if the property exists and the price was updated; false otherwise
+     * @return true if the property exists and the price was updated and
+     *         logged; false otherwise
      */
-    public boolean updateBasePrice(int index, double newBase) {
+    public boolean updateBasePrice(long propertyId, double newBase) {
         boolean updated = false;
+        Property p = logFailed() ? null : lockForWrite(propertyId);
 
-        if (index >= 0 && index < properties.size()) {
-            Property p = properties.get(index);
-            p.updateBasePrice(newBase);
-            updated = true;
+        if (p != null) {
+            try {
+                p.updateBasePrice(newBase);
+
+                MutationLog current = log;
+                if (current != null && newBase >= 100.0) {
+                    current.appendBasePrice(propertyId, newBase);
+                }
+            } finally {
+                p.getLock().writeLock().unlock();
+            }
+            updated = syncLog();
         }
 
         return updated;
@@ -239,17 +718,26 @@ public class PropertySystem {
     /**
      * Changes the type of a property.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @param newType the new property type
      * @return true if updated; false otherwise
      */
-    public boolean changePropertyType(int index, PropertyType newType) {
+    public boolean changePropertyType(long propertyId, PropertyType newType) {
         boolean updated = false;
+        Property p = newType == null || logFailed() ? null : lockForWrite(propertyId);
 
-        if (index >= 0 && index < properties.size() && newType != null) {
-            Property p = properties.get(index);
-            p.setType(newType);
-            updated = true;
+        if (p != null) {
+            try {
+                p.setType(newType);
+
+                MutationLog current = log;
+                if (current != null) {
+                    current.appendType(propertyId, PropertyType.toChoice(newType));
+                }
+            } finally {
+                p.getLock().writeLock().unlock();
+            }
+            updated = syncLog();
         }
 
         return updated;
@@ -257,68 +745,98 @@ public class PropertySystem {
 
     /**
      * Removes a property and its reservations if it has no reservations.
+     * The property's ID becomes invalid and is never reused.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @return true if removed; false otherwise
      */
-    public boolean removeProperty(int index) {
+    public boolean removeProperty(long propertyId) {
         boolean removed = false;
 
-        if (index >= 0 && index < properties.size() && !hasReservations(index)) {
-            properties.remove(index);
-            reservationsPerProperty.remove(index);
-            removed = true;
+        if (!logFailed()) {
+            removed = unregisterProperty(propertyId);
+            removed = syncLog() && removed;
         }
 
         return removed;
     }
 
     /**
-     * Returns the list of reservations for a specific property.
-     * If the index is invalid, an empty list is returned.
+     * Does the work of removeProperty without waiting for the log. Also
+     * used to undo the creation of a property whose log record could not
+     * be written.
      *
-     * @param index the property index
-     * @return the list of reservations (may be empty)
+     * @param propertyId the property ID
+     * @return true if removed; false otherwise
      */
-    public ArrayList<Reservation> getReservationsForProperty(int index) {
-        ArrayList<Reservation> result = new ArrayList<Reservation>();
-
-        if (index >= 0 && index < reservationsPerProperty.size()) {
-            ArrayList<Reservation> original = reservationsPerProperty.get(index);
+    private boolean unregisterProperty(long propertyId) {
+        boolean removed = false;
 
-            int i = 0;
-            while (i < original.size()) {
-                result.add(original.get(i));
-                i = i + 1;
+        structureLock.readLock().lock();
+        try {
+            Property p = lockForWrite(propertyId);
+
+            if (p != null) {
+                try {
+                    if (!p.hasReservations()) {
+                        p.detachLedger();
+                        p.setAvailabilityListener(null);
+                        p.setReservationListener(null);
+                        availability.update(PropertyTable.slotOf(propertyId), p.getFreeDaysMask(), 0L);
+                        synchronized (properties) {
+                            properties.remove(propertyId);
+
+                            MutationLog current = log;
+                            if (current != null) {
+                                current.appendRemove(propertyId);
+                            }
+                        }
+                        propertiesByName.remove(p.getName(), p);
+                        removed = true;
+                    }
+                } finally {
+                    p.getLock().writeLock().unlock();
+                }
             }
+        } finally {
+            structureLock.readLock().unlock();
         }
 
-        return result;
+        return removed;
     }
 
     /**
-     * Removes a reservation by its position in the list of a property.
+     * Returns a copy of the reservations of a specific property, taken in
+     * one step so bookings on other threads cannot change it halfway. If the ID is invalid, an empty list is returned.
      *
-     * @param propertyIndex the property index
-     * @param reservationIndex the index of the reservation to remove
-     * @return true if removed successfully; false otherwise
+     * @param propertyId the property ID
+     * @return the list of reservations (may be empty)
      */
-    public boolean removeReservation(int propertyIndex, int reservationIndex) {
-        boolean removed = false;
+    public List<Reservation> getReservationsForProperty(long propertyId) {
+        List<Reservation> result = Collections.emptyList();
+        Property p = properties.get(propertyId);
 
-        if (propertyIndex >= 0 && propertyIndex < properties.size() &&
-                reservationIndex >= 0 && reservationIndex < reservationsPerProperty.get(propertyIndex).size()) {
+        if (p != null) {
+            result = p.copyReservations();
+        }
 
-            ArrayList<Reservation> list = reservationsPerProperty.get(propertyIndex);
-            Reservation target = list.get(reservationIndex);
+        return result;
+    }
 
-            Property p = properties.get(propertyIndex);
-            boolean unbooked = p.removeReservation(target);
+    /**
+     * Removes a reservation from a property.
+     *
+     * @param propertyId the property ID
+     * @param reservation the reservation to remove, as returned by this system
+     * @return true if removed successfully; false otherwise
+     */
+    public boolean removeReservation(long propertyId, Reservation reservation) {
+        boolean removed = false;
+        Property p = properties.get(propertyId);
 
-            if (unbooked) {
-                list.remove(reservationIndex);
-                removed = true;
-            }
+        if (p != null && !logFailed()) {
+            removed = p.removeReservation(reservation);
+            removed = syncLog() && removed;
         }
 
         return removed;
@@ -326,90 +844,527 @@ public class PropertySystem {
 
     /**
      * Checks if all dates in a given range are listed and available.
+     * The check is answered by the property's availability masks.
      *
-     * @param propertyIndex the property to check
+     * @param propertyId the property to check
      * @param checkIn the check-in day
      * @param checkOut the check-out day
      * @return true if all dates are available; false otherwise
      */
-    public boolean areDatesAvailable(int propertyIndex, int checkIn, int checkOut) {
-        boolean available = true;
+    public boolean areDatesAvailable(long propertyId, int checkIn, int checkOut) {
+        boolean available = false;
+        Property p = properties.get(propertyId);
 
-        if (propertyIndex >= 0 && propertyIndex < properties.size() &&
-                checkOut > checkIn) {
+        if (p != null) {
+            available = p.isRangeAvailable(checkIn, checkOut);
+        }
 
-            Property p = properties.get(propertyIndex);
-            int day = checkIn;
+        return available;
+    }
 
-            while (day < checkOut) {
-                Date d = p.getDateByDay(day);
+    /**
+     * Finds every property that is free for the whole stay.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the IDs of the matching properties
+     */
+    public long[] findAvailableProperties(int checkIn, int checkOut) {
+        return findAvailableProperties(checkIn, checkOut, null, 0, 0);
+    }
+
+    /**
+     * Finds every property that is free for the whole stay and matches
+     * the given filters. Candidates come from intersecting the
+     * availability index's per-day sets, so only free properties are
+     * looked at when applying the filters. The index is only a hint and
+     * may still list a property whose nights were just booked, so each
+     * candidate must be, and is, checked against its own calendar.
+     *
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @param type the property type to match, or null for any type
+     * @param maxTotalPrice the highest total stay price allowed, or 0 for no limit
+     * @param maxRate the highest environmental rate allowed on any night, or 0 for no limit
+     * @return the IDs of the matching properties
+     */
+    public long[] findAvailableProperties(int checkIn, int checkOut, PropertyType type,
+                                          double maxTotalPrice, double maxRate) {
+        BitSet candidates = availability.findFreeSlots(checkIn, checkOut);
+        long[] found = new long[candidates.cardinality()];
+        int count = 0;
+        int slot = candidates.nextSetBit(0);
+
+        while (slot >= 0) {
+            long id = properties.idOfSlot(slot);
+            Property p = properties.get(id);
+            boolean matches = p != null && p.isRangeAvailable(checkIn, checkOut);
+
+            if (matches) {
+                matches = matchesType(p, type);
+            }
+            if (matches && maxTotalPrice > 0) {
+                matches = p.getStayPrice(checkIn, checkOut) <= maxTotalPrice;
+            }
+            if (matches && maxRate > 0) {
+                matches = p.getMaxRate(checkIn, checkOut) <= maxRate;
+            }
+
+            if (matches) {
+                found[count] = id;
+                count = count + 1;
+            }
+
+            slot = candidates.nextSetBit(slot + 1);
+        }
+
+        return Arrays.copyOf(found, count);
+    }
 
-                if (d == null || !d.isAvailable()) {
-                    available = false;
+    /**
+     * Finds, for every property, the earliest check-in day from which a
+     * stay of the given number of nights is listed and free. Properties
+     * are checked in parallel; each check is a few mask operations.
+     *
+     * @param nights the length of the stay
+     * @param type the property type to match, or null for any type
+     * @return one StayOption per property that has room, in property order
+     */
+    public List<StayOption> findEarliestStays(int nights, PropertyType type) {
+        long[] ids = properties.getIds();
+        StayOption[] earliest = new StayOption[ids.length];
+
+        IntStream.range(0, ids.length).parallel().forEach(i -> {
+            Property p = properties.get(ids[i]);
+
+            if (p != null && matchesType(p, type)) {
+                int start = p.findEarliestStart(nights);
+
+                if (start > 0) {
+                    earliest[i] = new StayOption(ids[i], p.getName(), start, start + nights,
+                            p.getStayPrice(start, start + nights),
+                            p.getNightlyPrices(start, start + nights));
                 }
+            }
+        });
 
-                day = day + 1;
+        ArrayList<StayOption> result = new ArrayList<StayOption>();
+        int i = 0;
+
+        while (i < earliest.length) {
+            if (earliest[i] != null) {
+                result.add(earliest[i]);
             }
+            i = i + 1;
         }
-        else {
-            available = false;
+
+        return result;
+    }
+
+    /**
+     * Finds, for every property, all check-in days from which a stay of
+     * the given number of nights is listed and free. Properties are
+     * checked in parallel.
+     *
+     * @param nights the length of the stay
+     * @param type the property type to match, or null for any type
+     * @return a map from property ID to its possible check-in days, in
+     *         property order; properties with no room are left out
+     */
+    public Map<Long, int[]> findAllStayStarts(int nights, PropertyType type) {
+        long[] ids = properties.getIds();
+        int[][] starts = new int[ids.length][];
+
+        IntStream.range(0, ids.length).parallel().forEach(i -> {
+            Property p = properties.get(ids[i]);
+
+            if (p != null && matchesType(p, type)) {
+                starts[i] = toDays(p.getStayStartsMask(nights));
+            }
+        });
+
+        LinkedHashMap<Long, int[]> result = new LinkedHashMap<Long, int[]>();
+        int i = 0;
+
+        while (i < ids.length) {
+            if (starts[i] != null && starts[i].length > 0) {
+                result.put(ids[i], starts[i]);
+            }
+            i = i + 1;
         }
 
-        return available;
+        return result;
+    }
+
+    /**
+     * Finds the cheapest stays of the given number of nights across all
+     * properties. Every listed and free window of every property is
+     * priced from the property's prefix sums, and only the k cheapest are
+     * kept. The search runs with fork/join over the properties.
+     *
+     * @param nights the length of the stay
+     * @param type the property type to match, or null for any type
+     * @param k the number of stays to return
+     * @return up to k stays, cheapest first
+     */
+    public List<StayOption> findCheapestStays(int nights, PropertyType type, int k) {
+        ArrayList<StayOption> result = new ArrayList<StayOption>();
+
+        if (k > 0) {
+            long[] ids = properties.getIds();
+            PriorityQueue<CheapestStayTask.Candidate> heap = ForkJoinPool.commonPool().invoke(
+                    new CheapestStayTask(properties, ids, 0, ids.length, nights, type, k));
+            CheapestStayTask.Candidate[] cheapest = new CheapestStayTask.Candidate[heap.size()];
+            int i = cheapest.length - 1;
+
+            while (i >= 0) {
+                cheapest[i] = heap.poll();
+                i = i - 1;
+            }
+
+            i = 0;
+            while (i < cheapest.length) {
+                CheapestStayTask.Candidate c = cheapest[i];
+                int checkOut = c.checkIn + nights;
+
+                result.add(new StayOption(c.propertyId, c.property.getName(), c.checkIn, checkOut,
+                        c.total, c.property.getNightlyPrices(c.checkIn, checkOut)));
+                i = i + 1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Checks whether a property is of the given type.
+     *
+     * @param p the property to check
+     * @param type the type to match, or null to match any type
+     * @return true if the property matches; false otherwise
+     */
+    static boolean matchesType(Property p, PropertyType type) {
+        return type == null || p.getType().getDisplayName().equals(type.getDisplayName());
+    }
+
+    /**
+     * Lists the day numbers whose bits are set in a day mask.
+     *
+     * @param mask the day mask (day N is bit N - 1)
+     * @return the days in ascending order
+     */
+    private static int[] toDays(long mask) {
+        int[] days = new int[Long.bitCount(mask)];
+        long remaining = mask;
+        int idx = 0;
+
+        while (remaining != 0) {
+            days[idx] = Long.numberOfTrailingZeros(remaining) + 1;
+            idx = idx + 1;
+            remaining = remaining & (remaining - 1);
+        }
+
+        return days;
     }
 
     /**
      * Adds a reservation for a property if possible.
-     * The reservation is added to both the Property and the internal list.
-     * If adding fails, null is returned.
+     * The reservation is stored in the Property's reservation store.
+     * If adding fails, null is returned; use tryBook to learn why.
      *
-     * @param propertyIndex the property index
+     * @param propertyId the property ID
      * @param guest the guest name
      * @param checkIn the check-in day
      * @param checkOut the check-out day
      * @return the Reservation object if added; null otherwise
      */
-    public Reservation addReservation(int propertyIndex, String guest, int checkIn, int checkOut) {
-        Reservation created = null;
+    public Reservation addReservation(long propertyId, String guest, int checkIn, int checkOut) {
+        return tryBook(propertyId, guest, checkIn, checkOut).getReservation();
+    }
+
+    /**
+     * Checks and books a stay in one atomic step. The nights are reserved
+     * with a compare-and-swap loop on the property's calendar while
+     * holding only the property's read lock, so bookings of the same or
+     * other properties never wait for each other, and two guests can
+     * never both get the same night. The property reports the booked
+     * nights to the availability index itself.
+     *
+     * @param propertyId the property ID
+     * @param guest the guest name
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @return the outcome, with the new reservation or the conflicting nights
+     */
+    public BookingResult tryBook(long propertyId, String guest, int checkIn, int checkOut) {
+        BookingResult result;
+
+        if (guest == null || !Property.isValidStay(checkIn, checkOut)) {
+            result = new BookingResult(BookingResult.Status.INVALID_REQUEST, null, new int[0]);
+        } else if (logFailed()) {
+            result = new BookingResult(BookingResult.Status.NOT_SAVED, null, new int[0]);
+        } else {
+            Property p = lockForRead(propertyId);
+
+            if (p == null) {
+                result = new BookingResult(BookingResult.Status.UNKNOWN_PROPERTY, null, new int[0]);
+            } else {
+                try {
+                    Reservation r = new Reservation(guest, checkIn, checkOut);
+                    long conflicts = p.tryAddReservation(r);
+
+                    if (conflicts == 0) {
+                        result = new BookingResult(BookingResult.Status.BOOKED, r, new int[0]);
+                    } else if (conflicts == -1L) {
+                        result = new BookingResult(BookingResult.Status.INVALID_REQUEST, null, new int[0]);
+                    } else {
+                        result = new BookingResult(BookingResult.Status.CONFLICT, null, toDays(conflicts));
+                    }
+                } finally {
+                    p.getLock().readLock().unlock();
+                }
+
+                if (!syncLog()) {
+                    result = undoBooking(propertyId, result);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Takes back a booking whose log record could not be written, so no
+     * guest holds nights that would be lost on a restart.
+     *
+     * @param propertyId the property ID
+     * @param result the outcome of the booking
+     * @return a NOT_SAVED outcome if the stay had been booked; otherwise
+     *         the outcome unchanged
+     */
+    private BookingResult undoBooking(long propertyId, BookingResult result) {
+        BookingResult undone = result;
+
+        if (result.isBooked()) {
+            Property p = properties.get(propertyId);
+
+            if (p != null) {
+                p.removeReservation(result.getReservation());
+            }
+            undone = new BookingResult(BookingResult.Status.NOT_SAVED, null, new int[0]);
+        }
+
+        return undone;
+    }
+
+    /**
+     * Books a batch of stays and reports the outcome of each one.
+     * Requests are grouped by property. Each group looks up and locks its
+     * property once and reads the property's free nights once; a request
+     * that clashes with those nights, or with an earlier request of the
+     * same group, is turned down without touching the calendar. The rest
+     * are booked in arrival order. Groups for different properties run
+     * in parallel. The bookings of the whole batch share one log sync; if
+     * it fails, every booking of the batch is undone.
+     *
+     * @param requests the bookings to make
+     * @return one result per request, in the same order as the requests
+     */
+    public List<BookingResult> bookAll(List<BookingRequest> requests) {
+        BookingRequest[] batch = requests.toArray(new BookingRequest[0]);
+        BookingResult[] results = new BookingResult[batch.length];
+        LinkedHashMap<Long, ArrayList<Integer>> groups = new LinkedHashMap<Long, ArrayList<Integer>>();
+        int i = 0;
+
+        while (i < batch.length) {
+            ArrayList<Integer> group = groups.get(batch[i].getPropertyId());
+
+            if (group == null) {
+                group = new ArrayList<Integer>();
+                groups.put(batch[i].getPropertyId(), group);
+            }
+
+            group.add(i);
+            i = i + 1;
+        }
+
+        if (logFailed()) {
+            Arrays.fill(results, new BookingResult(BookingResult.Status.NOT_SAVED, null, new int[0]));
+        } else {
+            groups.values().parallelStream().forEach(group -> bookGroup(batch, group, results));
+
+            if (!syncLog()) {
+                i = 0;
+                while (i < batch.length) {
+                    results[i] = undoBooking(batch[i].getPropertyId(), results[i]);
+                    i = i + 1;
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Books the requests of one property in arrival order.
+     *
+     * @param batch all requests of the batch
+     * @param group the positions of this property's requests in the batch
+     * @param results where to store the result of each request
+     */
+    private void bookGroup(BookingRequest[] batch, List<Integer> group, BookingResult[] results) {
+        long propertyId = batch[group.get(0)].getPropertyId();
+        Property p = lockForRead(propertyId);
+
+        if (p == null) {
+            for (int index : group) {
+                results[index] = new BookingResult(BookingResult.Status.UNKNOWN_PROPERTY, null, new int[0]);
+            }
+        } else {
+            try {
+                long free = p.getFreeDaysMask();
+
+                for (int index : group) {
+                    BookingRequest req = batch[index];
+                    int in = req.getCheckIn();
+                    int out = req.getCheckOut();
+
+                    if (req.getGuestName() == null || !Property.isValidStay(in, out)) {
+                        results[index] = new BookingResult(BookingResult.Status.INVALID_REQUEST, null, new int[0]);
+                    } else {
+                        long range = Property.rangeMask(in, out);
+                        long conflicts = range & ~free;
+
+                        if (conflicts == 0) {
+                            Reservation r = new Reservation(req.getGuestName(), in, out);
+                            conflicts = p.tryAddReservation(r);
+
+                            if (conflicts == 0) {
+                                free = free & ~range;
+                                results[index] = new BookingResult(BookingResult.Status.BOOKED, r, new int[0]);
+                            } else {
+                                free = free & ~conflicts;
+                            }
+                        }
+
+                        if (conflicts != 0) {
+                            results[index] = new BookingResult(BookingResult.Status.CONFLICT, null, toDays(conflicts));
+                        }
+                    }
+                }
+            } finally {
+                p.getLock().readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies a rate plan to every property, in parallel.
+     *
+     * @param plan the rate plan to apply
+     * @return the number of properties updated
+     */
+    public int applyRatePlanToAll(RatePlan plan) {
+        return applyRatePlan(plan, properties.getIds(), null);
+    }
+
+    /**
+     * Applies a rate plan to every property of a type, in parallel.
+     *
+     * @param plan the rate plan to apply
+     * @param type the property type to match
+     * @return the number of properties updated
+     */
+    public int applyRatePlan(RatePlan plan, PropertyType type) {
+        int updated = 0;
+
+        if (type != null) {
+            updated = applyRatePlan(plan, properties.getIds(), type);
+        }
+
+        return updated;
+    }
+
+    /**
+     * Applies a rate plan to the properties with the given IDs, in
+     * parallel. Invalid IDs are skipped.
+     *
+     * @param plan the rate plan to apply
+     * @param propertyIds the IDs of the properties to update
+     * @return the number of properties updated
+     */
+    public int applyRatePlan(RatePlan plan, long[] propertyIds) {
+        return applyRatePlan(plan, propertyIds, null);
+    }
 
-        if (propertyIndex >= 0 && propertyIndex < properties.size() &&
-                checkOut > checkIn && guest != null) {
+    /**
+     * Applies a rate plan to the matching properties among the given IDs.
+     * The rates were checked when they were added to the plan, so each
+     * property only takes its write lock once and writes the rates
+     * straight into its calendar. All the updates share one log sync.
+     *
+     * @param plan the rate plan to apply
+     * @param ids the IDs of the properties to consider
+     * @param type the property type to match, or null for any type
+     * @return the number of properties updated
+     */
+    private int applyRatePlan(RatePlan plan, long[] ids, PropertyType type) {
+        int updated = 0;
+
+        if (plan != null && ids != null && plan.getDaysMask() != 0 && !logFailed()) {
+            updated = (int) IntStream.range(0, ids.length).parallel().filter(i -> {
+                Property p = lockForWrite(ids[i]);
+                boolean matches = false;
+
+                if (p != null) {
+                    try {
+                        matches = matchesType(p, type);
+
+                        if (matches) {
+                            p.applyRatePlan(plan);
+                            logRates(ids[i], p, plan.getDaysMask());
+                        }
+                    } finally {
+                        p.getLock().writeLock().unlock();
+                    }
+                }
 
-            Property p = properties.get(propertyIndex);
-            Reservation r = new Reservation(guest, checkIn, checkOut);
-            boolean ok = p.addReservation(r);
+                return matches;
+            }).count();
 
-            if (ok) {
-                ArrayList<Reservation> list = reservationsPerProperty.get(propertyIndex);
-                list.add(r);
-                created = r;
+            if (!syncLog()) {
+                updated = 0;
             }
         }
 
-        return created;
+        return updated;
     }
 
     /**
      * Sets the environmental rate for a specific date of a property.
      *
-     * @param propertyIndex the property index
+     * @param propertyId the property ID
      * @param day the day number (1–30)
      * @param rate the environmental rate (0.80–1.20)
      * @return true if updated; false otherwise
      */
-    public boolean setEnvironmentalRateForDate(int propertyIndex, int day, double rate) {
+    public boolean setEnvironmentalRateForDate(long propertyId, int day, double rate) {
         boolean updated = false;
+        Property p = day >= 1 && day <= Property.MAX_DAY && !logFailed() ? lockForWrite(propertyId) : null;
 
-        if (propertyIndex >= 0 && propertyIndex < properties.size() &&
-                day >= 1 && day <= 30) {
-
-            Property p = properties.get(propertyIndex);
-            Date d = p.getDateByDay(day);
+        if (p != null) {
+            try {
+                Date d = p.getDateByDay(day);
 
-            if (d != null) {
-                d.setEnvironmentalRate(rate);
-                updated = true;
+                if (d != null) {
+                    d.setEnvironmentalRate(rate);
+                    logRates(propertyId, p, 1L << (day - 1));
+                    updated = true;
+                }
+            } finally {
+                p.getLock().writeLock().unlock();
             }
+            updated = syncLog() && updated;
         }
 
         return updated;
@@ -418,26 +1373,32 @@ public class PropertySystem {
     /**
      * Sets the same environmental rate for all listed dates of a property.
      *
-     * @param propertyIndex the property index
+     * @param propertyId the property ID
      * @param rate the environmental rate (0.80–1.20)
      * @return true if the property exists; false otherwise
      */
-    public boolean setEnvironmentalRateForAllDates(int propertyIndex, double rate) {
+    public boolean setEnvironmentalRateForAllDates(long propertyId, double rate) {
         boolean updated = false;
-
-        if (propertyIndex >= 0 && propertyIndex < properties.size()) {
-            Property p = properties.get(propertyIndex);
-            int day = 1;
-
-            while (day <= 30) {
-                Date d = p.getDateByDay(day);
-                if (d != null) {
-                    d.setEnvironmentalRate(rate);
+        Property p = logFailed() ? null : lockForWrite(propertyId);
+
+        if (p != null) {
+            try {
+                int day = 1;
+
+                while (day <= Property.MAX_DAY) {
+                    Date d = p.getDateByDay(day);
+                    if (d != null) {
+                        d.setEnvironmentalRate(rate);
+                    }
+                    day = day + 1;
                 }
-                day = day + 1;
-            }
 
-            updated = true;
+                logRates(propertyId, p, -1L);
+                updated = true;
+            } finally {
+                p.getLock().writeLock().unlock();
+            }
+            updated = syncLog() && updated;
         }
 
         return updated;
@@ -447,52 +1408,404 @@ public class PropertySystem {
      * Randomizes the environmental rate for all listed dates of a property.
      * Rates are between 0.80 and 1.20, rounded to 2 decimal places.
      *
-     * @param propertyIndex the property index
+     * @param propertyId the property ID
      */
-    public void randomizeEnvironmentalRates(int propertyIndex) {
-        if (propertyIndex >= 0 && propertyIndex < properties.size()) {
-            Property p = properties.get(propertyIndex);
-            int day = 1;
-
-            while (day <= 30) {
-                Date d = p.getDateByDay(day);
-                if (d != null) {
-                    double raw = 0.80 + Math.random() * 0.40;
-                    double rate = Math.round(raw * 100.0) / 100.0;
-                    d.setEnvironmentalRate(rate);
+    public void randomizeEnvironmentalRates(long propertyId) {
+        Property p = logFailed() ? null : lockForWrite(propertyId);
+
+        if (p != null) {
+            try {
+                int day = 1;
+
+                while (day <= Property.MAX_DAY) {
+                    Date d = p.getDateByDay(day);
+                    if (d != null) {
+                        double raw = Date.MIN_RATE + Math.random() * (Date.MAX_RATE - Date.MIN_RATE);
+                        double rate = Math.round(raw * 100.0) / 100.0;
+                        d.setEnvironmentalRate(rate);
+                    }
+                    day = day + 1;
                 }
-                day = day + 1;
+
+                logRates(propertyId, p, -1L);
+            } finally {
+                p.getLock().writeLock().unlock();
             }
+            syncLog();
         }
     }
 
     /**
      * Sets the environmental rate for a range of days.
      *
-     * @param index the property index
+     * @param propertyId the property ID
      * @param start the starting day (1–30)
      * @param end the ending day (1–30)
      * @param rate the environmental rate (0.80–1.20)
-     * @return true if all days were updated
+     * @return true if all days were updated and logged
      */
-    public boolean setEnvironmentalRateForRange(int index, int start, int end, double rate) {
+    public boolean setEnvironmentalRateForRange(long propertyId, int start, int end, double rate) {
 
-        if (index < 0 || index >= properties.size())
+        if (start < 1 || end > Property.MAX_DAY || start > end || logFailed())
             return false;
 
-        if (start < 1 || end > 30 || start > end)
+        Property p = lockForWrite(propertyId);
+
+        if (p == null)
             return false;
 
-        Property p = properties.get(index);
+        try {
+            int d = start;
+            while (d <= end) {
+                Date date = p.getDateByDay(d);
+                if (date != null)
+                    date.setEnvironmentalRate(rate);
+                d = d + 1;
+            }
+
+            logRates(propertyId, p, Property.rangeMask(start, end + 1));
+        } finally {
+            p.getLock().writeLock().unlock();
+        }
+
+        return syncLog();
+    }
+
+    /**
+     * Sets the base price and environmental rate of one date of a
+     * property in one step. Reserved dates cannot be changed.
+     *
+     * @param propertyId the property ID
+     * @param day the day number (1–30)
+     * @param price the new base price (at least 100)
+     * @param rate the new environmental rate (0.80–1.20)
+     * @return true if the date was updated; false otherwise
+     */
+    public boolean updateDate(long propertyId, int day, double price, double rate) {
+        boolean updated = false;
+
+        if (day >= 1 && day <= Property.MAX_DAY && price >= 100.0 && rate >= Date.MIN_RATE && rate <= Date.MAX_RATE &&
+                !logFailed()) {
+            Property p = lockForWrite(propertyId);
+
+            if (p != null) {
+                try {
+                    Date d = p.getDateByDay(day);
+
+                    if (d != null && d.isAvailable()) {
+                        d.setPrice(price);
+                        d.setEnvironmentalRate(rate);
+
+                        MutationLog current = log;
+                        if (current != null) {
+                            current.appendDay(propertyId, day, price, rate);
+                        }
+                        updated = true;
+                    }
+                } finally {
+                    p.getLock().writeLock().unlock();
+                }
+                updated = syncLog() && updated;
+            }
+        }
+
+        return updated;
+    }
+
+    /**
+     * Appends the current environmental rates of some of a property's
+     * days to the log, if there is one. The caller must hold the
+     * property's write lock so the rates cannot change meanwhile.
+     *
+     * @param propertyId the property ID
+     * @param p the property
+     * @param daysMask the days to record; unlisted days are skipped
+     */
+    private void logRates(long propertyId, Property p, long daysMask) {
+        MutationLog current = log;
+
+        if (current != null) {
+            long mask = daysMask & p.getListedDaysMask();
+            double[] rates = new double[Long.bitCount(mask)];
+            long remaining = mask;
+            int i = 0;
+
+            while (remaining != 0) {
+                rates[i] = p.getDateByDay(Long.numberOfTrailingZeros(remaining) + 1).getEnvironmentalRate();
+                remaining = remaining & (remaining - 1);
+                i = i + 1;
+            }
+
+            current.appendRates(propertyId, mask, rates);
+        }
+    }
+
+    /**
+     * Waits until every logged change is on disk, if there is a log.
+     * Callers must not hold any property lock, so other threads can keep
+     * logging while this one waits.
+     *
+     * @return true if there is no log or the changes are on disk; false
+     *         if the log could not be written
+     */
+    private boolean syncLog() {
+        MutationLog current = log;
+        return current == null || current.sync();
+    }
+
+    /**
+     * Checks whether the log has failed, in which case no change can be
+     * made durable any more and every change is refused.
+     *
+     * @return true if there is a log and it has failed; false otherwise
+     */
+    private boolean logFailed() {
+        MutationLog current = log;
+        return current != null && current.hasFailed();
+    }
+
+    /**
+     * The LogWriter class appends the bookings and cancellations of one
+     * property to the mutation log as the property reports them.
+     */
+    private final class LogWriter implements ReservationListener {
+
+        private final long propertyId;
+
+        /**
+         * Constructs a LogWriter for a property.
+         *
+         * @param propertyId the property ID
+         */
+        LogWriter(long propertyId) {
+            this.propertyId = propertyId;
+        }
+
+        /**
+         * Logs a booking.
+         *
+         * @param res the new reservation
+         */
+        @Override
+        public void reservationAdded(Reservation res) {
+            MutationLog current = log;
+
+            if (current != null) {
+                current.appendReserve(propertyId, res.getGuestName(), res.getCheckIn(), res.getCheckOut());
+            }
+        }
+
+        /**
+         * Logs a cancellation.
+         *
+         * @param res the removed reservation
+         */
+        @Override
+        public void reservationRemoved(Reservation res) {
+            MutationLog current = log;
+
+            if (current != null) {
+                current.appendCancel(propertyId, res.getCheckIn());
+            }
+        }
+    }
+
+    /**
+     * The Replayer class rebuilds the system from a mutation log by
+     * repeating each logged change through the public methods. It runs
+     * before the log is attached, so nothing is logged twice. Changes to
+     * different properties may be replayed on different threads at once,
+     * which the public methods already allow. A change that does not give
+     * the logged outcome is counted as a mismatch.
+     */
+    private final class Replayer implements MutationLog.Visitor {
+
+        private final AtomicInteger mismatches = new AtomicInteger();
+        private final long tableLsn;
+        private final long[] idBySlot;
+        private final long[] lsnBySlot;
+
+        /**
+         * Constructs a Replayer. With a snapshot, only the records the
+         * snapshot does not already hold are replayed: changes to the set
+         * of properties and their names from the position the table was
+         * copied at, and changes to a saved property from the position
+         * that property was copied at.
+         *
+         * @param snapshot the loaded snapshot, or null to replay everything
+         */
+        Replayer(SnapshotFile.Contents snapshot) {
+            int slots = snapshot == null ? 0 : snapshot.generations.length;
+
+            tableLsn = snapshot == null ? 0 : snapshot.tableLsn;
+            idBySlot = new long[slots];
+            lsnBySlot = new long[slots];
+            Arrays.fill(idBySlot, -1L);
+
+            int i = 0;
+            while (snapshot != null && i < snapshot.ids.length) {
+                int slot = PropertyTable.slotOf(snapshot.ids[i]);
+                idBySlot[slot] = snapshot.ids[i];
+                lsnBySlot[slot] = snapshot.lsns[i];
+                i = i + 1;
+            }
+        }
+
+        /**
+         * Decides whether a record is not yet part of the loaded state.
+         *
+         * @param lsn the record's log sequence number
+         * @param op the record's operation code
+         * @param id the property ID the record is about
+         * @return true to replay the record; false to skip it
+         */
+        @Override
+        public boolean wants(long lsn, byte op, long id) {
+            long from = tableLsn;
+            int slot = PropertyTable.slotOf(id);
+
+            if (op != MutationLog.CREATE_PROPERTY && op != MutationLog.REMOVE_PROPERTY &&
+                    op != MutationLog.RENAME && slot >= 0 && slot < idBySlot.length && idBySlot[slot] == id) {
+                from = lsnBySlot[slot];
+            }
+
+            return lsn >= from;
+        }
+
+        /**
+         * Recreates a property and checks that it got its logged ID.
+         *
+         * @param id the logged ID
+         * @param name the property name
+         * @param typeChoice the menu choice of the property type
+         * @param daysMask the listed days
+         */
+        @Override
+        public void createProperty(long id, String name, int typeChoice, long daysMask) {
+            if (PropertySystem.this.createProperty(name, PropertyType.fromChoice(typeChoice), toDays(daysMask)) != id) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Removes a property again.
+         *
+         * @param id the property ID
+         */
+        @Override
+        public void removeProperty(long id) {
+            if (!PropertySystem.this.removeProperty(id)) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Renames a property again.
+         *
+         * @param id the property ID
+         * @param name the new name
+         */
+        @Override
+        public void rename(long id, String name) {
+            if (!changePropertyName(id, name)) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Changes a property's type again.
+         *
+         * @param id the property ID
+         * @param typeChoice the menu choice of the new type
+         */
+        @Override
+        public void setType(long id, int typeChoice) {
+            if (!changePropertyType(id, PropertyType.fromChoice(typeChoice))) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Changes a property's base price again.
+         *
+         * @param id the property ID
+         * @param price the new base price
+         */
+        @Override
+        public void setBasePrice(long id, double price) {
+            if (!updateBasePrice(id, price)) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Changes one date again.
+         *
+         * @param id the property ID
+         * @param day the day number
+         * @param price the base price of the day
+         * @param rate the environmental rate of the day
+         */
+        @Override
+        public void setDay(long id, int day, double price, double rate) {
+            if (!updateDate(id, day, price, rate)) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Restores the environmental rates of a set of days.
+         *
+         * @param id the property ID
+         * @param daysMask the days whose rates were recorded
+         * @param rates the rates of those days, lowest day first
+         */
+        @Override
+        public void setRates(long id, long daysMask, double[] rates) {
+            RatePlan plan = new RatePlan();
+            int[] days = toDays(daysMask);
+            boolean valid = true;
+            int i = 0;
+
+            while (i < days.length) {
+                valid = plan.setRate(days[i], rates[i]) && valid;
+                i = i + 1;
+            }
 
-        int d = start;
-        while (d <= end) {
-            Date date = p.getDateByDay(d);
-            if (date != null)
-                date.setEnvironmentalRate(rate);
-            d = d + 1;
+            if (!valid || (days.length > 0 && applyRatePlan(plan, new long[] { id }) != 1)) {
+                mismatches.incrementAndGet();
+            }
         }
 
-        return true;
+        /**
+         * Books a stay again.
+         *
+         * @param id the property ID
+         * @param guest the guest name
+         * @param checkIn the check-in day
+         * @param checkOut the check-out day
+         */
+        @Override
+        public void reserve(long id, String guest, int checkIn, int checkOut) {
+            if (addReservation(id, guest, checkIn, checkOut) == null) {
+                mismatches.incrementAndGet();
+            }
+        }
+
+        /**
+         * Cancels a reservation again.
+         *
+         * @param id the property ID
+         * @param checkIn the check-in day of the reservation
+         */
+        @Override
+        public void cancel(long id, int checkIn) {
+            Property p = properties.get(id);
+            Reservation r = p == null ? null : p.findReservation(checkIn);
+
+            if (!removeReservation(id, r)) {
+                mismatches.incrementAndGet();
+            }
+        }
     }
-}
\ No newline at end of file
+}
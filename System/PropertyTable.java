@@ -0,0 +1,372 @@
+package System;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import Objects.Property;
+import Objects.StateListener;
+
+/**
+ * The PropertyTable class stores properties in numbered slots and hands out
+ * stable property IDs for them. An ID combines the slot number with the
+ * slot's generation, so removing a property leaves a tombstone that bumps
+ * the generation and puts the slot on a free list. A later property may
+ * reuse the slot, but it gets a new ID, and the old ID stays invalid.
+ * Slots live in fixed-size chunks of atomic references, and each slot
+ * holds an unchanging entry of property and generation. Lookups read the
+ * entry without locking; only adding and removing properties lock the
+ * table, so lookups and bookings never wait for them.
+ * Every chunk also has a stamp that goes up whenever a property in it is
+ * added, removed, or changed, so a reader can tell which chunks changed
+ * since it last looked without visiting their slots.
+ */
+public class PropertyTable {
+
+    static final int CHUNK_SIZE = 1024;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private CopyOnWriteArrayList<AtomicReferenceArray<Entry>> chunks;
+    private CopyOnWriteArrayList<AtomicLong> stamps;
+    private int[] freeSlots;
+    private int freeCount;
+    private volatile int highWater;
+    private volatile int count;
+
+    /**
+     * Constructs an empty PropertyTable.
+     */
+    public PropertyTable() {
+        chunks = new CopyOnWriteArrayList<AtomicReferenceArray<Entry>>();
+        stamps = new CopyOnWriteArrayList<AtomicLong>();
+        freeSlots = new int[INITIAL_CAPACITY];
+        freeCount = 0;
+        highWater = 0;
+        count = 0;
+    }
+
+    /**
+     * Stores a property in a free slot, reusing a vacated slot if one exists.
+     *
+     * @param p the property to store
+     * @return the new property's ID
+     */
+    public synchronized long add(Property p) {
+        int slot;
+        int generation = 0;
+
+        if (freeCount > 0) {
+            freeCount = freeCount - 1;
+            slot = freeSlots[freeCount];
+            generation = entryAt(slot).generation;
+        } else {
+            slot = highWater;
+            if (slot / CHUNK_SIZE == chunks.size()) {
+                stamps.add(new AtomicLong());
+                chunks.add(new AtomicReferenceArray<Entry>(CHUNK_SIZE));
+            }
+            if (slot == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+            }
+            highWater = slot + 1;
+        }
+
+        setEntry(slot, new Entry(p, generation));
+        count = count + 1;
+        touch(slot);
+
+        return toId(slot, generation);
+    }
+
+    /**
+     * Retrieves the property with the given ID.
+     * IDs of removed properties always return null, even if their slot
+     * has been reused.
+     *
+     * @param id the property ID
+     * @return the Property, or null if the ID is not valid
+     */
+    public Property get(long id) {
+        Property result = null;
+        int slot = slotOf(id);
+
+        if (slot >= 0 && slot < highWater) {
+            Entry e = entryAt(slot);
+
+            if (e != null && e.generation == generationOf(id)) {
+                result = e.property;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the property with the given ID. The slot becomes a tombstone
+     * with a new generation and is put on the free list.
+     *
+     * @param id the property ID
+     * @return true if removed; false if the ID is not valid
+     */
+    public synchronized boolean remove(long id) {
+        boolean removed = false;
+
+        if (get(id) != null) {
+            int slot = slotOf(id);
+            setEntry(slot, new Entry(null, generationOf(id) + 1));
+            freeSlots[freeCount] = slot;
+            freeCount = freeCount + 1;
+            count = count - 1;
+            touch(slot);
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Returns the number of live properties.
+     *
+     * @return the number of properties
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the IDs of all live properties in slot order.
+     * Properties added or removed while the IDs are collected may or may
+     * not be included.
+     *
+     * @return an array of property IDs
+     */
+    public long[] getIds() {
+        int limit = highWater;
+        long[] ids = new long[Math.max(count, 1)];
+        int idx = 0;
+        int slot = 0;
+
+        while (slot < limit) {
+            Entry e = entryAt(slot);
+
+            if (e != null && e.property != null) {
+                if (idx == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[idx] = toId(slot, e.generation);
+                idx = idx + 1;
+            }
+            slot = slot + 1;
+        }
+
+        return Arrays.copyOf(ids, idx);
+    }
+
+    /**
+     * Returns the ID of the property currently stored in a slot.
+     *
+     * @param slot the slot number
+     * @return the property ID, or -1 if the slot is empty
+     */
+    public long idOfSlot(int slot) {
+        long id = -1;
+
+        if (slot >= 0 && slot < highWater) {
+            Entry e = entryAt(slot);
+
+            if (e != null && e.property != null) {
+                id = toId(slot, e.generation);
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the generation of every slot below the high-water mark.
+     * The caller must hold the table's monitor so no slot changes meanwhile.
+     *
+     * @return the slot generations, indexed by slot
+     */
+    int[] copyGenerations() {
+        int[] generations = new int[highWater];
+        int slot = 0;
+
+        while (slot < generations.length) {
+            generations[slot] = entryAt(slot).generation;
+            slot = slot + 1;
+        }
+
+        return generations;
+    }
+
+    /**
+     * Returns the free list, in the order slots would be taken from it
+     * last to first. The caller must hold the table's monitor.
+     *
+     * @return the free slots
+     */
+    int[] copyFreeSlots() {
+        return Arrays.copyOf(freeSlots, freeCount);
+    }
+
+    /**
+     * Replaces the whole content of an empty table with saved slots.
+     * Slots whose property is null become tombstones with their saved
+     * generation, so IDs issued before the save stay valid or invalid
+     * exactly as they were.
+     *
+     * @param generations the generation of every slot
+     * @param bySlot the property of every slot, or null for tombstones
+     * @param free the free list as returned by copyFreeSlots
+     */
+    synchronized void restore(int[] generations, Property[] bySlot, int[] free) {
+        int live = 0;
+        int slot = 0;
+
+        while (chunks.size() * CHUNK_SIZE < generations.length) {
+            stamps.add(new AtomicLong());
+            chunks.add(new AtomicReferenceArray<Entry>(CHUNK_SIZE));
+        }
+
+        while (slot < generations.length) {
+            setEntry(slot, new Entry(bySlot[slot], generations[slot]));
+            if (bySlot[slot] != null) {
+                live = live + 1;
+            }
+            slot = slot + 1;
+        }
+
+        freeSlots = Arrays.copyOf(free, Math.max(INITIAL_CAPACITY, generations.length));
+        freeCount = free.length;
+        count = live;
+        highWater = generations.length;
+
+        slot = 0;
+        while (slot < generations.length) {
+            touch(slot);
+            slot = slot + CHUNK_SIZE;
+        }
+    }
+
+    /**
+     * Returns the number of slots ever used, including tombstones.
+     * Every slot below this number has a chunk and a stamp.
+     *
+     * @return the high-water mark of the slots
+     */
+    int getSlotCount() {
+        return highWater;
+    }
+
+    /**
+     * Returns the stamp of a chunk. The stamp goes up after every change
+     * to a property stored in the chunk, so two equal readings mean no
+     * property in it changed in between.
+     *
+     * @param chunk the chunk number, below the slot count divided by the
+     *              chunk size
+     * @return the chunk's stamp
+     */
+    long stampOf(int chunk) {
+        return stamps.get(chunk).get();
+    }
+
+    /**
+     * Creates a listener that raises the stamp of a slot's chunk whenever
+     * the property stored in the slot changes.
+     *
+     * @param slot the slot of the property
+     * @return a listener to install on that property
+     */
+    public StateListener listenerFor(int slot) {
+        return new StateListener() {
+            public void stateChanged() {
+                touch(slot);
+            }
+        };
+    }
+
+    /**
+     * Raises the stamp of the chunk holding a slot.
+     *
+     * @param slot a slot whose chunk exists
+     */
+    private void touch(int slot) {
+        stamps.get(slot / CHUNK_SIZE).incrementAndGet();
+    }
+
+    /**
+     * Extracts the slot number from a property ID.
+     *
+     * @param id the property ID
+     * @return the slot number
+     */
+    public static int slotOf(long id) {
+        return (int) id;
+    }
+
+    /**
+     * Reads the entry of a slot below the high-water mark.
+     *
+     * @param slot the slot number
+     * @return the slot's entry
+     */
+    private Entry entryAt(int slot) {
+        return chunks.get(slot / CHUNK_SIZE).get(slot % CHUNK_SIZE);
+    }
+
+    /**
+     * Replaces the entry of a slot whose chunk already exists.
+     *
+     * @param slot the slot number
+     * @param e the new entry
+     */
+    private void setEntry(int slot, Entry e) {
+        chunks.get(slot / CHUNK_SIZE).set(slot % CHUNK_SIZE, e);
+    }
+
+    /**
+     * Extracts the generation from a property ID.
+     *
+     * @param id the property ID
+     * @return the slot generation the ID was issued for
+     */
+    private static int generationOf(long id) {
+        return (int) (id >>> 32);
+    }
+
+    /**
+     * Builds a property ID from a slot and its generation.
+     * Properties in never-reused slots get IDs equal to their slot number.
+     *
+     * @param slot the slot number
+     * @param generation the slot generation
+     * @return the property ID
+     */
+    private static long toId(int slot, int generation) {
+        return ((long) generation << 32) | (slot & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The Entry class is the content of one slot: the property stored
+     * there, or null for a tombstone, and the slot's generation.
+     */
+    private static final class Entry {
+
+        final Property property;
+        final int generation;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param property the stored property, or null for a tombstone
+         * @param generation the slot generation
+         */
+        Entry(Property property, int generation) {
+            this.property = property;
+            this.generation = generation;
+        }
+    }
+}
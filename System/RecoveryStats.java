@@ -0,0 +1,142 @@
+package System;
+
+/**
+ * The RecoveryStats class reports how a PropertySystem was rebuilt when
+ * it started: how many properties came from a snapshot, how many logged
+ * changes were read and replayed, on how many threads, and how long each
+ * step took.
+ */
+public class RecoveryStats {
+
+    private final int snapshotProperties;
+    private final long snapshotMillis;
+    private final long recordsInLog;
+    private final long recordsReplayed;
+    private final int mismatches;
+    private final int threads;
+    private final long replayMillis;
+
+    /**
+     * Constructs RecoveryStats.
+     *
+     * @param snapshotProperties the number of properties loaded from a snapshot
+     * @param snapshotMillis the time spent loading the snapshot
+     * @param recordsInLog the number of records in the log
+     * @param recordsReplayed the number of records replayed
+     * @param mismatches the number of replayed records that did not give their logged outcome
+     * @param threads the number of threads the log was replayed on
+     * @param replayMillis the time spent replaying the log
+     */
+    RecoveryStats(int snapshotProperties, long snapshotMillis, long recordsInLog, long recordsReplayed,
+                  int mismatches, int threads, long replayMillis) {
+        this.snapshotProperties = snapshotProperties;
+        this.snapshotMillis = snapshotMillis;
+        this.recordsInLog = recordsInLog;
+        this.recordsReplayed = recordsReplayed;
+        this.mismatches = mismatches;
+        this.threads = threads;
+        this.replayMillis = replayMillis;
+    }
+
+    /**
+     * Returns the number of properties loaded from a snapshot.
+     *
+     * @return the number of snapshot properties
+     */
+    public int getSnapshotProperties() {
+        return snapshotProperties;
+    }
+
+    /**
+     * Returns the time spent loading the snapshot.
+     *
+     * @return the snapshot load time in milliseconds
+     */
+    public long getSnapshotMillis() {
+        return snapshotMillis;
+    }
+
+    /**
+     * Returns the number of records in the log.
+     *
+     * @return the number of records read
+     */
+    public long getRecordsInLog() {
+        return recordsInLog;
+    }
+
+    /**
+     * Returns the number of records replayed. Records already held by the
+     * snapshot are read but not replayed.
+     *
+     * @return the number of records replayed
+     */
+    public long getRecordsReplayed() {
+        return recordsReplayed;
+    }
+
+    /**
+     * Returns the number of replayed records that did not give their
+     * logged outcome.
+     *
+     * @return the number of mismatches
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Returns the number of threads the log was replayed on.
+     *
+     * @return the number of replay threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the time spent replaying the log.
+     *
+     * @return the replay time in milliseconds
+     */
+    public long getReplayMillis() {
+        return replayMillis;
+    }
+
+    /**
+     * Returns the total time spent rebuilding the system.
+     *
+     * @return the recovery time in milliseconds
+     */
+    public long getRecoveryMillis() {
+        return snapshotMillis + replayMillis;
+    }
+
+    /**
+     * Returns the replay throughput.
+     *
+     * @return the records replayed per second, or 0 if nothing was replayed
+     */
+    public double getRecordsPerSecond() {
+        double rate = 0;
+
+        if (recordsReplayed > 0) {
+            rate = recordsReplayed * 1000.0 / Math.max(1, replayMillis);
+        }
+
+        return rate;
+    }
+
+    /**
+     * Returns a one-line summary of the recovery.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Recovered in %d ms: %d properties from snapshot (%d ms), "
+                        + "%d of %d logged changes replayed on %d threads (%d ms, %.0f changes/s), %d mismatches",
+                getRecoveryMillis(), snapshotProperties, snapshotMillis, recordsReplayed, recordsInLog,
+                threads, replayMillis, getRecordsPerSecond(), mismatches);
+    }
+}
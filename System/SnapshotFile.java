@@ -0,0 +1,606 @@
+package System;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+import Objects.PropertyState;
+import Objects.PropertyType;
+import Objects.Reservation;
+
+/**
+ * The SnapshotFile class writes and reads snapshots of a PropertySystem.
+ * A snapshot file has a fixed layout:
+ * <ul>
+ *   <li>a header with the log positions the snapshot was taken at and
+ *   the sizes and offsets of the sections;</li>
+ *   <li>the generation of every property table slot and the table's
+ *   free list;</li>
+ *   <li>one fixed-size record per property with its ID, its log
+ *   position, its masks, and the price and rate of every day;</li>
+ *   <li>a heap holding each property's name and reservations.</li>
+ * </ul>
+ * Because the records have a fixed size, a loader maps the file into
+ * memory and decodes any record straight from the mapping, in parallel
+ * and only when it is needed, so the decoded copies never pile up.
+ * Each section is mapped in windows of at most 1 GB and every offset is
+ * a long, so a snapshot may grow past 2 GB.
+ * A snapshot is written to a temporary file and renamed into place once
+ * complete, so a crash never leaves a half-written snapshot behind.
+ */
+class SnapshotFile {
+
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int DAYS = 30;
+    private static final int RECORD_SIZE = 8 * 5 + 4 * 4 + 8 * DAYS * 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Starts writing a snapshot. The table layout and the number of
+     * properties must already be known; the properties themselves are
+     * added one at a time.
+     *
+     * @param target the file the snapshot will be renamed to
+     * @param tableLsn the log position the table layout was taken at
+     * @param generations the generation of every table slot
+     * @param freeSlots the table's free list
+     * @param propertyCount the number of properties that will be added
+     * @return the writer, or null if the temporary files cannot be created
+     */
+    static Writer create(Path target, long tableLsn, int[] generations, int[] freeSlots, int propertyCount) {
+        Writer writer = null;
+
+        try {
+            writer = new Writer(target, tableLsn, generations, freeSlots, propertyCount);
+        } catch (IOException e) {
+            System.out.println("Error: Could not start snapshot " + target + ": " + e.getMessage());
+        }
+
+        return writer;
+    }
+
+    /**
+     * Reads a snapshot by mapping it into memory.
+     *
+     * @param file the snapshot file
+     * @return the contents, or null if there is no usable snapshot
+     */
+    static Contents read(Path file) {
+        Contents contents = null;
+
+        if (Files.exists(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                contents = decode(channel);
+
+                if (contents == null) {
+                    System.out.println("Error: " + file + " is not a valid snapshot.");
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Error: Could not read snapshot " + file + ": " + e.getMessage());
+            }
+        }
+
+        return contents;
+    }
+
+    /**
+     * Decodes a snapshot from an open file.
+     *
+     * @param channel the snapshot file
+     * @return the contents, or null if the header does not match
+     * @throws IOException if the file cannot be mapped
+     */
+    private static Contents decode(FileChannel channel) throws IOException {
+        Contents contents = null;
+        long size = channel.size();
+
+        if (size >= HEADER_SIZE) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            int magic = header.getInt();
+            int version = header.getInt();
+            long tableLsn = header.getLong();
+            long endLsn = header.getLong();
+            int highWater = header.getInt();
+            int freeCount = header.getInt();
+            int count = header.getInt();
+            header.getInt();
+            long recordsOffset = header.getLong();
+            long heapOffset = header.getLong();
+            long heapLength = header.getLong();
+
+            if (magic == MAGIC && version == VERSION && heapOffset + heapLength == size &&
+                    recordsOffset + (long) count * RECORD_SIZE <= heapOffset) {
+                Mapping table = new Mapping(channel, HEADER_SIZE, 4L * (highWater + freeCount));
+                Mapping records = new Mapping(channel, recordsOffset, (long) count * RECORD_SIZE);
+                Mapping heap = new Mapping(channel, heapOffset, heapLength);
+
+                contents = new Contents(tableLsn, endLsn, new int[highWater], new int[freeCount],
+                        count, records, heap);
+
+                int i = 0;
+                while (i < highWater) {
+                    contents.generations[i] = table.getInt(4L * i);
+                    i = i + 1;
+                }
+                i = 0;
+                while (i < freeCount) {
+                    contents.freeSlots[i] = table.getInt(4L * (highWater + i));
+                    i = i + 1;
+                }
+
+                Contents filled = contents;
+                IntStream.range(0, count).parallel().forEach(n -> {
+                    filled.ids[n] = records.getLong((long) n * RECORD_SIZE);
+                    filled.lsns[n] = records.getLong((long) n * RECORD_SIZE + 8);
+                });
+            }
+        }
+
+        return contents;
+    }
+
+    /**
+     * Decodes one property record and its heap entry. Only absolute reads
+     * are used, so many threads can decode from the same mapping at once.
+     *
+     * @param records the mapped records section
+     * @param heap the mapped heap section
+     * @param index the record number
+     * @return the decoded property state
+     */
+    private static PropertyState decodeRecord(Mapping records, Mapping heap, int index) {
+        long base = (long) index * RECORD_SIZE;
+        long listed = records.getLong(base + 16);
+        long booked = records.getLong(base + 24);
+        long at = records.getLong(base + 32);
+        int typeChoice = records.getInt(base + 44);
+        int nameLength = records.getInt(base + 48);
+        int reservationCount = records.getInt(base + 52);
+        double[] prices = new double[DAYS];
+        double[] rates = new double[DAYS];
+        int day = 0;
+
+        while (day < DAYS) {
+            prices[day] = records.getDouble(base + 56 + 8 * day);
+            rates[day] = records.getDouble(base + 56 + 8 * DAYS + 8 * day);
+            day = day + 1;
+        }
+
+        byte[] name = new byte[nameLength];
+        heap.get(at, name);
+        at = at + nameLength;
+
+        Reservation[] reservations = new Reservation[reservationCount];
+        int r = 0;
+
+        while (r < reservationCount) {
+            int checkIn = heap.get(at);
+            int checkOut = heap.get(at + 1);
+            byte[] guest = new byte[heap.getInt(at + 2)];
+            heap.get(at + 6, guest);
+            reservations[r] = new Reservation(new String(guest, StandardCharsets.UTF_8), checkIn, checkOut);
+            at = at + 6 + guest.length;
+            r = r + 1;
+        }
+
+        return new PropertyState(new String(name, StandardCharsets.UTF_8),
+                PropertyType.fromChoice(typeChoice), listed, booked, prices, rates, reservations);
+    }
+
+    /**
+     * The Contents class holds a mapped snapshot. The table layout and
+     * the ID and log position of every property are decoded up front;
+     * the properties themselves are decoded on request.
+     */
+    static final class Contents {
+
+        final long tableLsn;
+        final long endLsn;
+        final int[] generations;
+        final int[] freeSlots;
+        final long[] ids;
+        final long[] lsns;
+        private final Mapping records;
+        private final Mapping heap;
+
+        /**
+         * Constructs empty Contents with room for the given number of
+         * properties.
+         *
+         * @param tableLsn the log position the table layout was taken at
+         * @param endLsn the log position by which the snapshot was complete
+         * @param generations the array for the slot generations
+         * @param freeSlots the array for the free list
+         * @param count the number of properties
+         * @param records the mapped records section
+         * @param heap the mapped heap section
+         */
+        Contents(long tableLsn, long endLsn, int[] generations, int[] freeSlots, int count,
+                 Mapping records, Mapping heap) {
+            this.tableLsn = tableLsn;
+            this.endLsn = endLsn;
+            this.generations = generations;
+            this.freeSlots = freeSlots;
+            this.ids = new long[count];
+            this.lsns = new long[count];
+            this.records = records;
+            this.heap = heap;
+        }
+
+        /**
+         * Decodes the state of one saved property. Safe to call from many
+         * threads at once.
+         *
+         * @param index the property's position in the snapshot
+         * @return the property's state
+         */
+        PropertyState state(int index) {
+            return decodeRecord(records, heap, index);
+        }
+    }
+
+    /**
+     * The Mapping class maps one section of a snapshot file as a row of
+     * windows, each at most WINDOW_SIZE bytes, since a single mapping
+     * cannot pass 2 GB. Values are read at long offsets from the start of
+     * the section; one that straddles two windows is put together from
+     * both. Only absolute reads are used, so many threads can read at once.
+     */
+    private static final class Mapping {
+
+        private final ByteBuffer[] windows;
+
+        /**
+         * Constructs a Mapping over part of a file.
+         *
+         * @param channel the open file
+         * @param offset the file position the section starts at
+         * @param length the length of the section
+         * @throws IOException if the file cannot be mapped
+         */
+        Mapping(FileChannel channel, long offset, long length) throws IOException {
+            windows = new ByteBuffer[(int) ((length + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+
+            int i = 0;
+            while (i < windows.length) {
+                long start = (long) i * WINDOW_SIZE;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start,
+                        Math.min(WINDOW_SIZE, length - start));
+                i = i + 1;
+            }
+        }
+
+        /**
+         * Reads one byte.
+         *
+         * @param at the offset within the section
+         * @return the byte
+         */
+        byte get(long at) {
+            return windows[(int) (at / WINDOW_SIZE)].get((int) (at % WINDOW_SIZE));
+        }
+
+        /**
+         * Fills an array with the bytes starting at an offset.
+         *
+         * @param at the offset within the section
+         * @param into the array to fill
+         */
+        void get(long at, byte[] into) {
+            int done = 0;
+
+            while (done < into.length) {
+                long position = at + done;
+                int offset = (int) (position % WINDOW_SIZE);
+                int chunk = Math.min(into.length - done, WINDOW_SIZE - offset);
+                windows[(int) (position / WINDOW_SIZE)].get(offset, into, done, chunk);
+                done = done + chunk;
+            }
+        }
+
+        /**
+         * Reads an int.
+         *
+         * @param at the offset within the section
+         * @return the int
+         */
+        int getInt(long at) {
+            return window(at, 4).getInt(offsetOf(at, 4));
+        }
+
+        /**
+         * Reads a long.
+         *
+         * @param at the offset within the section
+         * @return the long
+         */
+        long getLong(long at) {
+            return window(at, 8).getLong(offsetOf(at, 8));
+        }
+
+        /**
+         * Reads a double.
+         *
+         * @param at the offset within the section
+         * @return the double
+         */
+        double getDouble(long at) {
+            return window(at, 8).getDouble(offsetOf(at, 8));
+        }
+
+        /**
+         * Returns a buffer holding a whole value: its window, or a copy of
+         * the value's bytes if it straddles two windows.
+         *
+         * @param at the offset of the value within the section
+         * @param size the size of the value
+         * @return the buffer to read the value from
+         */
+        private ByteBuffer window(long at, int size) {
+            ByteBuffer result;
+
+            if (at % WINDOW_SIZE + size <= WINDOW_SIZE) {
+                result = windows[(int) (at / WINDOW_SIZE)];
+            } else {
+                byte[] value = new byte[size];
+                get(at, value);
+                result = ByteBuffer.wrap(value);
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns where in the buffer from window a value starts.
+         *
+         * @param at the offset of the value within the section
+         * @param size the size of the value
+         * @return the index of the value in its buffer
+         */
+        private static int offsetOf(long at, int size) {
+            int result = 0;
+
+            if (at % WINDOW_SIZE + size <= WINDOW_SIZE) {
+                result = (int) (at % WINDOW_SIZE);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The Writer class streams properties into a new snapshot. Records go
+     * to the snapshot's temporary file at their final place, and heap
+     * entries go to a second temporary file that is appended when the
+     * snapshot is finished.
+     */
+    static final class Writer {
+
+        private final Path target;
+        private final Path temp;
+        private final Path heapTemp;
+        private final FileChannel out;
+        private final FileChannel heapOut;
+        private final ByteBuffer recordBuffer;
+        private final ByteBuffer heapBuffer;
+        private final long tableLsn;
+        private final int highWater;
+        private final int freeCount;
+        private final int expected;
+        private final long recordsOffset;
+        private long heapLength;
+        private int written;
+
+        /**
+         * Constructs a Writer and writes the table section.
+         *
+         * @param target the file the snapshot will be renamed to
+         * @param tableLsn the log position the table layout was taken at
+         * @param generations the generation of every table slot
+         * @param freeSlots the table's free list
+         * @param propertyCount the number of properties that will be added
+         * @throws IOException if the temporary files cannot be written
+         */
+        Writer(Path target, long tableLsn, int[] generations, int[] freeSlots, int propertyCount) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.heapTemp = target.resolveSibling(target.getFileName() + ".heap.tmp");
+            this.out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.heapOut = FileChannel.open(heapTemp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.recordBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.heapBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            this.tableLsn = tableLsn;
+            this.highWater = generations.length;
+            this.freeCount = freeSlots.length;
+            this.expected = propertyCount;
+            this.recordsOffset = (HEADER_SIZE + 4L * (highWater + freeCount) + 7) & ~7L;
+            this.heapLength = 0;
+            this.written = 0;
+
+            ByteBuffer table = ByteBuffer.allocate((int) (recordsOffset - HEADER_SIZE));
+            table.asIntBuffer().put(generations).put(freeSlots);
+            writeFully(out, table, HEADER_SIZE);
+            out.position(recordsOffset);
+        }
+
+        /**
+         * Adds one property to the snapshot.
+         *
+         * @param id the property ID
+         * @param lsn the log position the property's state was taken at
+         * @param state the property's state
+         * @throws IOException if the temporary files cannot be written
+         */
+        void add(long id, long lsn, PropertyState state) throws IOException {
+            byte[] name = state.getName().getBytes(StandardCharsets.UTF_8);
+            Reservation[] reservations = state.getReservations();
+            long heapStart = heapLength;
+
+            if (recordBuffer.remaining() < RECORD_SIZE) {
+                flush(out, recordBuffer);
+            }
+
+            recordBuffer.putLong(id);
+            recordBuffer.putLong(lsn);
+            recordBuffer.putLong(state.getListedMask());
+            recordBuffer.putLong(state.getBookedMask());
+            recordBuffer.putLong(heapStart);
+            recordBuffer.putInt(0);
+            recordBuffer.putInt(PropertyType.toChoice(state.getType()));
+            recordBuffer.putInt(name.length);
+            recordBuffer.putInt(reservations.length);
+
+            int day = 0;
+            while (day < DAYS) {
+                recordBuffer.putDouble(state.getPrices()[day]);
+                day = day + 1;
+            }
+            day = 0;
+            while (day < DAYS) {
+                recordBuffer.putDouble(state.getRates()[day]);
+                day = day + 1;
+            }
+
+            putHeap(name);
+
+            int r = 0;
+            while (r < reservations.length) {
+                byte[] guest = reservations[r].getGuestName().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer entry = ByteBuffer.allocate(6);
+                entry.put((byte) reservations[r].getCheckIn());
+                entry.put((byte) reservations[r].getCheckOut());
+                entry.putInt(guest.length);
+                putHeap(entry.array());
+                putHeap(guest);
+                r = r + 1;
+            }
+
+            recordBuffer.putInt(recordBuffer.position() - RECORD_SIZE + 40, (int) (heapLength - heapStart));
+            written = written + 1;
+        }
+
+        /**
+         * Completes the snapshot: appends the heap, writes the header,
+         * forces the file to disk, and renames it into place.
+         *
+         * @param endLsn the log position by which every added state was logged
+         * @return true if the snapshot is in place; false otherwise
+         */
+        boolean finish(long endLsn) {
+            boolean done = false;
+
+            try {
+                if (written == expected) {
+                    flush(out, recordBuffer);
+                    flush(heapOut, heapBuffer);
+
+                    long heapOffset = recordsOffset + (long) written * RECORD_SIZE;
+                    long moved = 0;
+                    while (moved < heapLength) {
+                        moved = moved + heapOut.transferTo(moved, heapLength - moved, out.position(heapOffset + moved));
+                    }
+
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    header.putInt(MAGIC).putInt(VERSION);
+                    header.putLong(tableLsn).putLong(endLsn);
+                    header.putInt(highWater).putInt(freeCount).putInt(written).putInt(0);
+                    header.putLong(recordsOffset).putLong(heapOffset).putLong(heapLength);
+                    header.flip();
+                    writeFully(out, header, 0);
+
+                    out.force(true);
+                    out.close();
+                    heapOut.close();
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    done = true;
+                }
+            } catch (IOException e) {
+                System.out.println("Error: Could not write snapshot " + target + ": " + e.getMessage());
+            } finally {
+                abort();
+            }
+
+            return done;
+        }
+
+        /**
+         * Gives up the snapshot and deletes its temporary files.
+         * Does nothing to a snapshot that was already renamed into place.
+         */
+        void abort() {
+            try {
+                out.close();
+                heapOut.close();
+                Files.deleteIfExists(temp);
+                Files.deleteIfExists(heapTemp);
+            } catch (IOException ignored) {
+                // Leftover temporary files are replaced by the next snapshot.
+            }
+        }
+
+        /**
+         * Appends bytes to the heap buffer, writing it out when full.
+         *
+         * @param bytes the bytes to append
+         * @throws IOException if the heap file cannot be written
+         */
+        private void putHeap(byte[] bytes) throws IOException {
+            int at = 0;
+
+            while (at < bytes.length) {
+                if (!heapBuffer.hasRemaining()) {
+                    flush(heapOut, heapBuffer);
+                }
+
+                int chunk = Math.min(heapBuffer.remaining(), bytes.length - at);
+                heapBuffer.put(bytes, at, chunk);
+                at = at + chunk;
+            }
+
+            heapLength = heapLength + bytes.length;
+        }
+
+        /**
+         * Writes out a buffer at the channel's position and empties it.
+         *
+         * @param channel the channel to write to
+         * @param buffer the buffer to write
+         * @throws IOException if writing fails
+         */
+        private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes a whole buffer at a fixed position.
+         *
+         * @param channel the channel to write to
+         * @param buffer the buffer to write
+         * @param position the file position to write at
+         * @throws IOException if writing fails
+         */
+        private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+            long at = position;
+
+            while (buffer.hasRemaining()) {
+                at = at + channel.write(buffer, at);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package System;
+
+/**
+ * The StayOption class describes a possible stay at a property that was
+ * found by a portfolio search. It holds the property ID, the stay's days,
+ * and its price at the time of the search.
+ */
+public class StayOption {
+
+    private long propertyId;
+    private String propertyName;
+    private int checkIn;
+    private int checkOut;
+    private double totalPrice;
+    private double[] breakdown;
+
+    /**
+     * Constructs a StayOption.
+     *
+     * @param propertyId the ID of the property
+     * @param propertyName the name of the property
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @param totalPrice the total price of the stay
+     * @param breakdown the final price of each night, as returned by
+     *                  Reservation.getBreakdown
+     */
+    public StayOption(long propertyId, String propertyName, int checkIn, int checkOut,
+                      double totalPrice, double[] breakdown) {
+        this.propertyId = propertyId;
+        this.propertyName = propertyName;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+        this.totalPrice = totalPrice;
+        this.breakdown = breakdown;
+    }
+
+    /**
+     * Returns the ID of the property.
+     *
+     * @return the property ID
+     */
+    public long getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Returns the name of the property at the time of the search.
+     *
+     * @return the property name
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * Returns the check-in day.
+     *
+     * @return the check-in day
+     */
+    public int getCheckIn() {
+        return checkIn;
+    }
+
+    /**
+     * Returns the check-out day.
+     *
+     * @return the check-out day
+     */
+    public int getCheckOut() {
+        return checkOut;
+    }
+
+    /**
+     * Returns the total price of the stay.
+     *
+     * @return the total price
+     */
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * Returns the final price of each night of the stay.
+     *
+     * @return a copy of the nightly prices
+     */
+    public double[] getBreakdown() {
+        return breakdown.clone();
+    }
+
+    /**
+     * Returns a formatted string with the property, days, and total price.
+     *
+     * @return a string with stay information
+     */
+    public String toString() {
+        return propertyName + " - Day " + checkIn + " to Day " + checkOut +
+                " - Total: " + totalPrice;
+    }
+}
@@ -0,0 +1,261 @@
+package System;
+
+import java.util.Arrays;
+
+import Objects.Property;
+import Objects.PropertyState;
+
+/**
+ * The SystemSnapshot class is an unchanging view of every property in a
+ * PropertySystem at one moment. Readers can keep a snapshot as long as
+ * they like and read it from any thread without taking a lock, while
+ * bookings and other changes go on in the live system.
+ * The snapshot is split into the same chunks of slots as the property
+ * table. A newer snapshot shares every chunk in which no property has
+ * changed with the snapshot before it, and every chunk shares the states
+ * of unchanged properties, so taking a snapshot only copies what changed.
+ * Each snapshot that differs from the one before it gets the next version
+ * number.
+ */
+public class SystemSnapshot {
+
+    private static final int CHUNK_SIZE = PropertyTable.CHUNK_SIZE;
+
+    private final long version;
+    private final Chunk[] chunks;
+    private final int count;
+
+    /**
+     * Constructs the empty snapshot of a system with no properties.
+     */
+    SystemSnapshot() {
+        this(0, new Chunk[0], 0);
+    }
+
+    /**
+     * Constructs a SystemSnapshot from its chunks.
+     *
+     * @param version the version number
+     * @param chunks the chunks, indexed by chunk number
+     * @param count the number of properties in all chunks
+     */
+    private SystemSnapshot(long version, Chunk[] chunks, int count) {
+        this.version = version;
+        this.chunks = chunks;
+        this.count = count;
+    }
+
+    /**
+     * Brings a snapshot up to date with a property table. Only the chunks
+     * whose stamp changed since the old snapshot was taken are copied
+     * again; the others are shared. If no chunk changed, the old snapshot
+     * itself is returned.
+     * The caller must not hold the lock of any property.
+     *
+     * @param previous the last snapshot taken of the table
+     * @param table the property table
+     * @return a snapshot of the table as it is now
+     */
+    static SystemSnapshot refresh(SystemSnapshot previous, PropertyTable table) {
+        int chunkCount = (table.getSlotCount() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Chunk[] next = Arrays.copyOf(previous.chunks, Math.max(chunkCount, previous.chunks.length));
+        boolean changed = false;
+        int total = 0;
+        int c = 0;
+
+        while (c < next.length) {
+            long stamp = table.stampOf(c);
+
+            if (next[c] == null || next[c].stamp != stamp) {
+                next[c] = Chunk.build(table, c, stamp);
+                changed = true;
+            }
+            total = total + next[c].count;
+            c = c + 1;
+        }
+
+        SystemSnapshot result = previous;
+
+        if (changed) {
+            result = new SystemSnapshot(previous.version + 1, next, total);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the version number of this snapshot. A snapshot with a
+     * higher number was taken later and differs from this one.
+     *
+     * @return the version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of properties in this snapshot.
+     *
+     * @return the number of properties
+     */
+    public int getPropertyCount() {
+        return count;
+    }
+
+    /**
+     * Returns the IDs of all properties in this snapshot in slot order.
+     *
+     * @return an array of property IDs
+     */
+    public long[] getPropertyIds() {
+        long[] ids = new long[count];
+        int idx = 0;
+        int c = 0;
+
+        while (c < chunks.length) {
+            int i = 0;
+
+            while (i < CHUNK_SIZE && chunks[c].count > 0) {
+                if (chunks[c].states[i] != null) {
+                    ids[idx] = chunks[c].ids[i];
+                    idx = idx + 1;
+                }
+                i = i + 1;
+            }
+            c = c + 1;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the IDs of one page of properties in slot order: at most
+     * limit of them, after skipping the first offset. Whole chunks before
+     * the page are skipped by their counts, so the time taken depends on
+     * the size of the page and the number of chunks, not on the number of
+     * properties.
+     *
+     * @param offset the number of properties to skip (at least 0)
+     * @param limit the most IDs to return (at least 0)
+     * @return an array of at most limit property IDs
+     */
+    public long[] getPropertyIds(int offset, int limit) {
+        int size = offset < count ? Math.min(count - offset, limit) : 0;
+        long[] ids = new long[size];
+        int skip = offset;
+        int idx = 0;
+        int c = 0;
+
+        while (idx < size && c < chunks.length) {
+            if (skip >= chunks[c].count) {
+                skip = skip - chunks[c].count;
+            } else {
+                int i = 0;
+
+                while (idx < size && i < CHUNK_SIZE) {
+                    if (chunks[c].states[i] != null) {
+                        if (skip > 0) {
+                            skip = skip - 1;
+                        } else {
+                            ids[idx] = chunks[c].ids[i];
+                            idx = idx + 1;
+                        }
+                    }
+                    i = i + 1;
+                }
+            }
+            c = c + 1;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Retrieves the state of a property as it was when this snapshot was
+     * taken.
+     *
+     * @param propertyId the property ID
+     * @return the property's state, or null if the ID was not valid then
+     */
+    public PropertyState getProperty(long propertyId) {
+        PropertyState result = null;
+        int slot = PropertyTable.slotOf(propertyId);
+
+        if (slot >= 0 && slot / CHUNK_SIZE < chunks.length) {
+            Chunk chunk = chunks[slot / CHUNK_SIZE];
+
+            if (chunk.ids[slot % CHUNK_SIZE] == propertyId) {
+                result = chunk.states[slot % CHUNK_SIZE];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The Chunk class holds the property states of one chunk of table
+     * slots, together with the chunk stamp they were copied at. Empty
+     * slots have the ID -1 and no state. A chunk never changes once built.
+     */
+    private static final class Chunk {
+
+        final long stamp;
+        final long[] ids;
+        final PropertyState[] states;
+        final int count;
+
+        /**
+         * Constructs a Chunk.
+         *
+         * @param stamp the chunk stamp the states were copied at
+         * @param ids the property ID of every slot, or -1
+         * @param states the property state of every slot, or null
+         * @param count the number of properties in the chunk
+         */
+        Chunk(long stamp, long[] ids, PropertyState[] states, int count) {
+            this.stamp = stamp;
+            this.ids = ids;
+            this.states = states;
+            this.count = count;
+        }
+
+        /**
+         * Copies one chunk of the table. The stamp must be read before the
+         * slots, so a change made during the copy always raises the stamp
+         * past the one recorded and is picked up by the next refresh.
+         * Properties that did not change since they were last copied hand
+         * back the same state object.
+         *
+         * @param table the property table
+         * @param chunk the chunk number
+         * @param stamp the chunk stamp, read before this call
+         * @return the copied chunk
+         */
+        static Chunk build(PropertyTable table, int chunk, long stamp) {
+            long[] ids = new long[CHUNK_SIZE];
+            PropertyState[] states = new PropertyState[CHUNK_SIZE];
+            int found = 0;
+            int i = 0;
+
+            Arrays.fill(ids, -1L);
+
+            while (i < CHUNK_SIZE) {
+                long id = table.idOfSlot(chunk * CHUNK_SIZE + i);
+                Property p = id == -1 ? null : table.get(id);
+
+                if (p != null) {
+                    PropertyState state = p.getState();
+
+                    if (state.getName() != null) {
+                        ids[i] = id;
+                        states[i] = state;
+                        found = found + 1;
+                    }
+                }
+                i = i + 1;
+            }
+
+            return new Chunk(stamp, ids, states, found);
+        }
+    }
+}
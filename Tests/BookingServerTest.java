@@ -0,0 +1,264 @@
+package Tests;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import Main.BookingServer;
+import Objects.PropertyType;
+import System.PropertySystem;
+
+/**
+ * The BookingServerTest class checks the booking API from a local client.
+ * It starts a BookingServer on a free port over a system with one
+ * property, sends quotes, bookings, cancellations, and listings, and
+ * checks the status and body of every answer, including the answers to
+ * bad input. It needs no test library: failed checks are printed and the
+ * program exits with status 1.
+ *
+ * Usage: java Tests.BookingServerTest
+ */
+public class BookingServerTest {
+
+    private final HttpClient client;
+    private final String base;
+    private int failures;
+
+    /**
+     * Constructs a BookingServerTest that talks to a server on a port.
+     *
+     * @param port the port the server listens on
+     */
+    private BookingServerTest(int port) {
+        this.client = HttpClient.newHttpClient();
+        this.base = "http://127.0.0.1:" + port;
+        this.failures = 0;
+    }
+
+    /**
+     * Runs every check against a fresh server.
+     *
+     * @param args the command-line arguments (unused)
+     * @throws Exception if the server cannot be reached
+     */
+    public static void main(String[] args) throws Exception {
+        PropertySystem system = new PropertySystem(null, null, false);
+        int[] days = new int[30];
+        int d = 0;
+
+        while (d < days.length) {
+            days[d] = d + 1;
+            d = d + 1;
+        }
+
+        long id = system.createProperty("Test Villa", PropertyType.fromChoice(1), days);
+        BookingServer server = new BookingServer(system);
+
+        if (!server.start("127.0.0.1", 0)) {
+            System.out.println("Error: The server did not start.");
+            System.exit(1);
+        }
+
+        BookingServerTest test = new BookingServerTest(server.getPort());
+
+        try {
+            test.checkQuote(id);
+            test.checkBooking(id);
+            test.checkList();
+            test.checkBadInput(id);
+        } finally {
+            server.stop();
+        }
+
+        if (test.failures > 0) {
+            System.out.println(test.failures + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    /**
+     * Checks that a quote prices every night and totals them.
+     *
+     * @param id the property ID
+     * @throws Exception if the server cannot be reached
+     */
+    private void checkQuote(long id) throws Exception {
+        HttpResponse<String> answer = get("/quote?property=" + id + "&checkIn=2&checkOut=5");
+
+        check(answer.statusCode() == 200, "quote answers 200", answer);
+        check(answer.body().contains("\"nights\":[1500.00,1500.00,1500.00]"), "quote lists three nights", answer);
+        check(answer.body().contains("\"total\":4500.00"), "quote totals the nights", answer);
+        check(answer.body().contains("\"available\":true"), "quote reports the stay as free", answer);
+    }
+
+    /**
+     * Checks booking a stay, booking it again, and cancelling it.
+     *
+     * @param id the property ID
+     * @throws Exception if the server cannot be reached
+     */
+    private void checkBooking(long id) throws Exception {
+        String stay = "{\"property\":" + id + ",\"guest\":\"Ana\",\"checkIn\":3,\"checkOut\":6}";
+        HttpResponse<String> answer = post("/reservations", stay);
+
+        check(answer.statusCode() == 201, "booking answers 201", answer);
+        check(answer.body().contains("\"total\":4500.00"), "booking answers with its total", answer);
+
+        answer = post("/reservations", stay);
+        check(answer.statusCode() == 409, "booking taken nights answers 409", answer);
+        check(answer.body().contains("\"conflictingNights\":[3,4,5]"), "conflict lists the taken nights", answer);
+
+        answer = get("/quote?property=" + id + "&checkIn=2&checkOut=5");
+        check(answer.body().contains("\"available\":false"), "quote sees the booking", answer);
+
+        answer = delete("/reservations/" + id + "/3");
+        check(answer.statusCode() == 200, "cancel answers 200", answer);
+
+        answer = delete("/reservations/" + id + "/3");
+        check(answer.statusCode() == 404, "cancelling again answers 404", answer);
+    }
+
+    /**
+     * Checks listing pages of properties, including a page past the end
+     * whose offset and limit add up to more than an int holds.
+     *
+     * @throws Exception if the server cannot be reached
+     */
+    private void checkList() throws Exception {
+        HttpResponse<String> answer = get("/properties?offset=0&limit=10");
+
+        check(answer.statusCode() == 200, "list answers 200", answer);
+        check(answer.body().contains("\"total\":1"), "list counts the property", answer);
+        check(answer.body().contains("\"name\":\"Test Villa\""), "list shows the property", answer);
+
+        answer = get("/properties?offset=1&limit=" + Integer.MAX_VALUE);
+        check(answer.statusCode() == 200, "list past the end answers 200", answer);
+        check(answer.body().contains("\"properties\":[]"), "list past the end is empty", answer);
+
+        answer = get("/properties?offset=" + Integer.MAX_VALUE + "&limit=1000");
+        check(answer.statusCode() == 200, "list at the largest offset answers 200", answer);
+        check(answer.body().contains("\"properties\":[]"), "list at the largest offset is empty", answer);
+
+        answer = get("/properties?offset=0&limit=" + Integer.MAX_VALUE);
+        check(answer.body().contains("\"name\":\"Test Villa\""), "list with a huge limit is capped", answer);
+    }
+
+    /**
+     * Checks that bad input is answered with 4xx statuses instead of
+     * failing or running out of memory.
+     *
+     * @param id the property ID
+     * @throws Exception if the server cannot be reached
+     */
+    private void checkBadInput(long id) throws Exception {
+        HttpResponse<String> answer = get("/quote?property=" + id + "&checkIn=1&checkOut=" + Integer.MAX_VALUE);
+        check(answer.statusCode() == 400, "quote with a far check-out answers 400", answer);
+
+        answer = get("/quote?property=" + id + "&checkIn=0&checkOut=3");
+        check(answer.statusCode() == 400, "quote checking in on day 0 answers 400", answer);
+
+        answer = get("/quote?property=" + id + "&checkIn=5&checkOut=5");
+        check(answer.statusCode() == 400, "quote of no nights answers 400", answer);
+
+        answer = get("/quote?property=999999&checkIn=1&checkOut=3");
+        check(answer.statusCode() == 404, "quote for an unknown property answers 404", answer);
+
+        answer = get("/availability?checkIn=1&checkOut=99");
+        check(answer.statusCode() == 400, "availability past the calendar answers 400", answer);
+
+        answer = get("/properties?offset=-1");
+        check(answer.statusCode() == 400, "a negative offset answers 400", answer);
+
+        answer = get("/properties/abc");
+        check(answer.statusCode() == 404, "a property ID that is not a number answers 404", answer);
+
+        answer = post("/reservations", "not json");
+        check(answer.statusCode() == 400, "a body that is not JSON answers 400", answer);
+
+        answer = post("/reservations", "{\"property\":" + id + ",\"guest\":\"Ana\",\"checkIn\":3,\"checkOut\":40}");
+        check(answer.statusCode() == 400, "booking past the calendar answers 400", answer);
+
+        answer = post("/reservations", "{\"property\":" + id + ",\"guest\":null,\"checkIn\":3,\"checkOut\":4}");
+        check(answer.statusCode() == 400, "booking with a null guest answers 400", answer);
+
+        answer = post("/reservations", "{\"property\":" + id + ",\"guest\":42,\"checkIn\":3,\"checkOut\":4}");
+        check(answer.statusCode() == 400, "booking with a number for a guest answers 400", answer);
+
+        answer = post("/reservations", "{\"property\":" + id + ",\"checkIn\":3,\"checkOut\":4}");
+        check(answer.statusCode() == 400, "booking without a guest answers 400", answer);
+
+        answer = post("/reservations", "{\"property\":999999,\"guest\":\"Ana\",\"checkIn\":3,\"checkOut\":4}");
+        check(answer.statusCode() == 404, "booking an unknown property answers 404", answer);
+
+        answer = get("/reservations");
+        check(answer.statusCode() == 405, "GET /reservations answers 405", answer);
+    }
+
+    /**
+     * Records the outcome of one check, printing it if it failed.
+     *
+     * @param passed true if the check passed
+     * @param name what was checked
+     * @param answer the answer the check looked at
+     */
+    private void check(boolean passed, String name, HttpResponse<String> answer) {
+        if (!passed) {
+            failures = failures + 1;
+            System.out.println("FAILED: " + name + " (" + answer.statusCode() + " " + answer.body() + ")");
+        }
+    }
+
+    /**
+     * Sends a GET request.
+     *
+     * @param path the path and query
+     * @return the answer
+     * @throws IOException if the server cannot be reached
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(base + path)).GET());
+    }
+
+    /**
+     * Sends a POST request with a JSON body.
+     *
+     * @param path the path
+     * @param body the body
+     * @return the answer
+     * @throws IOException if the server cannot be reached
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(base + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    /**
+     * Sends a DELETE request.
+     *
+     * @param path the path
+     * @return the answer
+     * @throws IOException if the server cannot be reached
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private HttpResponse<String> delete(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(base + path)).DELETE());
+    }
+
+    /**
+     * Sends a request and reads the answer as text.
+     *
+     * @param request the request to send
+     * @return the answer
+     * @throws IOException if the server cannot be reached
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,365 @@
+package Tests;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import Objects.Property;
+import Objects.PropertyState;
+import Objects.PropertyType;
+import Objects.RatePlan;
+import Objects.Reservation;
+import System.MutationLog;
+import System.PropertySystem;
+import System.SystemSnapshot;
+
+/**
+ * The RecoveryTest class checks that a system rebuilt from its mutation
+ * log, and from a snapshot plus the cut log, is the system that wrote
+ * them. Several threads make a mix of changes through a logged system at
+ * once, so the log's group commit is used. The log is then reopened and
+ * replayed on one thread and on several, and every property state is
+ * compared with the original. A second run writes snapshots between
+ * rounds of changes, checks that the last one cut the log, and rebuilds
+ * from the last snapshot and what is left of the log. It needs no test
+ * library: failed checks are printed and the program exits with status 1.
+ *
+ * Usage: java Tests.RecoveryTest
+ */
+public class RecoveryTest {
+
+    private static final int PROPERTIES = 200;
+    private static final int WRITERS = 4;
+    private static final int CHANGES = 2000;
+    private static final int SEVERAL_THREADS = 4;
+
+    private int failures;
+
+    /**
+     * Constructs a RecoveryTest with no failures yet.
+     */
+    private RecoveryTest() {
+        this.failures = 0;
+    }
+
+    /**
+     * Runs every check in a fresh temporary directory.
+     *
+     * @param args the command-line arguments (unused)
+     * @throws Exception if the files cannot be written or a thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("recovery-test");
+        RecoveryTest test = new RecoveryTest();
+
+        try {
+            test.checkLogReplay(directory);
+            test.checkSnapshotAndCut(directory);
+        } finally {
+            deleteAll(directory);
+        }
+
+        if (test.failures > 0) {
+            System.out.println(test.failures + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    /**
+     * Checks that replaying the whole log on one thread and on several
+     * rebuilds the same properties the log was written from.
+     *
+     * @param directory the directory for the files
+     * @throws Exception if the log cannot be written or a thread fails
+     */
+    private void checkLogReplay(Path directory) throws Exception {
+        String logFile = directory.resolve("replay.log").toString();
+        MutationLog log = MutationLog.open(logFile);
+        PropertySystem system = new PropertySystem(null, log, false);
+        long[] ids = createProperties(system);
+
+        changeConcurrently(system, ids, 1);
+
+        check(!log.hasFailed(), "the log was written without failure");
+        String expected = describe(system);
+        long records = log.nextLsn();
+        check(log.close(), "the log closes");
+
+        MutationLog reopened = MutationLog.open(logFile);
+        check(records > PROPERTIES, "the log holds the creations and the changes");
+        check(reopened.getRecordCount() == records, "every record is in the file when it is reopened");
+        reopened.close();
+        checkRebuilt(null, logFile, 1, expected, "log replayed on one thread");
+        checkRebuilt(null, logFile, SEVERAL_THREADS, expected, "log replayed on several threads");
+    }
+
+    /**
+     * Checks that writing snapshots between rounds of changes cuts the
+     * log up to the last snapshot, and that the last snapshot and the cut
+     * log rebuild the same properties, on one thread and on several.
+     *
+     * @param directory the directory for the files
+     * @throws Exception if the files cannot be written or a thread fails
+     */
+    private void checkSnapshotAndCut(Path directory) throws Exception {
+        String logFile = directory.resolve("cut.log").toString();
+        String snapshotFile = directory.resolve("cut.snapshot").toString();
+        MutationLog log = MutationLog.open(logFile);
+        PropertySystem system = new PropertySystem(snapshotFile, log, false);
+        long[] ids = createProperties(system);
+        long lastRound = 0;
+        int round = 0;
+
+        while (round < 3) {
+            lastRound = log.nextLsn();
+            changeConcurrently(system, ids, 100 + round);
+            check(system.writeSnapshot(snapshotFile), "snapshot " + round + " is written");
+            round = round + 1;
+        }
+
+        changeConcurrently(system, ids, 200);
+
+        check(!log.hasFailed(), "the log was written without failure");
+        String expected = describe(system);
+        long records = log.nextLsn();
+        check(log.close(), "the log closes");
+
+        MutationLog reopened = MutationLog.open(logFile);
+        check(reopened.getStartLsn() >= lastRound, "the last snapshot cut the log");
+        check(reopened.getEndLsn() == records, "the cut log still ends at the last record");
+        reopened.close();
+
+        checkRebuilt(snapshotFile, logFile, 1, expected, "snapshot and cut log replayed on one thread");
+        checkRebuilt(snapshotFile, logFile, SEVERAL_THREADS, expected,
+                "snapshot and cut log replayed on several threads");
+    }
+
+    /**
+     * Rebuilds a system from its files and compares it with the
+     * description of the system that wrote them.
+     *
+     * @param snapshotFile the snapshot file name, or null to use none
+     * @param logFile the log file name
+     * @param threads the number of threads to replay the log on
+     * @param expected the description of the system that wrote the files
+     * @param name what is being checked
+     */
+    private void checkRebuilt(String snapshotFile, String logFile, int threads, String expected, String name) {
+        MutationLog log = MutationLog.open(logFile);
+        PropertySystem rebuilt = new PropertySystem(snapshotFile, log, false, threads);
+
+        check(rebuilt.getRecoveryStats().getMismatches() == 0, name + ": every record replays");
+        check(rebuilt.getRecoveryStats().getThreads() == threads, name + ": the threads asked for are used");
+        check(snapshotFile == null || rebuilt.getRecoveryStats().getSnapshotProperties() > 0,
+                name + ": the snapshot is loaded");
+
+        String actual = describe(rebuilt);
+        if (!actual.equals(expected)) {
+            failures = failures + 1;
+            System.out.println("FAILED: " + name + ": the properties differ");
+            printFirstDifference(expected, actual);
+        }
+
+        log.close();
+    }
+
+    /**
+     * Creates the properties the changes are made to. Some list every
+     * day and some only part of the month.
+     *
+     * @param system the system to create them in
+     * @return the IDs of the new properties
+     */
+    private long[] createProperties(PropertySystem system) {
+        long[] ids = new long[PROPERTIES];
+        int i = 0;
+
+        while (i < ids.length) {
+            int first = 1 + i % 5;
+            int[] days = new int[Property.MAX_DAY - first + 1];
+            int d = 0;
+
+            while (d < days.length) {
+                days[d] = first + d;
+                d = d + 1;
+            }
+
+            ids[i] = system.createProperty("Property " + i, PropertyType.fromChoice(1 + i % 4), days);
+            check(ids[i] >= 0, "property " + i + " is created");
+            i = i + 1;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Makes a mix of changes from several threads at once: bookings,
+     * cancellations, price, type, name, and rate changes, rate plans,
+     * and removing and creating properties.
+     *
+     * @param system the system to change
+     * @param ids the IDs of the properties to change
+     * @param seed the seed of the random choices
+     * @throws InterruptedException if the wait for the threads is interrupted
+     */
+    private void changeConcurrently(PropertySystem system, long[] ids, int seed) throws InterruptedException {
+        List<Thread> writers = new ArrayList<Thread>();
+        int w = 0;
+
+        while (w < WRITERS) {
+            SplittableRandom random = new SplittableRandom(seed * 31L + w);
+            String guest = "Guest " + seed + "-" + w;
+            Thread writer = new Thread(() -> change(system, ids, random, guest), "writer-" + w);
+
+            writers.add(writer);
+            writer.start();
+            w = w + 1;
+        }
+
+        int i = 0;
+        while (i < writers.size()) {
+            writers.get(i).join();
+            i = i + 1;
+        }
+    }
+
+    /**
+     * Makes the changes of one thread.
+     *
+     * @param system the system to change
+     * @param ids the IDs of the properties to change
+     * @param random the random choices of this thread
+     * @param guest the guest name this thread books for
+     */
+    private static void change(PropertySystem system, long[] ids, SplittableRandom random, String guest) {
+        int k = 0;
+
+        while (k < CHANGES) {
+            long id = ids[random.nextInt(ids.length)];
+            int checkIn = 1 + random.nextInt(Property.MAX_DAY - 1);
+            int checkOut = checkIn + 1 + random.nextInt(Math.min(4, Property.MAX_DAY - checkIn));
+            int choice = random.nextInt(100);
+
+            if (choice < 55) {
+                system.tryBook(id, guest, checkIn, checkOut);
+            } else if (choice < 75) {
+                Property p = system.getProperty(id);
+                Reservation r = p == null ? null : p.findReservation(checkIn);
+
+                if (r != null) {
+                    system.removeReservation(id, r);
+                }
+            } else if (choice < 82) {
+                system.updateBasePrice(id, 100 + random.nextInt(5000));
+            } else if (choice < 87) {
+                system.setEnvironmentalRateForRange(id, checkIn, checkOut, (80 + random.nextInt(41)) / 100.0);
+            } else if (choice < 91) {
+                system.changePropertyType(id, PropertyType.fromChoice(1 + random.nextInt(4)));
+            } else if (choice < 94) {
+                system.changePropertyName(id, guest + " Place " + k);
+            } else if (choice < 97) {
+                RatePlan plan = new RatePlan();
+
+                plan.setRange(checkIn, checkOut, (80 + random.nextInt(41)) / 100.0);
+                system.applyRatePlan(plan, new long[] {id, ids[random.nextInt(ids.length)]});
+            } else if (choice < 98) {
+                system.removeProperty(id);
+            } else {
+                system.createProperty(guest + " New " + k, PropertyType.fromChoice(1), new int[] {checkIn, checkOut});
+            }
+            k = k + 1;
+        }
+    }
+
+    /**
+     * Describes every property of a system, one line each, from a single
+     * snapshot: its ID, name, type, days, prices, rates, and reservations.
+     * Two systems with the same description hold the same properties.
+     *
+     * @param system the system
+     * @return the description
+     */
+    private static String describe(PropertySystem system) {
+        SystemSnapshot view = system.snapshot();
+        long[] ids = view.getPropertyIds();
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+
+        while (i < ids.length) {
+            PropertyState state = view.getProperty(ids[i]);
+            Reservation[] reservations = state.getReservations();
+            int r = 0;
+
+            out.append(ids[i]).append(' ').append(state.getName()).append(' ')
+                    .append(state.getType().getDisplayName()).append(' ')
+                    .append(Long.toHexString(state.getListedMask())).append(' ')
+                    .append(Long.toHexString(state.getBookedMask())).append(' ')
+                    .append(Arrays.toString(state.getPrices())).append(' ')
+                    .append(Arrays.toString(state.getRates()));
+            while (r < reservations.length) {
+                out.append(" [").append(reservations[r].getGuestName()).append(' ')
+                        .append(reservations[r].getCheckIn()).append('-')
+                        .append(reservations[r].getCheckOut()).append(']');
+                r = r + 1;
+            }
+            out.append('\n');
+            i = i + 1;
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Prints the first line where two descriptions differ.
+     *
+     * @param expected the description of the original system
+     * @param actual the description of the rebuilt system
+     */
+    private static void printFirstDifference(String expected, String actual) {
+        String[] want = expected.split("\n");
+        String[] got = actual.split("\n");
+        int i = 0;
+
+        while (i < want.length && i < got.length && want[i].equals(got[i])) {
+            i = i + 1;
+        }
+
+        System.out.println("  expected: " + (i < want.length ? want[i] : "(end)"));
+        System.out.println("  actual:   " + (i < got.length ? got[i] : "(end)"));
+    }
+
+    /**
+     * Records the outcome of one check, printing it if it failed.
+     *
+     * @param passed true if the check passed
+     * @param name what was checked
+     */
+    private void check(boolean passed, String name) {
+        if (!passed) {
+            failures = failures + 1;
+            System.out.println("FAILED: " + name);
+        }
+    }
+
+    /**
+     * Deletes a directory and the files in it.
+     *
+     * @param directory the directory
+     * @throws IOException if a file cannot be deleted
+     */
+    private static void deleteAll(Path directory) throws IOException {
+        Path[] files = Files.list(directory).toArray(Path[]::new);
+        int i = 0;
+
+        while (i < files.length) {
+            Files.delete(files[i]);
+            i = i + 1;
+        }
+        Files.delete(directory);
+    }
+}
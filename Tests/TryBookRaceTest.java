@@ -0,0 +1,166 @@
+package Tests;
+
+import java.util.concurrent.CyclicBarrier;
+
+import Objects.Property;
+import Objects.Reservation;
+import Objects.PropertyType;
+import System.BookingResult;
+import System.PropertySystem;
+
+/**
+ * The TryBookRaceTest class checks that tryBook checks and books a stay
+ * in one atomic step. Over many rounds, two threads are released at the
+ * same moment to book overlapping stays on the same property. Exactly one
+ * of them must win; the other must be told which of its nights were
+ * taken, and the property must hold only the winner's reservation and
+ * nights. It needs no test library: failed checks are printed and the
+ * program exits with status 1.
+ *
+ * Usage: java Tests.TryBookRaceTest
+ */
+public class TryBookRaceTest {
+
+    private static final int ROUNDS = 20000;
+
+    private int failures;
+
+    /**
+     * Constructs a TryBookRaceTest with no failures yet.
+     */
+    private TryBookRaceTest() {
+        this.failures = 0;
+    }
+
+    /**
+     * Runs every round.
+     *
+     * @param args the command-line arguments (unused)
+     * @throws Exception if a thread fails
+     */
+    public static void main(String[] args) throws Exception {
+        TryBookRaceTest test = new TryBookRaceTest();
+
+        test.race();
+
+        if (test.failures > 0) {
+            System.out.println(test.failures + " checks failed.");
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    /**
+     * Races two bookings of overlapping stays, once per round, on a new
+     * property each round.
+     *
+     * @throws Exception if a thread fails
+     */
+    private void race() throws Exception {
+        PropertySystem system = new PropertySystem(null, null, false);
+        int[] days = new int[Property.MAX_DAY];
+        int d = 0;
+
+        while (d < days.length) {
+            days[d] = d + 1;
+            d = d + 1;
+        }
+
+        CyclicBarrier start = new CyclicBarrier(2);
+        BookingResult[] results = new BookingResult[2];
+        int round = 0;
+
+        while (round < ROUNDS && failures < 10) {
+            long id = system.createProperty("Race " + round, PropertyType.fromChoice(1), days);
+            int firstIn = 1 + round % 20;
+            int secondIn = firstIn + 1 + round % 3;
+            Thread first = booker(system, id, "First", firstIn, firstIn + 4, start, results, 0);
+            Thread second = booker(system, id, "Second", secondIn, secondIn + 4, start, results, 1);
+
+            first.start();
+            second.start();
+            first.join();
+            second.join();
+
+            checkRound(system.getProperty(id), results, round);
+            system.removeProperty(id);
+            round = round + 1;
+        }
+    }
+
+    /**
+     * Creates a thread that waits for the other booker and then books.
+     *
+     * @param system the system to book in
+     * @param id the property ID
+     * @param guest the guest name
+     * @param checkIn the check-in day
+     * @param checkOut the check-out day
+     * @param start the barrier both bookers wait at
+     * @param results where the result is kept
+     * @param index the place of the result
+     * @return the unstarted thread
+     */
+    private static Thread booker(PropertySystem system, long id, String guest, int checkIn, int checkOut,
+                                 CyclicBarrier start, BookingResult[] results, int index) {
+        return new Thread(() -> {
+            try {
+                start.await();
+                results[index] = system.tryBook(id, guest, checkIn, checkOut);
+            } catch (Exception e) {
+                results[index] = null;
+            }
+        }, "booker-" + index);
+    }
+
+    /**
+     * Checks that exactly one booking of a round won, that the other was
+     * told of its taken nights, and that the property holds only the
+     * winner.
+     *
+     * @param property the property both threads booked
+     * @param results the two results
+     * @param round the round number
+     */
+    private void checkRound(Property property, BookingResult[] results, int round) {
+        boolean bothAnswered = results[0] != null && results[1] != null;
+
+        check(bothAnswered, "round " + round + ": both bookings are answered");
+
+        if (bothAnswered) {
+            int wins = (results[0].isBooked() ? 1 : 0) + (results[1].isBooked() ? 1 : 0);
+
+            check(wins == 1, "round " + round + ": exactly one booking wins, not " + wins);
+
+            if (wins == 1) {
+                BookingResult winner = results[0].isBooked() ? results[0] : results[1];
+                BookingResult loser = results[0].isBooked() ? results[1] : results[0];
+                Reservation won = winner.getReservation();
+                long nights = Property.rangeMask(won.getCheckIn(), won.getCheckOut());
+
+                check(loser.getStatus() == BookingResult.Status.CONFLICT,
+                        "round " + round + ": the other booking is a conflict");
+                check(loser.getConflictingNights().length > 0,
+                        "round " + round + ": the conflict names the taken nights");
+                check(property.getReservations().size() == 1,
+                        "round " + round + ": only the winner is stored");
+                check(property.getListedDaysMask() != 0
+                        && (property.getListedDaysMask() & ~property.getFreeDaysMask()) == nights,
+                        "round " + round + ": only the winner's nights are booked");
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of one check, printing it if it failed.
+     *
+     * @param passed true if the check passed
+     * @param name what was checked
+     */
+    private void check(boolean passed, String name) {
+        if (!passed) {
+            failures = failures + 1;
+            System.out.println("FAILED: " + name);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+#!/bin/sh
+# Builds the benchmark jar and runs it, saving the results as JMH JSON in
+# results/ under the date and commit, so runs of different versions can be
+# compared. Extra arguments go to JMH, e.g. "-p portfolioSize=1000 Reservation".
+# The jar needs Java 21; the java of JAVA_HOME is used when it is set.
+cd "$(dirname "$0")" || exit 1
+mvn -q -B package || exit 1
+mkdir -p results
+stamp=$(date +%Y%m%d-%H%M%S)
+commit=$(git rev-parse --short HEAD 2>/dev/null || echo unknown)
+"${JAVA_HOME:+$JAVA_HOME/bin/}java" -jar target/benchmarks.jar -rf json -rff "results/$stamp-$commit.json" "$@"
@@ -0,0 +1,261 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Objects.Date;
+import Objects.Property;
+import Objects.PropertyType;
+import Objects.Reservation;
+import System.PropertySystem;
+
+/**
+ * Benchmarks the booking and pricing hot paths of a PropertySystem holding
+ * a portfolio of 10 to 1,000,000 properties. Every property lists all 30
+ * days, and each call works on a property picked at random, so large
+ * portfolios show the cost of reaching properties that are not in the
+ * processor caches.
+ * Benchmarks that would change the portfolio undo their change, so the
+ * portfolio keeps its size and content through a run: a reservation is
+ * added and removed again in the same call, and a created property is
+ * removed again, either in the same call or, for createProperty alone,
+ * in a teardown after each call that is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PortfolioBenchmark {
+
+    private static final int[] ALL_DAYS = IntStream.rangeClosed(1, Property.MAX_DAY).toArray();
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int portfolioSize;
+
+    private PropertySystem system;
+    private Property[] properties;
+    private String[] names;
+    private AtomicLong created;
+
+    /**
+     * Builds the portfolio once per trial. The properties are added in
+     * parallel; there is no log, so nothing is written to disk.
+     */
+    @Setup(Level.Trial)
+    public void buildPortfolio() {
+        system = new PropertySystem(null, null, false);
+        properties = new Property[portfolioSize];
+        names = new String[portfolioSize];
+        created = new AtomicLong();
+
+        IntStream.range(0, portfolioSize).parallel().forEach(i -> {
+            names[i] = "Property " + i;
+            long id = system.createProperty(names[i], PropertyType.fromChoice(1 + i % 4), ALL_DAYS);
+            properties[i] = system.getProperty(id);
+        });
+    }
+
+    /**
+     * The Cursor class gives each benchmark thread its own random choice
+     * of property and stay.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private SplittableRandom random;
+
+        /**
+         * Seeds the thread's random choices.
+         */
+        @Setup(Level.Trial)
+        public void seed() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+
+        /**
+         * Picks a portfolio index.
+         *
+         * @param size the portfolio size
+         * @return an index below the size
+         */
+        int index(int size) {
+            return random.nextInt(size);
+        }
+
+        /**
+         * Picks a day of the month.
+         *
+         * @return a day (1–30)
+         */
+        int day() {
+            return 1 + random.nextInt(Property.MAX_DAY);
+        }
+
+        /**
+         * Picks a stay of one to four nights that ends by check-out day 31.
+         *
+         * @return a new reservation for the stay
+         */
+        Reservation stay() {
+            int checkIn = 1 + random.nextInt(Property.MAX_DAY);
+            int checkOut = Math.min(Property.MAX_DAY + 1, checkIn + 1 + random.nextInt(4));
+            return new Reservation("Bench Guest", checkIn, checkOut);
+        }
+    }
+
+    /**
+     * Adds a reservation to a random property and removes it again.
+     *
+     * @param cursor the thread's random choices
+     * @return true if the stay was booked and cancelled
+     */
+    @Benchmark
+    public boolean addAndRemoveReservation(Cursor cursor) {
+        Property p = properties[cursor.index(portfolioSize)];
+        Reservation r = cursor.stay();
+        boolean done = p.addReservation(r);
+
+        if (done) {
+            done = p.removeReservation(r);
+        }
+
+        return done;
+    }
+
+    /**
+     * Gets the Date view of a random day of a random property.
+     *
+     * @param cursor the thread's random choices
+     * @return the date
+     */
+    @Benchmark
+    public Date getDateByDay(Cursor cursor) {
+        return properties[cursor.index(portfolioSize)].getDateByDay(cursor.day());
+    }
+
+    /**
+     * Lists the available dates of a random property.
+     *
+     * @param cursor the thread's random choices
+     * @return the available dates
+     */
+    @Benchmark
+    public Date[] getAvailableDates(Cursor cursor) {
+        return properties[cursor.index(portfolioSize)].getAvailableDates();
+    }
+
+    /**
+     * Prices a random stay at a random property.
+     *
+     * @param cursor the thread's random choices
+     * @return the total price
+     */
+    @Benchmark
+    public double reservationTotalPrice(Cursor cursor) {
+        return cursor.stay().getTotalPrice(properties[cursor.index(portfolioSize)]);
+    }
+
+    /**
+     * Works out the nightly prices of a random stay at a random property.
+     *
+     * @param cursor the thread's random choices
+     * @return the nightly prices
+     */
+    @Benchmark
+    public double[] reservationBreakdown(Cursor cursor) {
+        return cursor.stay().getBreakdown(properties[cursor.index(portfolioSize)]);
+    }
+
+    /**
+     * Looks up the name of a random existing property.
+     *
+     * @param cursor the thread's random choices
+     * @return true, since the name exists
+     */
+    @Benchmark
+    public boolean propertyNameExists(Cursor cursor) {
+        return system.propertyNameExists(names[cursor.index(portfolioSize)]);
+    }
+
+    /**
+     * Looks up a name no property has.
+     *
+     * @param cursor the thread's random choices
+     * @return false, since the name does not exist
+     */
+    @Benchmark
+    public boolean propertyNameMissing(Cursor cursor) {
+        return system.propertyNameExists("Missing " + cursor.index(portfolioSize));
+    }
+
+    /**
+     * The Created class keeps the ID of the property a createProperty
+     * call made, and removes that property after each call, outside the
+     * measured time.
+     */
+    @State(Scope.Thread)
+    public static class Created {
+
+        private long id = -1;
+
+        /**
+         * Removes the property made by the last call, if there is one.
+         *
+         * @param benchmark the benchmark holding the portfolio
+         */
+        @TearDown(Level.Invocation)
+        public void remove(PortfolioBenchmark benchmark) {
+            if (id >= 0) {
+                benchmark.system.removeProperty(id);
+            }
+            id = -1;
+        }
+    }
+
+    /**
+     * Creates a property with every day listed. Only the creation is
+     * measured: the property is removed again by the Created teardown,
+     * so the slot is reused and the portfolio keeps its size. JMH times
+     * each call on its own for this, which adds a little overhead of its
+     * own to the result.
+     *
+     * @param made where the new property's ID is kept for the teardown
+     * @return the ID of the new property
+     */
+    @Benchmark
+    public long createProperty(Created made) {
+        made.id = system.createProperty("Created " + created.incrementAndGet(), PropertyType.fromChoice(1), ALL_DAYS);
+        return made.id;
+    }
+
+    /**
+     * Creates a property with every day listed and removes it again, so
+     * the slot is reused and the portfolio keeps its size. This measures
+     * the two together; createProperty measures the creation alone.
+     *
+     * @return true if the property was created and removed
+     */
+    @Benchmark
+    public boolean createAndRemoveProperty() {
+        long id = system.createProperty("Created " + created.incrementAndGet(), PropertyType.fromChoice(1), ALL_DAYS);
+        return id >= 0 && system.removeProperty(id);
+    }
+}